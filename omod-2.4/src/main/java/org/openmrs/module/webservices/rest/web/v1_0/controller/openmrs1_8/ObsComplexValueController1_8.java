@@ -12,12 +12,15 @@ package org.openmrs.module.webservices.rest.web.v1_0.controller.openmrs1_8;
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.openmrs.ConceptComplex;
 import org.openmrs.Obs;
+import org.openmrs.api.ConceptService;
 import org.openmrs.api.ObsService;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
 import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
 import org.openmrs.obs.ComplexData;
+import org.openmrs.obs.ComplexObsHandler;
 import org.openmrs.obs.handler.AbstractHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -27,26 +30,74 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.imageio.ImageIO;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 @Controller
 @RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/obs")
 public class ObsComplexValueController1_8 extends BaseRestController {
 	
+	/**
+	 * The package of the handlers shipped with OpenMRS core, which store the raw complex data
+	 * unchanged in the file returned by {@link AbstractHandler#getComplexDataFile(Obs)}
+	 */
+	private static final String CORE_HANDLER_PACKAGE = AbstractHandler.class.getPackage().getName();
+	
 	@Autowired
 	ObsService obsService;
 	
+	@Autowired
+	ConceptService conceptService;
+	
+	/**
+	 * Writes the complex data of an obs.
+	 * <p>
+	 * The raw view of complex data stored in a file by one of the core handlers is streamed
+	 * directly from that file without being loaded by the handler. Such responses and responses
+	 * for data held in memory support single byte ranges. Since obs are never changed, but voided
+	 * and replaced, the uuid of the obs is used as the entity tag and its creation date as the last
+	 * modification date.
+	 * </p>
+	 */
 	@RequestMapping(value = "/{uuid}/value", method = RequestMethod.GET)
 	public void getFile(@PathVariable("uuid") String uuid,
-	        @RequestParam(required = false, defaultValue = "RAW_VIEW") String view, HttpServletResponse response)
-	        throws Exception {
+	        @RequestParam(required = false, defaultValue = "RAW_VIEW") String view, HttpServletRequest request,
+	        HttpServletResponse response) throws Exception {
 		Obs obs = obsService.getObsByUuid(uuid);
 		if (!obs.isComplex()) {
 			throw new IllegalRequestException("It is not a complex obs, thus have no data.");
 		}
+		
+		String etag = "\"" + obs.getUuid() + "\"";
+		long lastModified = obs.getDateCreated() != null ? obs.getDateCreated().getTime() / 1000 * 1000 : -1;
+		response.setHeader("ETag", etag);
+		if (lastModified != -1) {
+			response.setDateHeader("Last-Modified", lastModified);
+		}
+		if (isNotModified(request, etag, lastModified)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		
+		File file = getRawComplexDataFile(obs, view);
+		if (file != null) {
+			String title = getComplexDataTitle(obs, file);
+			String mimeType = URLConnection.guessContentTypeFromName(title);
+			setContentHeaders(response, mimeType != null ? mimeType : "application/octet-stream", title);
+			response.setHeader("Accept-Ranges", "bytes");
+			writeFile(file, getRequestedRange(request, etag, file.length()), response);
+			return;
+		}
+		
 		obs = obsService.getComplexObs(obs.getId(), view);
 		ComplexData complexData = obs.getComplexData();
 		
@@ -58,21 +109,31 @@ public class ObsComplexValueController1_8 extends BaseRestController {
 			mimeType = "application/force-download"; //no mimeType for openmrs-api 1.11 and below
 		}
 		
-		response.setContentType(mimeType);
-		if (StringUtils.isNotBlank(complexData.getTitle())) {
-			response.setHeader("Content-Disposition", "attachment; filename=" + complexData.getTitle());
-		}
+		setContentHeaders(response, mimeType, complexData.getTitle());
 		Object data = complexData.getData();
 		if (data instanceof byte[]) {
-			response.getOutputStream().write((byte[]) data);
+			byte[] bytes = (byte[]) data;
+			response.setHeader("Accept-Ranges", "bytes");
+			long[] range = getRequestedRange(request, etag, bytes.length);
+			if (range == null) {
+				response.setContentLength(bytes.length);
+				response.getOutputStream().write(bytes);
+			} else if (writeRangeHeaders(range, bytes.length, response)) {
+				response.getOutputStream().write(bytes, (int) range[0], (int) (range[1] - range[0] + 1));
+			}
 		} else if (data instanceof InputStream) {
-			IOUtils.copy((InputStream) data, response.getOutputStream());
+			try {
+				IOUtils.copy((InputStream) data, response.getOutputStream());
+			}
+			finally {
+				IOUtils.closeQuietly((InputStream) data);
+			}
 		} else if (data instanceof BufferedImage) {
 			//special case for ImageHandler
 			BufferedImage image = (BufferedImage) data;
-			File file = AbstractHandler.getComplexDataFile(obs);
-			String type = StringUtils.substringAfterLast(file.getName(), ".");
-			if (type == null) {
+			File imageFile = AbstractHandler.getComplexDataFile(obs);
+			String type = StringUtils.substringAfterLast(imageFile.getName(), ".");
+			if (StringUtils.isBlank(type)) {
 				type = "jpg";
 			}
 			ImageIO.write(image, type, response.getOutputStream());
@@ -80,4 +141,173 @@ public class ObsComplexValueController1_8 extends BaseRestController {
 		
 		response.flushBuffer();
 	}
+	
+	/**
+	 * @return the file holding the raw complex data of the given obs or null if the data must be
+	 *         loaded through its handler
+	 */
+	private File getRawComplexDataFile(Obs obs, String view) {
+		if (!ComplexObsHandler.RAW_VIEW.equals(view)) {
+			return null;
+		}
+		
+		ConceptComplex conceptComplex = conceptService.getConceptComplex(obs.getConcept().getConceptId());
+		if (conceptComplex == null) {
+			return null;
+		}
+		
+		ComplexObsHandler handler = obsService.getHandler(conceptComplex.getHandler());
+		if (!(handler instanceof AbstractHandler)
+		        || !CORE_HANDLER_PACKAGE.equals(handler.getClass().getPackage().getName())) {
+			return null;
+		}
+		
+		File file = AbstractHandler.getComplexDataFile(obs);
+		return file != null && file.isFile() ? file : null;
+	}
+	
+	/**
+	 * Gets the title of the complex data the same way the core handlers do, i.e. from the value
+	 * complex of the obs which is either the file name or the title and file name separated by a
+	 * pipe.
+	 */
+	private String getComplexDataTitle(Obs obs, File file) {
+		String[] names = StringUtils.split(obs.getValueComplex(), '|');
+		if (names != null && names.length > 1 && StringUtils.isNotBlank(names[0])) {
+			return names[0].trim();
+		}
+		return file.getName();
+	}
+	
+	private void setContentHeaders(HttpServletResponse response, String mimeType, String title) {
+		response.setContentType(mimeType);
+		if (StringUtils.isNotBlank(title)) {
+			response.setHeader("Content-Disposition", "attachment; filename=" + title);
+		}
+	}
+	
+	private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			return "*".equals(ifNoneMatch.trim()) || ifNoneMatch.contains(etag);
+		}
+		
+		long ifModifiedSince;
+		try {
+			ifModifiedSince = request.getDateHeader("If-Modified-Since");
+		}
+		catch (IllegalArgumentException e) {
+			return false;
+		}
+		return lastModified != -1 && ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+	}
+	
+	/**
+	 * Parses the Range header of the request. Only a single byte range is supported, the whole
+	 * content is returned for multiple ranges, unparsable ranges, ranges ending before they start and
+	 * if the If-Range header does not match the entity tag. A range is only unsatisfiable if it
+	 * starts beyond the content.
+	 *
+	 * @return the first and last byte (inclusive) of the requested range, null if the whole content
+	 *         is to be returned or an empty array if the range cannot be satisfied
+	 */
+	private long[] getRequestedRange(HttpServletRequest request, String etag, long length) {
+		String range = request.getHeader("Range");
+		if (range == null || !range.startsWith("bytes=") || range.contains(",")) {
+			return null;
+		}
+		
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange != null && !ifRange.equals(etag)) {
+			return null;
+		}
+		
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return null;
+		}
+		
+		long first;
+		long last;
+		try {
+			if (dash == 0) {
+				// suffix range, i.e. the last n bytes
+				long suffixLength = Long.parseLong(spec.substring(1));
+				if (suffixLength <= 0 || length == 0) {
+					return new long[0];
+				}
+				first = Math.max(0, length - suffixLength);
+				last = length - 1;
+			} else {
+				first = Long.parseLong(spec.substring(0, dash));
+				last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+			}
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+		
+		if (first < 0 || first > last) {
+			// the range is invalid, so it is ignored
+			return null;
+		}
+		if (first >= length) {
+			return new long[0];
+		}
+		last = Math.min(last, length - 1);
+		return new long[] { first, last };
+	}
+	
+	/**
+	 * Sets the status and headers of a partial response.
+	 *
+	 * @return false if the range cannot be satisfied and no content must be written
+	 */
+	private boolean writeRangeHeaders(long[] range, long length, HttpServletResponse response) {
+		if (range.length == 0) {
+			response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			response.setHeader("Content-Range", "bytes */" + length);
+			return false;
+		}
+		
+		response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+		response.setHeader("Content-Length", String.valueOf(range[1] - range[0] + 1));
+		return true;
+	}
+	
+	private void writeFile(File file, long[] range, HttpServletResponse response) throws IOException {
+		long length = file.length();
+		long position = 0;
+		long count = length;
+		if (range != null) {
+			if (!writeRangeHeaders(range, length, response)) {
+				return;
+			}
+			position = range[0];
+			count = range[1] - range[0] + 1;
+		} else {
+			response.setHeader("Content-Length", String.valueOf(length));
+		}
+		
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			while (count > 0) {
+				long transferred = channel.transferTo(position, count, out);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+				count -= transferred;
+			}
+		}
+		finally {
+			in.close();
+		}
+		
+		response.flushBuffer();
+	}
 }
@@ -9,6 +9,7 @@
  */
 package org.openmrs.module.webservices.rest.web.v1_0.controller.openmrs1_9;
 
+import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
 import org.openmrs.api.DatatypeService;
 import org.openmrs.api.db.ClobDatatypeStorage;
@@ -25,12 +26,16 @@ import org.springframework.web.multipart.MultipartFile;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.Reader;
 
 @Controller
 @RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/clobdata")
 public class ClobDatatypeStorageController {
 	
+	private static final int BUFFER_SIZE = 8192;
+	
 	@Autowired
 	private DatatypeService datatypeService;
 	
@@ -40,12 +45,32 @@ public class ClobDatatypeStorageController {
 	        throws IOException {
 		ClobDatatypeStorage clobData = new ClobDatatypeStorage();
 		String encoding = request.getHeader("Content-Encoding");
-		clobData.setValue(IOUtils.toString(file.getInputStream(), encoding));
+		clobData.setValue(readValue(file, encoding));
 		clobData = datatypeService.saveClobDatatypeStorage(clobData);
 		response.setStatus(HttpServletResponse.SC_CREATED);
 		return clobData.getUuid();
 	}
 	
+	/**
+	 * Reads the uploaded file in fixed-size chunks into a buffer sized for the whole value, so that
+	 * the value is copied only once on its way to the storage.
+	 */
+	private String readValue(MultipartFile file, String encoding) throws IOException {
+		Reader reader = new InputStreamReader(file.getInputStream(), Charsets.toCharset(encoding));
+		try {
+			StringBuilder value = new StringBuilder((int) Math.min(file.getSize(), Integer.MAX_VALUE - 8));
+			char[] buffer = new char[BUFFER_SIZE];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				value.append(buffer, 0, read);
+			}
+			return value.toString();
+		}
+		finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+	
 	@RequestMapping(method = RequestMethod.GET, value = "/{uuid}")
 	public void retrieve(@PathVariable("uuid") String uuid, HttpServletRequest request, HttpServletResponse response)
 	        throws Exception {
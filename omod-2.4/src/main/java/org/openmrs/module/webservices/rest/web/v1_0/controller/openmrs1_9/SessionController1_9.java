@@ -19,6 +19,7 @@ import org.openmrs.module.webservices.rest.SimpleObject;
 import org.openmrs.module.webservices.rest.web.ConversionUtil;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.api.RestService;
+import org.openmrs.module.webservices.rest.web.api.impl.SessionSnapshotAdvice;
 import org.openmrs.module.webservices.rest.web.representation.CustomRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.Representation;
 import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
@@ -54,15 +55,45 @@ public class SessionController1_9 extends BaseRestController {
 
 	public static final String USER_CUSTOM_REP = "(uuid,display,username,systemId,userProperties,person:(uuid,display),privileges:(uuid,display,name),roles:(uuid,display,name),links)";
 
+	/**
+	 * The name of the HTTP session attribute holding the cached {@link SessionSnapshot}
+	 */
+	private static final String SESSION_SNAPSHOT_ATTRIBUTE = SessionController1_9.class.getName() + ".snapshot";
+
 	@Autowired
 	RestService restService;
 
 	/**
-	 * Tells the user whether they are authenticated and provides details on the logged-in user
+	 * Tells the user whether they are authenticated and provides details on the logged-in user.
+	 * <p>
+	 * The details are cached in the HTTP session until the user, locale or session location of the
+	 * session changes or any user, role, person, provider or the allowed locales are changed.
+	 * </p>
 	 */
 	@RequestMapping(method = RequestMethod.GET)
 	@ResponseBody
-	public Object get() {
+	public Object get(HttpServletRequest request) {
+		HttpSession httpSession = request.getSession(false);
+		if (httpSession == null) {
+			return get();
+		}
+
+		// the key is determined before rendering so that changes made meanwhile are not missed
+		String key = getSnapshotKey();
+		Object snapshot = httpSession.getAttribute(SESSION_SNAPSHOT_ATTRIBUTE);
+		if (snapshot instanceof SessionSnapshot && ((SessionSnapshot) snapshot).key.equals(key)) {
+			return ((SessionSnapshot) snapshot).session;
+		}
+
+		SimpleObject session = get();
+		httpSession.setAttribute(SESSION_SNAPSHOT_ATTRIBUTE, new SessionSnapshot(key, session));
+		return session;
+	}
+
+	/**
+	 * Tells the user whether they are authenticated and provides details on the logged-in user
+	 */
+	public SimpleObject get() {
 		boolean authenticated = Context.isAuthenticated();
 		SimpleObject session = new SimpleObject();
 		session.add("authenticated", authenticated);
@@ -115,7 +146,7 @@ public class SessionController1_9 extends BaseRestController {
 				request.getSession().setAttribute("emrContext.sessionLocationId", location.getId());
 			}
 		}
-		return get();
+		return get(request);
 	}
 
 	/**
@@ -129,8 +160,11 @@ public class SessionController1_9 extends BaseRestController {
 	public void delete(HttpServletRequest request) {
 		Context.logout();
 		HttpSession session = request.getSession(false);
-		if (session != null && request.isRequestedSessionIdValid()) {
-			session.invalidate();
+		if (session != null) {
+			session.removeAttribute(SESSION_SNAPSHOT_ATTRIBUTE);
+			if (request.isRequestedSessionIdValid()) {
+				session.invalidate();
+			}
 		}
 	}
 
@@ -161,4 +195,31 @@ public class SessionController1_9 extends BaseRestController {
 		}
 		return currentProvider;
 	}
+
+	private String getSnapshotKey() {
+		StringBuilder key = new StringBuilder().append(SessionSnapshotAdvice.getVersion()).append('|')
+		        .append(Context.getLocale());
+		if (Context.isAuthenticated()) {
+			Location location = Context.getUserContext().getLocation();
+			key.append('|').append(Context.getAuthenticatedUser().getUserId()).append('|')
+			        .append(location != null ? location.getLocationId() : null);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * The rendered session, it is not serializable on purpose since it must not outlive the
+	 * application
+	 */
+	private static class SessionSnapshot {
+
+		private final String key;
+
+		private final SimpleObject session;
+
+		SessionSnapshot(String key, SimpleObject session) {
+			this.key = key;
+			this.session = session;
+		}
+	}
 }
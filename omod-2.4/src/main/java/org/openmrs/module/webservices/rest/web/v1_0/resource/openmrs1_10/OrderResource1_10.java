@@ -31,7 +31,7 @@ import org.openmrs.module.webservices.rest.web.representation.FullRepresentation
 import org.openmrs.module.webservices.rest.web.representation.Representation;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
-import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
+import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingSubclassHandler;
 import org.openmrs.module.webservices.rest.web.resource.impl.NeedsPaging;
 import org.openmrs.module.webservices.rest.web.response.InvalidSearchException;
 import org.openmrs.module.webservices.rest.web.response.ObjectNotFoundException;
@@ -261,21 +261,22 @@ public class OrderResource1_10 extends OrderResource1_8 {
 				}
 			}
 			
+			// if the user indicated a specific type, and we couldn't delegate to a subclass handler above, query that type
 			String status = context.getRequest().getParameter("status");
-			List<Order> orders = OrderUtil.getOrders(patient, careSetting, orderType, status, asOfDate,
-			    context.getIncludeAll());
-			// if the user indicated a specific type, and we couldn't delegate to a subclass handler above, filter here
+			Class<? extends Order> orderClass = null;
 			if (context.getType() != null) {
-				filterByType(orders, context.getType());
+				DelegatingSubclassHandler<Order, ? extends Order> handler = getSubclassHandler(context.getType());
+				if (handler == null) {
+					// a type without a handler, e.g. the order type itself, is filtered here
+					List<Order> orders = OrderUtil.getOrders(patient, careSetting, orderType, status, asOfDate,
+					    sortParam, context.getIncludeAll());
+					filterByType(orders, context.getType());
+					return new NeedsPaging<Order>(orders, context);
+				}
+				orderClass = handler.getSubclassHandled();
 			}
 			
-			if (StringUtils.isNotBlank(sortParam)) {
-				List<Order> sortedOrder = sortOrdersBasedOnDateActivatedOrDateStopped(orders, sortParam, status);
-				return new NeedsPaging<Order>(sortedOrder, context);
-			}
-			else {
-				return new NeedsPaging<Order>(orders, context);
-			}
+			return OrderUtil.getOrders(orderClass, patient, careSetting, orderType, status, asOfDate, sortParam, context);
 		} else {
 			throw new InvalidSearchException("Please provide patientUuid in the patient parameter");
 		}
@@ -291,6 +292,10 @@ public class OrderResource1_10 extends OrderResource1_8 {
 		return order.getDateActivated() != null ? order.getDateActivated() : order.getDateCreated();
 	}
 	
+	/**
+	 * @deprecated the orders returned by {@link #doSearch(RequestContext)} are sorted by the database
+	 */
+	@Deprecated
 	public List<Order> sortOrdersBasedOnDateActivatedOrDateStopped(List<Order> orders, final String sortOrder,
 	        final String status) {
 		List<Order> sortedList = new ArrayList<Order>(orders);
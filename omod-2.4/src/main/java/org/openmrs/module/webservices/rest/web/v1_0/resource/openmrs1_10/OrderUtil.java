@@ -9,17 +9,20 @@
  */
 package org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs1_10;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.Predicate;
+import org.apache.commons.lang.StringUtils;
 import org.openmrs.CareSetting;
 import org.openmrs.Order;
 import org.openmrs.OrderType;
 import org.openmrs.Patient;
-import org.openmrs.api.OrderService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.api.RestHelperService;
+import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 
 public class OrderUtil {
 
@@ -41,34 +44,73 @@ public class OrderUtil {
 	 */
 	public static List<Order> getOrders(Patient patient, CareSetting careSetting, OrderType orderType, String status,
 	        Date asOfDate, boolean includeVoided) {
-		
-		OrderService os = Context.getOrderService();
-		if (!INACTIVE.equals(status) && !ANY.equals(status)) {
-			return os.getActiveOrders(patient, orderType, careSetting, asOfDate);
+		return getOrders(null, patient, careSetting, orderType, status, asOfDate, includeVoided, null, null, null);
+	}
+	
+	/**
+	 * Gets all orders of the specified patient in the specified status sorted by date, the sorting
+	 * is done by the database
+	 * 
+	 * @param patient
+	 * @param careSetting
+	 * @param orderType
+	 * @param status
+	 * @param asOfDate
+	 * @param sortOrder asc or desc to sort the orders by date, blank to not sort them
+	 * @param includeVoided
+	 * @return the orders
+	 */
+	public static List<Order> getOrders(Patient patient, CareSetting careSetting, OrderType orderType, String status,
+	        Date asOfDate, String sortOrder, boolean includeVoided) {
+		return getOrders(null, patient, careSetting, orderType, status, asOfDate, includeVoided,
+		    StringUtils.isNotBlank(sortOrder) ? sortOrder : null, null, null);
+	}
+	
+	/**
+	 * Gets a page of the orders of the specified patient in the specified status, the sorting and
+	 * paging is done by the database
+	 * 
+	 * @param orderClass the class of the orders to return or null for any order
+	 * @param patient
+	 * @param careSetting
+	 * @param orderType
+	 * @param status
+	 * @param asOfDate
+	 * @param sortOrder asc or desc to sort the orders by date, blank to not sort them
+	 * @param context the context to get the page and includeAll parameter from
+	 * @return the page of orders
+	 */
+	public static PageableResult getOrders(Class<? extends Order> orderClass, Patient patient, CareSetting careSetting,
+	        OrderType orderType, String status, Date asOfDate, String sortOrder, RequestContext context) {
+		int limit = context.getLimit();
+		List<Order> orders = getOrders(orderClass, patient, careSetting, orderType, status, asOfDate,
+		    context.getIncludeAll(), StringUtils.isNotBlank(sortOrder) ? sortOrder : null, context.getStartIndex(),
+		    limit + 1);
+		boolean hasMore = orders.size() > limit;
+		if (hasMore) {
+			orders = orders.subList(0, limit);
 		}
-		
-		if (INACTIVE.equals(status)) {
-			includeVoided = false;
+		return new AlreadyPaged<Order>(context, orders, hasMore);
+	}
+	
+	private static List<Order> getOrders(Class<? extends Order> orderClass, Patient patient, CareSetting careSetting,
+	        OrderType orderType, String status, Date asOfDate, boolean includeVoided, String sortOrder,
+	        Integer firstResult, Integer maxResults) {
+		if (patient == null) {
+			throw new IllegalArgumentException("Patient is required");
 		}
-		
-		List<Order> orders = os.getOrders(patient, careSetting, orderType, includeVoided);
-		if (INACTIVE.equals(status)) {
-			removeActiveOrders(orders, asOfDate);
+		// same as OrderService#getOrders
+		if ((INACTIVE.equals(status) || ANY.equals(status)) && careSetting == null) {
+			throw new IllegalArgumentException("CareSetting is required");
 		}
 		
-		return orders;
-	}
-	
-	private static void removeActiveOrders(List<Order> orders, final Date asOfDate) {
+		List<OrderType> orderTypes = new ArrayList<OrderType>();
+		if (orderType != null) {
+			orderTypes.add(orderType);
+			orderTypes.addAll(Context.getOrderService().getSubtypes(orderType, true));
+		}
 		
-		CollectionUtils.filter(orders, new Predicate() {
-			
-			@Override
-			public boolean evaluate(Object object) {
-				Order order = (Order) object;
-				return order.isDiscontinued(asOfDate) || order.isExpired(asOfDate);
-			}
-			
-		});
+		return Context.getService(RestHelperService.class).getOrders(orderClass, patient, careSetting, orderTypes,
+		    status, asOfDate, includeVoided, sortOrder, firstResult, maxResults);
 	}
 }
@@ -38,6 +38,7 @@ import org.openmrs.module.webservices.rest.web.annotation.PropertyGetter;
 import org.openmrs.module.webservices.rest.web.annotation.PropertySetter;
 import org.openmrs.module.webservices.rest.web.annotation.RepHandler;
 import org.openmrs.module.webservices.rest.web.annotation.Resource;
+import org.openmrs.module.webservices.rest.web.api.RestHelperService;
 import org.openmrs.module.webservices.rest.web.representation.DefaultRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.FullRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.NamedRepresentation;
@@ -47,6 +48,7 @@ import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingCrudResource;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
+import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
 import org.openmrs.module.webservices.rest.web.resource.impl.NeedsPaging;
 import org.openmrs.module.webservices.rest.web.response.ConversionException;
 import org.openmrs.module.webservices.rest.web.response.ResourceDoesNotSupportOperationException;
@@ -550,15 +552,11 @@ public class ConceptResource1_8 extends DelegatingCrudResource<Concept> {
 	@Override
 	protected PageableResult doSearch(RequestContext context) {
 		ConceptService service = Context.getConceptService();
-		Integer startIndex = null;
-		Integer limit = null;
-		boolean canPage = true;
 		
 		// Collect information for answerTo and memberOf query parameters
 		String answerToUuid = context.getRequest().getParameter("answerTo");
 		String memberOfUuid = context.getRequest().getParameter("memberOf");
 		Concept answerTo = null;
-		List<Concept> memberOfList = null;
 		if (StringUtils.isNotBlank(answerToUuid)) {
 			try {
 				answerTo = (Concept) ConversionUtil.convert(answerToUuid, Concept.class);
@@ -568,46 +566,83 @@ public class ConceptResource1_8 extends DelegatingCrudResource<Concept> {
 			}
 		}
 		
+		// get the user's locales...and then convert that from a set to a list
+		List<Locale> locales = new ArrayList<Locale>(LocaleUtility.getLocalesInOrder());
+		
 		if (StringUtils.isNotBlank(memberOfUuid)) {
 			Concept memberOf = service.getConceptByUuid(memberOfUuid);
-			memberOfList = service.getConceptsByConceptSet(memberOf);
-			canPage = false; // ConceptService does not support memberOf searches, so paging must be deferred.
-		}
-		
-		// Only set startIndex and limit if we can return paged results
-		if (canPage) {
-			startIndex = context.getStartIndex();
-			limit = context.getLimit();
+			if (memberOf == null) {
+				return new EmptySearchResult();
+			}
+			return searchConceptSetMembers(context, memberOf, answerTo, locales);
 		}
 		
-		List<ConceptSearchResult> searchResults;
-		
-		// get the user's locales...and then convert that from a set to a list
-		List<Locale> locales = new ArrayList<Locale>(LocaleUtility.getLocalesInOrder());
-		
-		searchResults = service.getConcepts(context.getParameter("q"), locales, context.getIncludeAll(), null, null, null,
-		    null, answerTo, startIndex, limit);
+		Integer startIndex = context.getStartIndex();
+		Integer limit = context.getLimit();
+		List<ConceptSearchResult> searchResults = service.getConcepts(context.getParameter("q"), locales,
+		    context.getIncludeAll(), null, null, null, null, answerTo, startIndex, limit);
 		
 		// convert search results into list of concepts
 		List<Concept> results = new ArrayList<Concept>(searchResults.size());
 		for (ConceptSearchResult csr : searchResults) {
-			// apply memberOf filter
-			if (memberOfList == null || memberOfList.contains(csr.getConcept()))
-				results.add(csr.getConcept());
+			results.add(csr.getConcept());
 		}
 		
-		PageableResult result = null;
-		if (canPage) {
-			Integer count = service.getCountOfConcepts(context.getParameter("q"), locales, false,
-			    Collections.<ConceptClass> emptyList(), Collections.<ConceptClass> emptyList(),
-			    Collections.<ConceptDatatype> emptyList(), Collections.<ConceptDatatype> emptyList(), answerTo);
-			boolean hasMore = count > startIndex + limit;
-			result = new AlreadyPaged<Concept>(context, results, hasMore, Long.valueOf(count));
-		} else {
-			result = new NeedsPaging<Concept>(results, context);
+		Integer count = service.getCountOfConcepts(context.getParameter("q"), locales, false,
+		    Collections.<ConceptClass> emptyList(), Collections.<ConceptClass> emptyList(),
+		    Collections.<ConceptDatatype> emptyList(), Collections.<ConceptDatatype> emptyList(), answerTo);
+		boolean hasMore = count > startIndex + limit;
+		return new AlreadyPaged<Concept>(context, results, hasMore, Long.valueOf(count));
+	}
+	
+	/**
+	 * Searches the members of a concept set. ConceptService does not support memberOf searches, so
+	 * the ids of the members are loaded into a set first. Without a query, the page of members is
+	 * loaded by id, otherwise the search results are fetched in batches and filtered by the ids
+	 * until the requested page is complete.
+	 */
+	private PageableResult searchConceptSetMembers(RequestContext context, Concept memberOf, Concept answerTo,
+	        List<Locale> locales) {
+		ConceptService service = Context.getConceptService();
+		RestHelperService restHelperService = Context.getService(RestHelperService.class);
+		Set<Integer> memberIds = restHelperService.getConceptSetMemberIds(memberOf, context.getIncludeAll());
+		int startIndex = context.getStartIndex();
+		int limit = context.getLimit();
+		String query = context.getParameter("q");
+		
+		if (StringUtils.isBlank(query) && answerTo == null) {
+			List<Integer> ids = new ArrayList<Integer>(memberIds);
+			List<Integer> pageIds = ids.subList(Math.min(startIndex, ids.size()), Math.min(startIndex + limit, ids.size()));
+			return new AlreadyPaged<Concept>(context, restHelperService.getConcepts(pageIds), ids.size() > startIndex
+			        + limit, Long.valueOf(ids.size()));
 		}
 		
-		return result;
+		boolean countAll = Boolean.parseBoolean(context.getParameter("totalCount"));
+		int count = startIndex + limit + 1;
+		List<Concept> members = new ArrayList<Concept>();
+		int offset = 0;
+		while (countAll || members.size() < count) {
+			List<ConceptSearchResult> batch = service.getConcepts(query, locales, context.getIncludeAll(), null, null,
+			    null, null, answerTo, offset, count);
+			for (ConceptSearchResult csr : batch) {
+				if (memberIds.contains(csr.getConcept().getConceptId())) {
+					members.add(csr.getConcept());
+				}
+			}
+			if (batch.size() < count) {
+				break;
+			}
+			offset += batch.size();
+		}
+		
+		List<Concept> results = members.subList(Math.min(startIndex, members.size()),
+		    Math.min(startIndex + limit, members.size()));
+		boolean hasMore = members.size() > startIndex + limit;
+		if (countAll) {
+			return new AlreadyPaged<Concept>(context, new ArrayList<Concept>(results), hasMore, Long.valueOf(members
+			        .size()));
+		}
+		return new AlreadyPaged<Concept>(context, new ArrayList<Concept>(results), hasMore);
 	}
 	
 	@Override
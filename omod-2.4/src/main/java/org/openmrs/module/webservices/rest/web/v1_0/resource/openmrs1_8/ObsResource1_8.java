@@ -11,6 +11,7 @@ package org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs1_8;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -22,6 +23,7 @@ import java.util.Set;
 
 import javax.xml.bind.DatatypeConverter;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.openmrs.Concept;
 import org.openmrs.ConceptNumeric;
@@ -572,10 +574,15 @@ public class ObsResource1_8 extends DataDelegatingCrudResource<Obs> implements U
 		
 		ObsService obsService = Context.getObsService();
 		
-		ComplexData complexData = new ComplexData(file.getOriginalFilename(), new ByteArrayInputStream(file.getBytes()));
-		obs.setComplexData(complexData);
-		
-		obs = obsService.saveObs(obs, null);
+		// stream the upload to the handler instead of copying it into memory
+		InputStream data = file.getInputStream();
+		try {
+			obs.setComplexData(new ComplexData(file.getOriginalFilename(), data));
+			obs = obsService.saveObs(obs, null);
+		}
+		finally {
+			IOUtils.closeQuietly(data);
+		}
 		
 		return (SimpleObject) ConversionUtil.convertToRepresentation(obs, Representation.DEFAULT);
 	}
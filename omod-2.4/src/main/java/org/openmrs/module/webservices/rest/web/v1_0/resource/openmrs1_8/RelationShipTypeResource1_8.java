@@ -16,6 +16,7 @@ import io.swagger.models.properties.IntegerProperty;
 import io.swagger.models.properties.StringProperty;
 import org.openmrs.RelationshipType;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.LocalizationCache;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.annotation.PropertyGetter;
@@ -221,13 +222,7 @@ public class RelationShipTypeResource1_8 extends MetadataDelegatingCrudResource<
 	}
 	
 	protected String getLocalization(String uuid, String type) {
-		String code = "ui.i18n.RelationshipType" + "." + type + "." + uuid;
-		String localization = Context.getMessageSourceService().getMessage(code);
-		if (localization == null || localization.equals(code)) {
-			return null;
-		} else {
-			return localization;
-		}
+		return LocalizationCache.getMessage("ui.i18n.RelationshipType" + "." + type + "." + uuid);
 	}
 	
 	/**
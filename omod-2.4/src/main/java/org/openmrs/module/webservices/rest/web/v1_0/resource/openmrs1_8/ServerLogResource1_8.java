@@ -11,6 +11,8 @@ package org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs1_8;
 
 import io.swagger.models.Model;
 import io.swagger.models.ModelImpl;
+import io.swagger.models.properties.BooleanProperty;
+import io.swagger.models.properties.LongProperty;
 import io.swagger.models.properties.MapProperty;
 import org.openmrs.module.webservices.helper.ServerLogActionWrapper;
 import org.openmrs.module.webservices.helper.ServerLogActionWrapper1_8;
@@ -39,15 +41,15 @@ public class ServerLogResource1_8 extends BaseDelegatingResource<ServerLogAction
 	
 	@Override
 	public SimpleObject getAll(RequestContext context) throws ResponseException {
-		SimpleObject rest = new SimpleObject();
-		rest.put("serverLog", serverLogActionWrapper.getServerLogs());
-		return rest;
+		return serverLogActionWrapper.getServerLogs(context);
 	}
 	
 	@Override
 	public Model getGETModel(Representation rep) {
 		return ((ModelImpl) super.getGETModel(rep))
-		        .property("serverLog", new MapProperty());
+		        .property("serverLog", new MapProperty())
+		        .property("lastSequence", new LongProperty())
+		        .property("hasMore", new BooleanProperty());
 	}
 	
 	@Override
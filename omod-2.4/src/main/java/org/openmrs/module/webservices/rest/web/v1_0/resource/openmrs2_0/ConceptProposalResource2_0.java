@@ -25,14 +25,16 @@ import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.annotation.PropertyGetter;
 import org.openmrs.module.webservices.rest.web.annotation.Resource;
+import org.openmrs.module.webservices.rest.web.api.RestHelperService;
 import org.openmrs.module.webservices.rest.web.representation.DefaultRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.FullRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.RefRepresentation;
 import org.openmrs.module.webservices.rest.web.representation.Representation;
+import org.openmrs.module.webservices.rest.web.resource.api.Converter;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingCrudResource;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
-import org.openmrs.module.webservices.rest.web.resource.impl.NeedsPaging;
 import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
 import org.openmrs.module.webservices.rest.web.response.ResourceDoesNotSupportOperationException;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
@@ -44,15 +46,12 @@ import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * {@link Resource} for {@link ConceptProposal}, supporting standard CRUD operations
@@ -61,6 +60,20 @@ import java.util.stream.Collectors;
 		"2.0.* - 9.*" })
 public class ConceptProposalResource2_0 extends DelegatingCrudResource<ConceptProposal> {
 
+	/**
+	 * The occurrences of the original texts of the page of proposals converted by this instance, or
+	 * null to count them for each proposal
+	 */
+	private final Map<String, Long> occurrencesByOriginalText;
+
+	public ConceptProposalResource2_0() {
+		this(null);
+	}
+
+	private ConceptProposalResource2_0(Map<String, Long> occurrencesByOriginalText) {
+		this.occurrencesByOriginalText = occurrencesByOriginalText;
+	}
+
 	@Override
 	public DelegatingResourceDescription getRepresentationDescription(Representation rep) {
 		if (rep instanceof DefaultRepresentation) {
@@ -157,8 +170,10 @@ public class ConceptProposalResource2_0 extends DelegatingCrudResource<ConceptPr
 
 	@PropertyGetter("occurrences")
 	public Integer getOccurrencesProperty(ConceptProposal proposal) {
-		Map<String, List<ConceptProposal>> proposalsMap = getProposalsMapByOriginalText(false);
-		return proposalsMap.get(proposal.getOriginalText()).size();
+		if (occurrencesByOriginalText != null && occurrencesByOriginalText.containsKey(proposal.getOriginalText())) {
+			return occurrencesByOriginalText.get(proposal.getOriginalText()).intValue();
+		}
+		return Context.getService(RestHelperService.class).getConceptProposalCount(proposal.getOriginalText()).intValue();
 	}
 
 	@PropertyGetter("display")
@@ -214,39 +229,50 @@ public class ConceptProposalResource2_0 extends DelegatingCrudResource<ConceptPr
 
 	@Override
 	protected PageableResult doGetAll(RequestContext context) throws ResponseException {
-		return new NeedsPaging<>(
-				getAllProposalsWithUniqueOriginalTexts(Boolean.valueOf(context.getParameter("includeCompleted"))), context);
+		return getProposalsWithUniqueOriginalTexts(context, null, false);
 	}
 
 	@Override
 	protected PageableResult doSearch(RequestContext context) {
+		return getProposalsWithUniqueOriginalTexts(context, context.getParameter("sortOn"),
+				"desc".equals(context.getParameter("sortOrder")));
+	}
+
+	/**
+	 * Gets a page of the proposals with unique original texts, the grouping, sorting and paging is
+	 * done by the database which also counts the occurrences rendered for the proposals
+	 */
+	private PageableResult getProposalsWithUniqueOriginalTexts(RequestContext context, String sortOn, boolean descending) {
 		boolean includeCompleted = Boolean.parseBoolean(context.getParameter("includeCompleted"));
-		String sortOrder = context.getParameter("sortOrder");
-		String sortOn = context.getParameter("sortOn");
-
-		List<ConceptProposal> sortedProposals = getAllProposalsWithUniqueOriginalTexts(includeCompleted);
-
-		if (sortOn != null) {
-			if (sortOn.equals("originalText")) {
-				sortedProposals.sort(Comparator.comparing(ConceptProposal::getOriginalText));
-				if (sortOrder != null && sortOrder.equals("desc")) {
-					Collections.reverse(sortedProposals);
-				}
-			} else if (sortOn.equals("occurrences")) {
-				Map<String, List<ConceptProposal>> proposalsMap = getProposalsMapByOriginalText(includeCompleted);
-				sortedProposals = proposalsMap
-						.entrySet()
-						.stream()
-						.sorted(Comparator.comparingInt(list -> list.getValue().size()))
-						.map(entry -> entry.getValue().get(0))
-						.collect(Collectors.toList());
-				if (sortOrder != null && sortOrder.equals("desc")) {
-					Collections.reverse(sortedProposals);
-				}
-			}
+		RestHelperService restHelperService = Context.getService(RestHelperService.class);
+		int limit = context.getLimit();
+		Map<ConceptProposal, Long> proposalsWithOccurrences = restHelperService.getConceptProposalsWithUniqueOriginalTexts(
+				includeCompleted, sortOn, descending, context.getStartIndex(), limit + 1);
+		List<ConceptProposal> proposals = new ArrayList<>(proposalsWithOccurrences.keySet());
+		boolean hasMore = proposals.size() > limit;
+		if (hasMore) {
+			proposals = proposals.subList(0, limit);
+		}
+
+		Map<String, Long> occurrences = new HashMap<>();
+		for (Map.Entry<ConceptProposal, Long> proposal : proposalsWithOccurrences.entrySet()) {
+			occurrences.put(proposal.getKey().getOriginalText(), proposal.getValue());
 		}
 
-		return new NeedsPaging<>(sortedProposals, context);
+		Long totalCount = null;
+		if (Boolean.parseBoolean(context.getParameter("totalCount"))) {
+			totalCount = restHelperService.getConceptProposalOriginalTextCount(includeCompleted);
+		}
+		final PageableResult page = new AlreadyPaged<>(context, proposals, hasMore, totalCount);
+		// the page is converted by a resource which knows the occurrences counted along with it
+		final ConceptProposalResource2_0 converter = new ConceptProposalResource2_0(occurrences);
+		return new PageableResult() {
+
+			@Override
+			public SimpleObject toSimpleObject(Converter<?> preferredConverter) throws ResponseException {
+				return page.toSimpleObject(converter);
+			}
+		};
 	}
 
 	@Override
@@ -381,31 +407,4 @@ public class ConceptProposalResource2_0 extends DelegatingCrudResource<ConceptPr
 		}
 	}
 
-	private List<ConceptProposal> getAllProposalsWithUniqueOriginalTexts(Boolean includeCompleted) {
-		Map<String, List<ConceptProposal>> proposalsMap = getProposalsMapByOriginalText(includeCompleted);
-		List<ConceptProposal> proposalsWithUniqueOriginalTexts = new ArrayList<>();
-
-		proposalsMap.forEach((originalText, proposals) -> proposalsWithUniqueOriginalTexts.add(proposals.get(0)));
-
-		return proposalsWithUniqueOriginalTexts;
-	}
-
-	private Map<String, List<ConceptProposal>> getProposalsMapByOriginalText(Boolean includeCompleted) {
-		List<ConceptProposal> proposals = Context.getConceptService().getAllConceptProposals(includeCompleted);
-		Map<String, List<ConceptProposal>> map = new HashMap<>();
-
-		for (ConceptProposal proposal : proposals) {
-			String originalText = proposal.getOriginalText();
-			if (map.containsKey(originalText)) {
-				map.get(originalText).add(proposal);
-			} else {
-				List<ConceptProposal> list = new ArrayList<>();
-				list.add(proposal);
-				map.put(originalText, list);
-			}
-		}
-
-		return map;
-	}
-
 }
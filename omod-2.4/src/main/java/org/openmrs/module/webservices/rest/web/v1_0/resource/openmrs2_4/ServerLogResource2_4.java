@@ -33,9 +33,7 @@ public class ServerLogResource2_4 extends BaseDelegatingResource<ServerLogAction
 
 	@Override
 	public SimpleObject getAll(RequestContext context) throws ResponseException {
-		SimpleObject rest = new SimpleObject();
-		rest.put("serverLog", serverLogActionWrapper.getServerLogs());
-		return rest;
+		return serverLogActionWrapper.getServerLogs(context);
 	}
 
 	@Override
@@ -11,12 +11,12 @@
 package org.openmrs.module.webservices.rest.web.v1_0.search.openmrs1_11;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
 import org.openmrs.Patient;
+import org.openmrs.api.PatientService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestConstants;
@@ -24,8 +24,8 @@ import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchConfig;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchQuery;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
-import org.openmrs.module.webservices.rest.web.resource.impl.NeedsPaging;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
 import org.springframework.stereotype.Component;
 
@@ -49,23 +49,51 @@ public class LivingPatientSearchHandler1_11 implements SearchHandler {
 		String searchPhrase = context.getParameter("q");
 		Boolean includeDead = StringUtils.isNotBlank(includeDeadStr) ? Boolean.parseBoolean(includeDeadStr) : false;
 		if (StringUtils.isNotBlank(searchPhrase)) {
-			List<Patient> allPatients = Context.getPatientService().getPatients(searchPhrase);
-			Boolean resultsExist = allPatients != null && !allPatients.isEmpty();
-			if (!resultsExist) {
-				return new EmptySearchResult();
-			}
+			PatientService patientService = Context.getPatientService();
+			int startIndex = context.getStartIndex();
+			int limit = context.getLimit();
+			
+			// fetch one more patient than requested to find out whether there are more
+			List<Patient> patients;
 			if (includeDead) {
-				return new NeedsPaging<Patient>(allPatients, context);
+				patients = patientService.getPatients(searchPhrase, startIndex, limit + 1);
 			} else {
-				List<Patient> livingPatients = new ArrayList<Patient>();
-				for (Patient patient : allPatients) {
-					if (!patient.isDead()) {
-						livingPatients.add(patient);
+				patients = getLivingPatients(patientService, searchPhrase, startIndex + limit + 1);
+				patients = patients.subList(Math.min(startIndex, patients.size()), patients.size());
+			}
+			
+			boolean hasMore = patients.size() > limit;
+			if (hasMore) {
+				patients = patients.subList(0, limit);
+			}
+			return new AlreadyPaged<Patient>(context, new ArrayList<Patient>(patients), hasMore);
+		}
+		return new EmptySearchResult();
+	}
+	
+	/**
+	 * Pages through the matching patients in batches of the given number of patients until that
+	 * many living patients have been found or there are no more matches.
+	 * 
+	 * @return the first living patients matching the search phrase, up to the given number
+	 */
+	private List<Patient> getLivingPatients(PatientService patientService, String searchPhrase, int count) {
+		List<Patient> livingPatients = new ArrayList<Patient>(count);
+		int offset = 0;
+		while (true) {
+			List<Patient> batch = patientService.getPatients(searchPhrase, offset, count);
+			for (Patient patient : batch) {
+				if (!patient.isDead()) {
+					livingPatients.add(patient);
+					if (livingPatients.size() == count) {
+						return livingPatients;
 					}
 				}
-				return new NeedsPaging<Patient>(livingPatients, context);
 			}
+			if (batch.size() < count) {
+				return livingPatients;
+			}
+			offset += batch.size();
 		}
-		return new EmptySearchResult();
 	}
 }
@@ -12,17 +12,17 @@ package org.openmrs.module.webservices.rest.web.v1_0.search.openmrs1_8;
 import org.openmrs.Concept;
 import org.openmrs.Obs;
 import org.openmrs.Patient;
-import org.openmrs.Person;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.api.RestHelperService;
 import org.openmrs.module.webservices.rest.web.api.RestService;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchConfig;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchQuery;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
-import org.openmrs.module.webservices.rest.web.resource.impl.NeedsPaging;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
 import org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs1_8.ConceptResource1_8;
 import org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs1_8.PatientResource1_8;
@@ -30,8 +30,6 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -83,46 +81,55 @@ public class ObservationSearchHandler1_8 implements SearchHandler {
 			Patient patient = ((PatientResource1_8) Context.getService(RestService.class).getResourceBySupportedClass(
 			    Patient.class)).getByUniqueId(patientUuid);
 			
-			List<Concept> questionConcepts = new ArrayList<Concept>();
-			List<Concept> answerConcepts = new ArrayList<Concept>();
-			
 			if (patient != null) {
+				RestHelperService restHelperService = Context.getService(RestHelperService.class);
 				
-				if (!questionConceptUuids.isEmpty()) {
-					for (String conceptUuid : questionConceptUuids) {
-						questionConcepts.add(((ConceptResource1_8) Context.getService(RestService.class)
-						        .getResourceBySupportedClass(Concept.class)).getByUniqueId(conceptUuid));
-					}
-				}
+				// concepts may be referenced by mapping (SOURCE:CODE) as well as by uuid
+				questionConceptUuids = resolveConceptUuids(questionConceptUuids);
+				answerConceptUuids = resolveConceptUuids(answerConceptUuids);
 				
-				if (!answerConceptUuids.isEmpty()) {
-					for (String conceptUuid : answerConceptUuids) {
-						answerConcepts.add(((ConceptResource1_8) Context.getService(RestService.class)
-						        .getResourceBySupportedClass(Concept.class)).getByUniqueId(conceptUuid));
-					}
-				}
+				// fetch one more obs than requested to find out whether there are more
+				int limit = context.getLimit();
+				List<Obs> obs = restHelperService.getObservations(patient, questionConceptUuids, answerConceptUuids,
+				    groupingConceptUuids, context.getStartIndex(), limit + 1);
 				
-				List<Obs> obs = Context.getObsService().getObservations(Collections.singletonList((Person) patient), null,
-				    !questionConcepts.isEmpty() ? questionConcepts : null,
-				    !answerConcepts.isEmpty() ? answerConcepts : null, null,
-				    null, null, null, null, null, null, false);
-				
-				// limit by grouping concept, if present... this could potentially be a heavy call if not limiting by question or answer conept
-				if (!groupingConceptUuids.isEmpty()) {
-					Iterator<Obs> i = obs.iterator();
-					while (i.hasNext()) {
-						Obs o = i.next();
-						if (o.getObsGroup() == null
-						        || !groupingConceptUuids.contains(o.getObsGroup().getConcept().getUuid())) {
-							i.remove();
-						}
-					}
+				boolean hasMore = obs.size() > limit;
+				if (hasMore) {
+					obs = obs.subList(0, limit);
 				}
 				
-				return new NeedsPaging<Obs>(obs, context);
+				Long totalCount = null;
+				if (Boolean.valueOf(context.getParameter("totalCount"))) {
+					totalCount = restHelperService.getObservationCount(patient, questionConceptUuids,
+					    answerConceptUuids, groupingConceptUuids);
+				}
+				return new AlreadyPaged<Obs>(context, obs, hasMore, totalCount);
 			}
 		}
 		
 		return new EmptySearchResult();
 	}
+	
+	/**
+	 * Resolves the given concept references through the concept resource, so that mappings are
+	 * supported, and returns the uuids of the referenced concepts. References that match no concept
+	 * are kept as they are and hence match no obs.
+	 * 
+	 * @param references the concept uuids or mappings
+	 * @return the uuids of the referenced concepts
+	 */
+	private List<String> resolveConceptUuids(List<String> references) {
+		List<String> uuids = new ArrayList<String>();
+		if (references.isEmpty()) {
+			return uuids;
+		}
+		
+		ConceptResource1_8 conceptResource = (ConceptResource1_8) Context.getService(RestService.class)
+		        .getResourceBySupportedClass(Concept.class);
+		for (String reference : references) {
+			Concept concept = conceptResource.getByUniqueId(reference);
+			uuids.add(concept != null ? concept.getUuid() : reference);
+		}
+		return uuids;
+	}
 }
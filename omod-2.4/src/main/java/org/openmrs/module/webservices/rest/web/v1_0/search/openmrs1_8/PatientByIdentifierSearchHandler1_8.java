@@ -19,6 +19,7 @@ import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchConfig;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchQuery;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
 import org.openmrs.module.webservices.rest.web.resource.impl.NeedsPaging;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
@@ -52,10 +53,16 @@ public class PatientByIdentifierSearchHandler1_8 implements SearchHandler {
 		
 		if (StringUtils.isNotBlank(identifier)) {
 			if ("start".equals(searchType)) {
+				// fetch one more patient than requested to find out whether there are more
+				int limit = context.getLimit();
 				List<Patient> patients = restHelperService.findPatientsByIdentifierStartingWith(identifier,
-				    context.getIncludeAll());
-				if (patients != null && !patients.isEmpty()) {
-					return new NeedsPaging<Patient>(patients, context);
+				    context.getIncludeAll(), context.getStartIndex(), limit + 1);
+				if (!patients.isEmpty()) {
+					boolean hasMore = patients.size() > limit;
+					if (hasMore) {
+						patients = patients.subList(0, limit);
+					}
+					return new AlreadyPaged<Patient>(context, patients, hasMore);
 				}
 			} else {
 				List<Patient> patients = Context.getPatientService().getPatients(null, identifier, null, true);
@@ -14,23 +14,23 @@ import org.openmrs.*;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.api.RestHelperService;
 import org.openmrs.module.webservices.rest.web.api.RestService;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchConfig;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchQuery;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
 import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
-import org.openmrs.module.webservices.rest.web.resource.impl.NeedsPaging;
 import org.openmrs.module.webservices.rest.web.response.ObjectNotFoundException;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
 import org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs1_8.ConceptResource1_8;
 import org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs1_8.PatientResource1_8;
-import org.openmrs.util.OpenmrsUtil;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 
@@ -86,55 +86,36 @@ public class EncounterSearchHandler1_9 implements SearchHandler {
 				Concept concept = ((ConceptResource1_8) Context.getService(RestService.class)
 				        .getResourceBySupportedClass(Concept.class)).getByUniqueId(conceptUuid);
 				if (concept != null) {
-					List<Obs> obs = Context.getObsService().getObservationsByPersonAndConcept(patient, concept);
-					List<Obs> filteredObs = new ArrayList<Obs>();
-					Iterator<Obs> obsIterator = obs.iterator();
+					List<?> valueList = null;
 					
 					// return all encounters matching obs and values, if values are provided
-					// filter out all non-matching obs
 					if (StringUtils.isNotBlank(values)) {
-						if (!StringUtils.strip(values, ",").trim().equalsIgnoreCase("")) {
-							Obs currentObs;
-							String[] valueArray = values.split(",");
-							ConceptDatatype datatype = concept.getDatatype();
-							
-							if (datatype.isNumeric()) {
-								while (obsIterator.hasNext()) {
-									currentObs = obsIterator.next();
-									if (this.isNumberInArray(currentObs.getValueNumeric(), valueArray)) {
-										filteredObs.add(currentObs);
-									}
-								}
-							} else if (datatype.isText()) {
-								while (obsIterator.hasNext()) {
-									currentObs = obsIterator.next();
-									if (OpenmrsUtil.isStringInArray(currentObs.getValueText(), valueArray)) {
-										filteredObs.add(currentObs);
-									}
-								}
-							} else if (datatype.isCoded()) {
-								while (obsIterator.hasNext()) {
-									currentObs = obsIterator.next();
-									if (OpenmrsUtil.isStringInArray(currentObs.getValueCoded().getUuid(), valueArray)) {
-										filteredObs.add(currentObs);
-									}
-								}
-							}
-							
-							// return encounters for filtered obs
-							if (!filteredObs.isEmpty()) {
-								List<Encounter> encounters = this.getEncountersForObs(filteredObs.iterator());
-								
-								return new NeedsPaging<Encounter>(encounters, context);
-							}
+						if (StringUtils.strip(values, ",").trim().equalsIgnoreCase("")) {
+							return new EmptySearchResult();
 						}
-					}
-					else {
-						// return all encounters with obs matching concept
-						List<Encounter> encounters = this.getEncountersForObs(obsIterator);
 						
-						return new NeedsPaging<Encounter>(encounters, context);
+						String[] valueArray = values.split(",");
+						ConceptDatatype datatype = concept.getDatatype();
+						if (datatype.isNumeric()) {
+							valueList = this.toNumbers(valueArray);
+						} else if (datatype.isText() || datatype.isCoded()) {
+							valueList = Arrays.asList(valueArray);
+						} else {
+							return new EmptySearchResult();
+						}
+					}
+					
+					// fetch one more encounter than requested to find out whether there are more
+					int startIndex = context.getStartIndex();
+					int limit = context.getLimit();
+					List<Encounter> encounters = Context.getService(RestHelperService.class).getEncountersByObs(patient,
+					    concept, valueList, startIndex, limit + 1);
+					
+					boolean hasMore = encounters.size() > limit;
+					if (hasMore) {
+						encounters = encounters.subList(0, limit);
 					}
+					return new AlreadyPaged<Encounter>(context, encounters, hasMore);
 				} else {
 					throw new ObjectNotFoundException();
 				}
@@ -147,48 +128,17 @@ public class EncounterSearchHandler1_9 implements SearchHandler {
 		return new EmptySearchResult();
 	}
 	
-	private boolean isNumberInArray(double numberToCheck, String[] values) {
-		boolean found = false;
-		
-		// first convert string to double array
+	private List<Double> toNumbers(String[] values) {
+		List<Double> numbers = new ArrayList<Double>(values.length);
 		try {
-			for (int i = 0; i < values.length; i++) {
-				if (Double.parseDouble(values[i]) == numberToCheck) {
-					found = true;
-					break;
-				}
+			for (String value : values) {
+				numbers.add(Double.valueOf(value));
 			}
 		}
 		catch (Exception e) {
 			throw new IllegalArgumentException();
 		}
 		
-		return found;
-	}
-	
-	private List<Encounter> getEncountersForObs(Iterator<Obs> obsIterator) {
-		List<Encounter> encounters = new ArrayList<Encounter>();
-		Encounter currEncounter;
-		while (obsIterator.hasNext()) {
-			currEncounter = obsIterator.next().getEncounter();
-			if (!this.containsEncounter(encounters, currEncounter)) {
-				encounters.add(currEncounter);
-			}
-		}
-		
-		return encounters;
-	}
-	
-	private boolean containsEncounter(List<Encounter> encounters, Encounter encounter) {
-		boolean containsFlag = false;
-		Iterator<Encounter> encIterator = encounters.iterator();
-		while (encIterator.hasNext()) {
-			if (encIterator.next().getUuid().equalsIgnoreCase(encounter.getUuid())) {
-				containsFlag = true;
-				break;
-			}
-		}
-		
-		return containsFlag;
+		return numbers;
 	}
 }
@@ -0,0 +1,107 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.doc;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.docs.swagger.SwaggerSpecificationCache;
+import org.openmrs.module.webservices.docs.swagger.SwaggerSpecificationCache.Document;
+import org.openmrs.module.webservices.docs.swagger.SwaggerSpecificationCache.Specification;
+import org.openmrs.module.webservices.rest.web.api.RestService;
+import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SwaggerSpecificationCacheTest extends BaseModuleWebContextSensitiveTest {
+
+	@Before
+	public void init() throws Exception {
+		Context.getService(RestService.class).initialize();
+		SwaggerSpecificationCache.clearCache();
+	}
+
+	@Test
+	public void getSpecification_shouldBuildTheSpecificationOnlyOnce() {
+		assertFalse(SwaggerSpecificationCache.isBuilt());
+
+		Specification specification = SwaggerSpecificationCache.getSpecification();
+
+		assertTrue(SwaggerSpecificationCache.isBuilt());
+		assertSame(specification, SwaggerSpecificationCache.getSpecification());
+	}
+
+	@Test
+	public void getSpecification_shouldProvideGzippedContentMatchingTheContent() throws Exception {
+		Document document = SwaggerSpecificationCache.getSpecification().getDocument();
+
+		byte[] unzipped = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(document
+		        .getGzippedContent())));
+
+		assertArrayEquals(document.getContent(), unzipped);
+		assertTrue(document.getEtag().startsWith("\""));
+	}
+
+	@Test
+	public void getSpecification_shouldProvideAFragmentPerResource() {
+		Specification specification = SwaggerSpecificationCache.getSpecification();
+
+		String index = new String(specification.getResourceIndex().getContent(), StandardCharsets.UTF_8);
+		assertTrue(index.contains("\"patient\""));
+
+		String patient = new String(specification.getResourceDocument("patient").getContent(), StandardCharsets.UTF_8);
+		assertTrue(patient.contains("\"/patient\""));
+		assertTrue(patient.contains("\"/patient/{parent-uuid}/identifier\""));
+		assertTrue(patient.contains("\"PatientGet\""));
+		assertFalse(patient.contains("\"/location\""));
+
+		assertNull(specification.getResourceDocument("unknown"));
+	}
+
+	@Test
+	public void getSpecification_shouldFillInTheBasePathFromTheContextPath() {
+		Specification specification = SwaggerSpecificationCache.getSpecification();
+		assertFalse(toString(specification.getDocument()).contains("\"basePath\""));
+
+		Specification openmrs = SwaggerSpecificationCache.getSpecification("/openmrs");
+		assertTrue(toString(openmrs.getDocument()).contains("\"/openmrs/ws/rest/v1\""));
+		assertTrue(toString(openmrs.getResourceDocument("patient")).contains("\"/openmrs/ws/rest/v1\""));
+		assertSame(openmrs, SwaggerSpecificationCache.getSpecification("/openmrs"));
+
+		Specification root = SwaggerSpecificationCache.getSpecification("");
+		assertTrue(toString(root.getDocument()).contains("\"/ws/rest/v1\""));
+		assertFalse(root.getDocument().getEtag().equals(openmrs.getDocument().getEtag()));
+	}
+
+	@Test
+	public void rebuild_shouldReplaceTheSpecification() {
+		Specification specification = SwaggerSpecificationCache.getSpecification();
+
+		SwaggerSpecificationCache.rebuild();
+
+		Specification rebuilt = SwaggerSpecificationCache.getSpecification();
+		assertFalse(specification == rebuilt);
+		assertEquals(specification.getDocument().getEtag(), rebuilt.getDocument().getEtag());
+	}
+
+	private String toString(Document document) {
+		return new String(document.getContent(), StandardCharsets.UTF_8);
+	}
+}
@@ -34,15 +34,8 @@ public class MockServerLogActionWrapper<T extends ServerLogActionWrapper> extend
 	 * @return List of log lines
 	 */
 	@Override
-	public List<String[]> getServerLogs() {
-		List<String> logLines = mockMemoryAppenderBuffer;
-		List<String[]> finalOutput = new ArrayList<String[]>();
-
-		for (String logLine : logLines) {
-			String[] logElements = serverLogActionWrapper.logLinePatternMatcher(logLine);
-			finalOutput.add(logElements);
-		}
-		return finalOutput;
+	protected List<String> getLogLines() {
+		return mockMemoryAppenderBuffer;
 	}
 
 	@Override
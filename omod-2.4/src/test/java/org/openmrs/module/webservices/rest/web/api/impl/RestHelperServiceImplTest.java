@@ -0,0 +1,86 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.api.impl;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.api.PatientService;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.api.RestHelperService;
+import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RestHelperServiceImplTest extends BaseModuleWebContextSensitiveTest {
+	
+	@After
+	public void after() {
+		setPatientIdentifierIndexEnabled(false);
+	}
+	
+	@Test
+	public void findPatientsByIdentifierStartingWith_shouldFindTheSamePatientsWithAndWithoutTheIndex() {
+		// the identifiers are compared in their stored case, as the test database matches case
+		PatientService patientService = Context.getPatientService();
+		Patient patient = patientService.getPatient(2);
+		PatientIdentifier voided = patient.getPatientIdentifier();
+		patientService.voidPatientIdentifier(voided, "testing");
+		Context.flushSession();
+		
+		List<String> prefixes = new ArrayList<String>();
+		prefixes.add("1");
+		prefixes.add("10");
+		prefixes.add("6");
+		prefixes.add("7");
+		prefixes.add("XYZ");
+		prefixes.add(voided.getIdentifier());
+		
+		for (String prefix : prefixes) {
+			assertSamePatients(prefix, null, null);
+			assertSamePatients(prefix, 0, 1);
+			assertSamePatients(prefix, 1, 2);
+		}
+		
+		setPatientIdentifierIndexEnabled(false);
+		assertTrue(findPatientIds(voided.getIdentifier(), null, null).contains(patient.getPatientId()));
+	}
+	
+	private void assertSamePatients(String prefix, Integer firstResult, Integer maxResults) {
+		setPatientIdentifierIndexEnabled(false);
+		List<Integer> fromDatabase = findPatientIds(prefix, firstResult, maxResults);
+		
+		setPatientIdentifierIndexEnabled(true);
+		List<Integer> fromIndex = findPatientIds(prefix, firstResult, maxResults);
+		
+		assertEquals("prefix " + prefix, fromDatabase, fromIndex);
+	}
+	
+	private List<Integer> findPatientIds(String prefix, Integer firstResult, Integer maxResults) {
+		List<Integer> patientIds = new ArrayList<Integer>();
+		for (Patient patient : Context.getService(RestHelperService.class).findPatientsByIdentifierStartingWith(prefix,
+		    false, firstResult, maxResults)) {
+			patientIds.add(patient.getPatientId());
+		}
+		return patientIds;
+	}
+	
+	private void setPatientIdentifierIndexEnabled(boolean enabled) {
+		PatientIdentifierIndex.getInstance().globalPropertyChanged(
+		    new GlobalProperty(RestConstants.PATIENT_IDENTIFIER_INDEX_GLOBAL_PROPERTY_NAME, String.valueOf(enabled)));
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.test.Util;
+import org.openmrs.module.webservices.rest.web.AdmissionControl;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.response.RequestTooLargeException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Tests admitting GET requests of resources by the {@link AdmissionControl}.
+ */
+public class AdmissionControlControllerTest extends RestControllerTestUtils {
+	
+	@Test(expected = RequestTooLargeException.class)
+	public void shouldRejectRequestsExceedingTheMaximumCost() throws Exception {
+		setGlobalProperty(RestConstants.MAX_REQUEST_COST_GLOBAL_PROPERTY_NAME, "10");
+		setGlobalProperty(RestConstants.RESOURCE_COST_WEIGHTS_GLOBAL_PROPERTY_NAME, "encountertype:2");
+		
+		MockHttpServletRequest req = request(RequestMethod.GET, "encountertype");
+		req.addParameter(RestConstants.REQUEST_PROPERTY_FOR_REPRESENTATION, RestConstants.REPRESENTATION_FULL);
+		req.addParameter(RestConstants.REQUEST_PROPERTY_FOR_LIMIT, "2");
+		handle(req);
+	}
+	
+	@Test
+	public void shouldAdmitRequestsWithinTheMaximumCost() throws Exception {
+		setGlobalProperty(RestConstants.MAX_REQUEST_COST_GLOBAL_PROPERTY_NAME, "10");
+		setGlobalProperty(RestConstants.RESOURCE_COST_WEIGHTS_GLOBAL_PROPERTY_NAME, "encountertype:2");
+		
+		MockHttpServletRequest req = request(RequestMethod.GET, "encountertype");
+		req.addParameter(RestConstants.REQUEST_PROPERTY_FOR_REPRESENTATION, RestConstants.REPRESENTATION_REF);
+		req.addParameter(RestConstants.REQUEST_PROPERTY_FOR_LIMIT, "5");
+		SimpleObject result = deserialize(handle(req));
+		
+		assertTrue(Util.getResultsSize(result) > 0);
+	}
+	
+	@After
+	public void resetAdmissionControl() {
+		AdmissionControl.getInstance().globalPropertyDeleted(RestConstants.MAX_REQUEST_COST_GLOBAL_PROPERTY_NAME);
+	}
+	
+	private void setGlobalProperty(String property, String value) {
+		GlobalProperty globalProperty = new GlobalProperty(property, value);
+		Context.getAdministrationService().saveGlobalProperty(globalProperty);
+		AdmissionControl.getInstance().globalPropertyChanged(globalProperty);
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.Location;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.AdmissionControl;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.RestTestConstants1_8;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class BatchControllerTest extends RestControllerTestUtils {
+	
+	@Test
+	public void execute_shouldAnswerEachRequestWithItsStatusAndBody() throws Exception {
+		String locationPath = "location/" + RestTestConstants1_8.LOCATION_UUID + "?v=full";
+		String personNamePath = "/ws/rest/v1/person/" + RestTestConstants1_8.PERSON_UUID + "/name/"
+		        + RestTestConstants1_8.PERSON_NAME_UUID;
+		SimpleObject batch = new SimpleObject().add(
+		    "requests",
+		    Arrays.asList(
+		        new SimpleObject().add("method", "GET").add("path", locationPath),
+		        new SimpleObject().add("method", "GET").add("path", personNamePath),
+		        new SimpleObject().add("method", "GET").add("path", "unknownresource"),
+		        new SimpleObject().add("method", "POST").add("path", "location")
+		                .add("body", new SimpleObject().add("name", "Batch Location")),
+		        new SimpleObject().add("method", "PUT").add("path", "location")));
+		
+		MockHttpServletResponse response = handle(newPostRequest("batch", batch));
+		
+		assertEquals(200, response.getStatus());
+		List<Map<String, Object>> responses = getResponses(response);
+		assertEquals(5, responses.size());
+		assertEquals(200, responses.get(0).get("status"));
+		assertEquals(RestTestConstants1_8.LOCATION_UUID, getBody(responses.get(0)).get("uuid"));
+		assertEquals(200, responses.get(1).get("status"));
+		assertEquals(RestTestConstants1_8.PERSON_NAME_UUID, getBody(responses.get(1)).get("uuid"));
+		assertEquals(404, responses.get(2).get("status"));
+		assertEquals(201, responses.get(3).get("status"));
+		assertEquals("Batch Location", getBody(responses.get(3)).get("name"));
+		assertEquals(405, responses.get(4).get("status"));
+	}
+	
+	@Test
+	public void execute_shouldPassTheParametersOfEachRequest() throws Exception {
+		SimpleObject batch = new SimpleObject().add(
+		    "requests",
+		    Arrays.asList(new SimpleObject().add("path", "location/" + RestTestConstants1_8.LOCATION_UUID).add("params",
+		        new SimpleObject().add("v", "custom:(uuid,name)"))));
+		
+		List<Map<String, Object>> responses = getResponses(handle(newPostRequest("batch", batch)));
+		
+		assertEquals(200, responses.get(0).get("status"));
+		assertEquals(2, getBody(responses.get(0)).size());
+	}
+	
+	@Test
+	public void execute_shouldExecuteGetsInParallelAndAnswerThemInOrder() throws Exception {
+		SimpleObject batch = new SimpleObject().add(
+		    "requests",
+		    Arrays.asList(
+		        new SimpleObject().add("path", "location/" + RestTestConstants1_8.LOCATION_UUID),
+		        new SimpleObject().add("path",
+		            "person/" + RestTestConstants1_8.PERSON_UUID + "/name/" + RestTestConstants1_8.PERSON_NAME_UUID),
+		        new SimpleObject().add("path", "unknownresource"),
+		        new SimpleObject().add("path", "location/" + RestTestConstants1_8.LOCATION_UUID).add("params",
+		            new SimpleObject().add("v", "custom:(uuid,name)")))).add("parallel", true);
+		
+		List<Map<String, Object>> responses = getResponses(handle(newPostRequest("batch", batch)));
+		
+		assertEquals(4, responses.size());
+		assertEquals(200, responses.get(0).get("status"));
+		assertEquals(RestTestConstants1_8.LOCATION_UUID, getBody(responses.get(0)).get("uuid"));
+		assertEquals(200, responses.get(1).get("status"));
+		assertEquals(RestTestConstants1_8.PERSON_NAME_UUID, getBody(responses.get(1)).get("uuid"));
+		assertEquals(404, responses.get(2).get("status"));
+		assertEquals(200, responses.get(3).get("status"));
+		assertEquals(2, getBody(responses.get(3)).size());
+		assertEquals("admin", Context.getAuthenticatedUser().getSystemId());
+	}
+	
+	@Test
+	public void execute_shouldSaveAnUpdateOfAnObjectFetchedByAPreviousRequest() throws Exception {
+		String locationPath = "location/" + RestTestConstants1_8.LOCATION_UUID;
+		SimpleObject batch = new SimpleObject().add(
+		    "requests",
+		    Arrays.asList(new SimpleObject().add("path", locationPath), new SimpleObject().add("method", "POST")
+		            .add("path", locationPath).add("body", new SimpleObject().add("description", "Updated by batch"))));
+		
+		List<Map<String, Object>> responses = getResponses(handle(newPostRequest("batch", batch)));
+		
+		assertEquals(200, responses.get(1).get("status"));
+		Context.clearSession();
+		Location location = Context.getLocationService().getLocationByUuid(RestTestConstants1_8.LOCATION_UUID);
+		assertEquals("Updated by batch", location.getDescription());
+	}
+	
+	@Test
+	public void execute_shouldNotSaveTheChangesOfAFailedRequestWithTheFollowingRequests() throws Exception {
+		SimpleObject batch = new SimpleObject().add(
+		    "requests",
+		    Arrays.asList(
+		        new SimpleObject().add("method", "POST").add("path", "location/" + RestTestConstants1_8.LOCATION_UUID)
+		                .add("body", new SimpleObject().add("description", "Failed update").add("name", "")),
+		        new SimpleObject().add("method", "POST").add("path", "location")
+		                .add("body", new SimpleObject().add("name", "Batch Location"))));
+		
+		List<Map<String, Object>> responses = getResponses(handle(newPostRequest("batch", batch)));
+		
+		assertTrue((Integer) responses.get(0).get("status") >= 400);
+		assertEquals(201, responses.get(1).get("status"));
+		Context.clearSession();
+		Location location = Context.getLocationService().getLocationByUuid(RestTestConstants1_8.LOCATION_UUID);
+		assertNotEquals("Failed update", location.getDescription());
+	}
+	
+	@Test
+	public void execute_shouldRejectParallelRequestsOfAUserMakingTooManyRequests() throws Exception {
+		GlobalProperty maxConcurrentRequests = new GlobalProperty(
+		        RestConstants.MAX_CONCURRENT_REQUESTS_PER_USER_GLOBAL_PROPERTY_NAME, "0");
+		Context.getAdministrationService().saveGlobalProperty(maxConcurrentRequests);
+		AdmissionControl.getInstance().globalPropertyChanged(maxConcurrentRequests);
+		SimpleObject batch = new SimpleObject().add(
+		    "requests",
+		    Arrays.asList(new SimpleObject().add("path", "location/" + RestTestConstants1_8.LOCATION_UUID),
+		        new SimpleObject().add("path", "location/" + RestTestConstants1_8.LOCATION_UUID))).add("parallel", true);
+		
+		List<Map<String, Object>> responses = getResponses(handle(newPostRequest("batch", batch)));
+		
+		assertEquals(429, responses.get(0).get("status"));
+		assertEquals(429, responses.get(1).get("status"));
+	}
+	
+	@After
+	public void resetAdmissionControl() {
+		AdmissionControl.getInstance().globalPropertyDeleted(
+		    RestConstants.MAX_CONCURRENT_REQUESTS_PER_USER_GLOBAL_PROPERTY_NAME);
+	}
+	
+	@Test(expected = IllegalRequestException.class)
+	public void execute_shouldRejectMoreRequestsThanTheMaximumBatchSize() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(RestConstants.MAX_BATCH_SIZE_GLOBAL_PROPERTY_NAME, "1"));
+		SimpleObject batch = new SimpleObject().add("requests",
+		    Arrays.asList(new SimpleObject().add("path", "location"), new SimpleObject().add("path", "location")));
+		
+		handle(newPostRequest("batch", batch));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<Map<String, Object>> getResponses(MockHttpServletResponse response) throws Exception {
+		return (List<Map<String, Object>>) deserialize(response).get("responses");
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> getBody(Map<String, Object> response) {
+		return (Map<String, Object>) response.get("body");
+	}
+}
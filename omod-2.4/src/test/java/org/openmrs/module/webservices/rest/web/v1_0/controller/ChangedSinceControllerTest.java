@@ -0,0 +1,147 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.test.Util;
+import org.openmrs.module.webservices.rest.web.ConversionUtil;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.RestUtil;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Tests getting the changes of resources with the
+ * {@link RestConstants#REQUEST_PROPERTY_FOR_CHANGED_SINCE} parameter.
+ */
+public class ChangedSinceControllerTest extends RestControllerTestUtils {
+	
+	private static final String CREATED_TYPE_UUID = "7c6c3a8a-1f0c-4c1e-9d43-0b4a8a1f0100";
+	
+	private static final String CHANGED_TYPE_UUID = "7c6c3a8a-1f0c-4c1e-9d43-0b4a8a1f0101";
+	
+	private static final String RETIRED_TYPE_UUID = "7c6c3a8a-1f0c-4c1e-9d43-0b4a8a1f0102";
+	
+	private static final String CREATED_OBS_UUID = "7c6c3a8a-1f0c-4c1e-9d43-0b4a8a1f2000";
+	
+	private static final String VOIDED_OBS_UUID = "7c6c3a8a-1f0c-4c1e-9d43-0b4a8a1f2001";
+	
+	@Before
+	public void before() throws Exception {
+		executeDataSet("changedSinceTestDataset.xml");
+	}
+	
+	@Test
+	public void shouldGetTheObjectsCreatedChangedAndRetiredWithinThePeriod() throws Exception {
+		SimpleObject result = getChanges("encountertype", "2019-01-01T00:00:00.000+0000", "2019-12-31T00:00:00.000+0000");
+		
+		assertEquals(new HashSet<String>(Arrays.asList(CREATED_TYPE_UUID, CHANGED_TYPE_UUID)), getResultUuids(result));
+		assertEquals(Arrays.asList(RETIRED_TYPE_UUID), result.get("tombstones"));
+		assertEquals(toDate("2019-12-31T00:00:00.000+0000"),
+		    toDate((String) result.get(RestConstants.REQUEST_PROPERTY_FOR_HIGH_WATER_MARK)));
+	}
+	
+	@Test
+	public void shouldGetOnlyTheObjectsChangedAfterTheGivenDate() throws Exception {
+		SimpleObject result = getChanges("encountertype", "2019-01-20T00:00:00.000+0000", "2019-12-31T00:00:00.000+0000");
+		
+		assertEquals(new HashSet<String>(Arrays.asList(CHANGED_TYPE_UUID)), getResultUuids(result));
+		assertEquals(Arrays.asList(RETIRED_TYPE_UUID), result.get("tombstones"));
+	}
+	
+	@Test
+	public void shouldGetTheChangesOfObjectsWithoutDateChanged() throws Exception {
+		SimpleObject result = getChanges("obs", "2019-01-01T00:00:00.000+0000", "2019-12-31T00:00:00.000+0000");
+		
+		assertEquals(new HashSet<String>(Arrays.asList(CREATED_OBS_UUID)), getResultUuids(result));
+		assertEquals(Arrays.asList(VOIDED_OBS_UUID), result.get("tombstones"));
+	}
+	
+	@Test
+	public void shouldPageThroughTheChangesByTheIdOfTheLastObject() throws Exception {
+		Set<String> uuids = new HashSet<String>();
+		String query = RestConstants.REQUEST_PROPERTY_FOR_CHANGED_SINCE + "=2019-01-01T00:00:00.000%2B0000&"
+		        + RestConstants.REQUEST_PROPERTY_FOR_HIGH_WATER_MARK + "=2019-12-31T00:00:00.000%2B0000&limit=1";
+		int pages = 0;
+		while (query != null) {
+			MockHttpServletRequest req = request(RequestMethod.GET, "encountertype");
+			req.setParameters(RestUtil.parseQueryString(query));
+			SimpleObject result = deserialize(handle(req));
+			pages++;
+			
+			for (String uuid : getResultUuids(result)) {
+				assertTrue(uuids.add(uuid));
+			}
+			for (Object uuid : (List<?>) result.get("tombstones")) {
+				assertTrue(uuids.add((String) uuid));
+			}
+			
+			List<?> links = (List<?>) result.get("links");
+			query = null;
+			if (links != null) {
+				String next = (String) PropertyUtils.getProperty(links.get(0), "uri");
+				assertTrue(next.contains(RestConstants.REQUEST_PROPERTY_FOR_LAST_ID + "="));
+				query = StringUtils.substringAfter(next, "?");
+			}
+		}
+		
+		assertEquals(3, pages);
+		assertEquals(new HashSet<String>(Arrays.asList(CREATED_TYPE_UUID, CHANGED_TYPE_UUID, RETIRED_TYPE_UUID)), uuids);
+	}
+	
+	@Test
+	public void shouldReturnAHighWaterMarkLaggingBehindTheCurrentDate() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(RestConstants.CHANGED_SINCE_SAFETY_LAG_GLOBAL_PROPERTY_NAME, "3600"));
+		long before = System.currentTimeMillis();
+		
+		MockHttpServletRequest req = request(RequestMethod.GET, "encountertype");
+		req.addParameter(RestConstants.REQUEST_PROPERTY_FOR_CHANGED_SINCE, "2019-01-01T00:00:00.000+0000");
+		SimpleObject result = deserialize(handle(req));
+		
+		String highWaterMark = result.get(RestConstants.REQUEST_PROPERTY_FOR_HIGH_WATER_MARK);
+		long lag = before - toDate(highWaterMark).getTime();
+		assertTrue(lag > 3500 * 1000L && lag <= 3600 * 1000L);
+	}
+	
+	private SimpleObject getChanges(String resource, String since, String highWaterMark) throws Exception {
+		MockHttpServletRequest req = request(RequestMethod.GET, resource);
+		req.addParameter(RestConstants.REQUEST_PROPERTY_FOR_CHANGED_SINCE, since);
+		req.addParameter(RestConstants.REQUEST_PROPERTY_FOR_HIGH_WATER_MARK, highWaterMark);
+		return deserialize(handle(req));
+	}
+	
+	private Date toDate(String date) {
+		return (Date) ConversionUtil.convert(date, Date.class);
+	}
+	
+	private Set<String> getResultUuids(SimpleObject result) throws Exception {
+		Set<String> uuids = new HashSet<String>();
+		for (Object object : Util.getResultsList(result)) {
+			uuids.add((String) PropertyUtils.getProperty(object, "uuid"));
+		}
+		return uuids;
+	}
+}
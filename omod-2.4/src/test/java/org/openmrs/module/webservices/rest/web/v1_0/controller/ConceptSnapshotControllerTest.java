@@ -0,0 +1,174 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.ConceptSnapshot;
+import org.openmrs.module.webservices.rest.web.RestTestConstants1_8;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+public class ConceptSnapshotControllerTest extends RestControllerTestUtils {
+	
+	@Before
+	public void before() throws Exception {
+		// the cached version might be the one of the data of another test
+		ConceptSnapshot.invalidateCurrentVersion();
+		// snapshots are not built in the background without the daemon token of the started module
+		ConceptSnapshot.build(null, ConceptSnapshot.getCurrentVersion());
+	}
+	
+	@Test
+	public void getSnapshot_shouldServeTheCompressedConceptDictionary() throws Exception {
+		MockHttpServletResponse response = handle(request(RequestMethod.GET, "conceptsnapshot"));
+		
+		assertEquals(200, response.getStatus());
+		assertEquals("application/gzip", response.getContentType());
+		SimpleObject snapshot = readSnapshot(response);
+		assertEquals(ConceptSnapshot.getCurrentVersion(), ((Number) snapshot.get("version")).longValue());
+		Map<String, Object> concept = findConcept(snapshot, RestTestConstants1_8.CONCEPT_UUID);
+		assertNotNull(concept);
+		assertFalse(((List<?>) concept.get("names")).isEmpty());
+	}
+	
+	@Test
+	public void getSnapshot_shouldReturnNotModifiedIfTheSnapshotMatchesTheEntityTag() throws Exception {
+		String etag = handle(request(RequestMethod.GET, "conceptsnapshot")).getHeader("ETag");
+		
+		MockHttpServletRequest request = request(RequestMethod.GET, "conceptsnapshot");
+		request.addHeader("If-None-Match", etag);
+		
+		assertEquals(304, handle(request).getStatus());
+	}
+	
+	@Test
+	public void getSnapshot_shouldServeTheSnapshotIfTheEntityTagOnlyContainsTheEntityTagOfTheSnapshot() throws Exception {
+		String etag = handle(request(RequestMethod.GET, "conceptsnapshot")).getHeader("ETag");
+		
+		MockHttpServletRequest request = request(RequestMethod.GET, "conceptsnapshot");
+		request.addHeader("If-None-Match", "\"x" + etag.substring(1));
+		
+		assertEquals(200, handle(request).getStatus());
+	}
+	
+	@Test
+	public void getSnapshot_shouldReturnNotModifiedIfAnyOfTheEntityTagsMatches() throws Exception {
+		String etag = handle(request(RequestMethod.GET, "conceptsnapshot")).getHeader("ETag");
+		
+		MockHttpServletRequest request = request(RequestMethod.GET, "conceptsnapshot");
+		request.addHeader("If-None-Match", "\"other\", W/" + etag);
+		
+		assertEquals(304, handle(request).getStatus());
+	}
+	
+	@Test
+	public void getSnapshot_shouldServeTheConceptsChangedSinceTheGivenVersion() throws Exception {
+		long version = ((Number) readSnapshot(handle(request(RequestMethod.GET, "conceptsnapshot"))).get("version"))
+		        .longValue();
+		ConceptService conceptService = Context.getConceptService();
+		Concept concept = conceptService.getConceptByUuid(RestTestConstants1_8.CONCEPT_UUID);
+		concept.setVersion("snapshot test");
+		conceptService.saveConcept(concept);
+		// the advice discarding the cached version is not registered in the tests
+		ConceptSnapshot.invalidateCurrentVersion();
+		ConceptSnapshot.build(version, ConceptSnapshot.getCurrentVersion());
+		
+		MockHttpServletRequest request = request(RequestMethod.GET, "conceptsnapshot");
+		request.addParameter("since", String.valueOf(version));
+		MockHttpServletResponse response = handle(request);
+		
+		assertEquals(200, response.getStatus());
+		SimpleObject snapshot = readSnapshot(response);
+		assertEquals(version, ((Number) snapshot.get("since")).longValue());
+		List<?> concepts = (List<?>) snapshot.get("concepts");
+		assertEquals(1, concepts.size());
+		assertEquals("snapshot test", ((Map<?, ?>) concepts.get(0)).get("version"));
+	}
+	
+	@Test
+	public void getSnapshot_shouldReturnAcceptedWhileTheSnapshotIsBuilt() throws Exception {
+		long version = ConceptSnapshot.getCurrentVersion();
+		ConceptService conceptService = Context.getConceptService();
+		Concept concept = conceptService.getConceptByUuid(RestTestConstants1_8.CONCEPT_UUID);
+		concept.setVersion("snapshot test");
+		conceptService.saveConcept(concept);
+		ConceptSnapshot.invalidateCurrentVersion();
+		
+		MockHttpServletRequest request = request(RequestMethod.GET, "conceptsnapshot");
+		request.addParameter("since", String.valueOf(version));
+		MockHttpServletResponse response = handle(request);
+		
+		assertEquals(202, response.getStatus());
+		assertEquals("BUILDING", deserialize(response).get("status"));
+		assertFalse(ConceptSnapshot.getFile(version, ConceptSnapshot.getCurrentVersion()).isFile());
+	}
+	
+	@Test
+	public void getSnapshot_shouldReturnNotModifiedIfTheDictionaryHasNotBeenChangedSinceTheGivenVersion()
+	        throws Exception {
+		MockHttpServletRequest request = request(RequestMethod.GET, "conceptsnapshot");
+		request.addParameter("since", String.valueOf(ConceptSnapshot.getCurrentVersion()));
+		
+		assertEquals(304, handle(request).getStatus());
+	}
+	
+	@Test
+	public void getSnapshot_shouldServeTheFullSnapshotSinceAVersionWithoutAFullSnapshot() throws Exception {
+		MockHttpServletRequest request = request(RequestMethod.GET, "conceptsnapshot");
+		request.addParameter("since", "1");
+		MockHttpServletResponse response = handle(request);
+		
+		assertEquals(200, response.getStatus());
+		SimpleObject snapshot = readSnapshot(response);
+		assertNull(snapshot.get("since"));
+		assertEquals(ConceptSnapshot.getCurrentVersion(), ((Number) snapshot.get("version")).longValue());
+	}
+	
+	@Test(expected = IllegalRequestException.class)
+	public void getSnapshot_shouldRejectAnInvalidVersion() throws Exception {
+		MockHttpServletRequest request = request(RequestMethod.GET, "conceptsnapshot");
+		request.addParameter("since", "yesterday");
+		
+		handle(request);
+	}
+	
+	private SimpleObject readSnapshot(MockHttpServletResponse response) throws Exception {
+		return new ObjectMapper().readValue(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())),
+		    SimpleObject.class);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> findConcept(SimpleObject snapshot, String uuid) {
+		for (Map<String, Object> concept : (List<Map<String, Object>>) snapshot.get("concepts")) {
+			if (uuid.equals(concept.get("uuid"))) {
+				return concept;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openmrs.EncounterType;
+import org.openmrs.api.EncounterService;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.RestTestConstants1_8;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Tests that GET requests handled with the {@link ReadOnlySessionSetup} do not affect later writes
+ * in the same session.
+ */
+public class ReadOnlySessionSetupControllerTest extends RestControllerTestUtils {
+	
+	@Test
+	public void shouldSaveChangesToObjectsLoadedByAnEarlierGetInTheSameSession() throws Exception {
+		handle(request(RequestMethod.GET, "encountertype/" + RestTestConstants1_8.ENCOUNTER_TYPE_UUID));
+		handle(request(RequestMethod.GET, "encountertype"));
+		
+		EncounterService service = Context.getEncounterService();
+		EncounterType encounterType = service.getEncounterTypeByUuid(RestTestConstants1_8.ENCOUNTER_TYPE_UUID);
+		encounterType.setDescription("Changed after a GET");
+		service.saveEncounterType(encounterType);
+		Context.flushSession();
+		Context.clearSession();
+		
+		assertEquals("Changed after a GET", service.getEncounterTypeByUuid(RestTestConstants1_8.ENCOUNTER_TYPE_UUID)
+		        .getDescription());
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.beanutils.PropertyUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.test.Util;
+import org.openmrs.module.webservices.rest.web.RequestDeadline;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.RestTestConstants1_8;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Tests applying the timeouts of requests by the {@link RequestTimeoutSetup}.
+ */
+public class RequestTimeoutControllerTest extends RestControllerTestUtils {
+	
+	@Autowired
+	RequestTimeoutSetup requestTimeoutSetup;
+	
+	@Test
+	public void shouldClearTheDeadlineOfTheRequest() throws Exception {
+		MockHttpServletRequest req = request(RequestMethod.GET, "encountertype/" + RestTestConstants1_8.ENCOUNTER_TYPE_UUID);
+		req.addHeader(RestConstants.REQUEST_TIMEOUT_HEADER, "60");
+		SimpleObject result = deserialize(handle(req));
+		
+		assertEquals(RestTestConstants1_8.ENCOUNTER_TYPE_UUID, PropertyUtils.getProperty(result, "uuid"));
+		assertNull(RequestDeadline.getRemainingMillis());
+	}
+	
+	@Test
+	public void shouldIgnoreARequestedTimeoutWhichIsNotPositive() throws Exception {
+		MockHttpServletRequest req = request(RequestMethod.GET, "encountertype");
+		req.addHeader(RestConstants.REQUEST_TIMEOUT_HEADER, "0");
+		SimpleObject result = deserialize(handle(req));
+		
+		assertTrue(Util.getResultsSize(result) > 0);
+	}
+	
+	@Test
+	public void getTimeoutMillis_shouldUseTheRequestedTimeoutIfShorterThanTheConfiguredOne() {
+		setGlobalProperty(RestConstants.REQUEST_TIMEOUT_GLOBAL_PROPERTY_NAME, "30");
+		
+		assertEquals(10000, requestTimeoutSetup.getTimeoutMillis("encountertype", "10"));
+		assertEquals(30000, requestTimeoutSetup.getTimeoutMillis("encountertype", "60"));
+		assertEquals(30000, requestTimeoutSetup.getTimeoutMillis("encountertype", null));
+	}
+	
+	@Test
+	public void getTimeoutMillis_shouldIgnoreTimeoutsWhichAreNotPositive() {
+		setGlobalProperty(RestConstants.REQUEST_TIMEOUT_GLOBAL_PROPERTY_NAME, "30");
+		setGlobalProperty(RestConstants.RESOURCE_REQUEST_TIMEOUTS_GLOBAL_PROPERTY_NAME, "obs:0");
+		
+		assertEquals(30000, requestTimeoutSetup.getTimeoutMillis("encountertype", "0"));
+		assertEquals(30000, requestTimeoutSetup.getTimeoutMillis("encountertype", "-5"));
+		assertEquals(-1, requestTimeoutSetup.getTimeoutMillis("obs", null));
+		assertEquals(5000, requestTimeoutSetup.getTimeoutMillis("obs", "5"));
+	}
+	
+	@After
+	public void resetTimeouts() {
+		requestTimeoutSetup.globalPropertyDeleted(RestConstants.REQUEST_TIMEOUT_GLOBAL_PROPERTY_NAME);
+	}
+	
+	private void setGlobalProperty(String property, String value) {
+		GlobalProperty globalProperty = new GlobalProperty(property, value);
+		Context.getAdministrationService().saveGlobalProperty(globalProperty);
+		requestTimeoutSetup.globalPropertyChanged(globalProperty);
+	}
+}
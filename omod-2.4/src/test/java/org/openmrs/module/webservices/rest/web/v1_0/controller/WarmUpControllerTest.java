@@ -0,0 +1,57 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.RestTestConstants1_8;
+import org.openmrs.module.webservices.rest.web.WarmUp;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+public class WarmUpControllerTest extends RestControllerTestUtils {
+	
+	@Test
+	public void getStatus_shouldReturnServiceUnavailableUntilTheWarmUpHasCompleted() throws Exception {
+		WarmUp.reset();
+		
+		MockHttpServletResponse response = handle(request(RequestMethod.GET, "warmup"));
+		
+		assertEquals(503, response.getStatus());
+		assertEquals("NOT_STARTED", deserialize(response).get("status"));
+	}
+	
+	@Test
+	public void getStatus_shouldReturnTheStatusOfTheCompletedWarmUp() throws Exception {
+		String requests = "location location/" + RestTestConstants1_8.LOCATION_UUID + "?v=full concept?q=COUGH";
+		setWarmUpRequests(requests);
+		WarmUp.run();
+		int failures = (Integer) WarmUp.getStatusDetails().get("failures");
+		setWarmUpRequests(requests + " unknownresource");
+		WarmUp.run();
+		
+		MockHttpServletResponse response = handle(request(RequestMethod.GET, "warmup"));
+		
+		assertEquals(200, response.getStatus());
+		SimpleObject status = deserialize(response);
+		assertEquals("COMPLETED", status.get("status"));
+		assertEquals(failures + 1, ((Integer) status.get("failures")).intValue());
+	}
+	
+	private void setWarmUpRequests(String requests) {
+		Context.getAdministrationService().saveGlobalProperty(
+		    new GlobalProperty(RestConstants.WARM_UP_REQUESTS_GLOBAL_PROPERTY_NAME, requests));
+	}
+}
@@ -403,6 +403,44 @@ public class OrderController1_10Test extends MainResourceControllerTest {
 		            .getUuid(), orderService.getOrder(3).getUuid(), orderService.getOrder(222).getUuid()));
 	}
 	
+	@Test
+	public void shouldGetTheRequestedPageOfTheSortedActiveOrdersForAPatient() throws Exception {
+		SimpleObject results = deserialize(handle(newGetRequest(getURI(), new Parameter("patient",
+		        "da7f524f-27ce-4bb2-86d6-6d1d05312bd5"), new Parameter("sort", "desc"), new Parameter("status", "active"),
+		    new Parameter("limit", "2"), new Parameter("startIndex", "2"))));
+		assertEquals(2, Util.getResultsSize(results));
+		assertNotNull(results.get("links"));
+		List<Object> resultList = Util.getResultsList(results);
+		assertEquals(orderService.getOrder(444).getUuid(), PropertyUtils.getProperty(resultList.get(0), "uuid"));
+		assertEquals(orderService.getOrder(3).getUuid(), PropertyUtils.getProperty(resultList.get(1), "uuid"));
+		
+		results = deserialize(handle(newGetRequest(getURI(), new Parameter("patient",
+		        "da7f524f-27ce-4bb2-86d6-6d1d05312bd5"), new Parameter("sort", "desc"), new Parameter("status", "active"),
+		    new Parameter("limit", "2"), new Parameter("startIndex", "4"))));
+		assertEquals(1, Util.getResultsSize(results));
+		assertEquals(orderService.getOrder(222).getUuid(),
+		    PropertyUtils.getProperty(Util.getResultsList(results).get(0), "uuid"));
+	}
+	
+	@Test
+	public void shouldGetOnlyTheOrdersOfTheExactTypeForATypeWithoutASubclassHandler() throws Exception {
+		Patient patient = patientService.getPatientByUuid("da7f524f-27ce-4bb2-86d6-6d1d05312bd5");
+		int expectedCount = 0;
+		for (Order order : orderService.getActiveOrders(patient, null, null, null)) {
+			if (order.getClass().equals(Order.class)) {
+				expectedCount++;
+			}
+		}
+		
+		SimpleObject results = deserialize(handle(newGetRequest(getURI(), new Parameter("patient", patient.getUuid()),
+		    new Parameter("t", "order"))));
+		
+		assertEquals(expectedCount, Util.getResultsSize(results));
+		for (Object result : Util.getResultsList(results)) {
+			assertEquals("order", PropertyUtils.getProperty(result, "type"));
+		}
+	}
+	
 	@Test
 	public void shouldGetTheActiveOrdersForAPatientInTheSpecifiedCareSetting() throws Exception {
 		String expectedOrderUuid = orderService.getOrder(222).getUuid();
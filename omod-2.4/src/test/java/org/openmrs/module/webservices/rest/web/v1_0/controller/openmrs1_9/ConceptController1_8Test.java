@@ -45,6 +45,7 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.bind.annotation.RequestMethod;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -372,6 +373,28 @@ public class ConceptController1_8Test extends MainResourceControllerTest {
 		Assert.assertEquals("f4d0b584-6ce5-40e2-9ce5-fa7ec07b32b4", PropertyUtils.getProperty(hits.get(0), "uuid")); // FAVORITE FOOD, NON-CODED
 	}
 	
+	@Test
+	public void doSearch_shouldReturnMembersOfConceptWithoutQuery() throws Exception {
+		MockHttpServletRequest req = request(RequestMethod.GET, getURI());
+		req.addParameter("memberOf", "0f97e14e-cdc2-49ac-9255-b5126f8a5147"); // FOOD CONSTRUCT
+		SimpleObject result = deserialize(handle(req));
+		
+		List<Object> hits = (List<Object>) result.get("results");
+		List<Object> uuids = new ArrayList<Object>();
+		for (Object hit : hits) {
+			uuids.add(PropertyUtils.getProperty(hit, "uuid"));
+		}
+		Assert.assertTrue(uuids.contains("f4d0b584-6ce5-40e2-9ce5-fa7ec07b32b4")); // FAVORITE FOOD, NON-CODED
+		Assert.assertFalse(uuids.contains("0f97e14e-cdc2-49ac-9255-b5126f8a5147"));
+		
+		req = request(RequestMethod.GET, getURI());
+		req.addParameter("memberOf", "0f97e14e-cdc2-49ac-9255-b5126f8a5147");
+		req.addParameter("limit", "1");
+		result = deserialize(handle(req));
+		Assert.assertEquals(1, ((List<Object>) result.get("results")).size());
+		Assert.assertEquals(uuids.get(0), PropertyUtils.getProperty(((List<Object>) result.get("results")).get(0), "uuid"));
+	}
+	
 	@Test
 	@Ignore("TRUNK-1956: H2 cannot execute the generated SQL because it requires all fetched columns to be included in the group by clause")
 	public void doSearch_shouldReturnAnswersToConcept() throws Exception {
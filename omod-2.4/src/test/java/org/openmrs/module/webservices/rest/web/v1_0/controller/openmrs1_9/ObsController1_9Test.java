@@ -39,8 +39,10 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.mock.web.MockMultipartHttpServletRequest;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.xml.bind.DatatypeConverter;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -245,6 +247,51 @@ public class ObsController1_9Test extends MainResourceControllerTest {
 		assertThat(out.toByteArray(), is(equalTo(rawResponse.getContentAsByteArray())));
 	}
 
+	@Test
+	public void shouldFetchARangeOfComplexObsData() throws Exception {
+		ConceptComplex conceptComplex = newConceptComplex();
+
+		InputStream in = getClass().getClassLoader().getResourceAsStream("customTestDataset.xml");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		IOUtils.copy(in, out);
+
+		String json = "{\"concept\":\"" + conceptComplex.getUuid()
+		        + "\", \"person\":\"5946f880-b197-400b-9caa-a3c661d23041\","
+		        + "\"obsDatetime\":\"2015-09-07T00:00:00.000+0530\"}";
+
+		MockMultipartHttpServletRequest request = newUploadRequest(getURI());
+		request.addFile(new MockMultipartFile("file", "customTestDataset.xml", null, out.toByteArray()));
+		request.addParameter("json", json);
+
+		SimpleObject response = deserialize(handle(request));
+
+		MockHttpServletRequest rangeRequest = newGetRequest(getURI() + "/" + response.get("uuid") + "/value");
+		rangeRequest.addHeader("Range", "bytes=10-19");
+		MockHttpServletResponse rangeResponse = handle(rangeRequest);
+
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, rangeResponse.getStatus());
+		assertEquals("bytes 10-19/" + out.size(), rangeResponse.getHeader("Content-Range"));
+		assertThat(rangeResponse.getContentAsByteArray(), is(equalTo(Arrays.copyOfRange(out.toByteArray(), 10, 20))));
+
+		MockHttpServletRequest invalidRangeRequest = newGetRequest(getURI() + "/" + response.get("uuid") + "/value");
+		invalidRangeRequest.addHeader("Range", "bytes=19-10");
+		MockHttpServletResponse invalidRangeResponse = handle(invalidRangeRequest);
+
+		assertEquals(HttpServletResponse.SC_OK, invalidRangeResponse.getStatus());
+		assertThat(invalidRangeResponse.getContentAsByteArray(), is(equalTo(out.toByteArray())));
+
+		MockHttpServletRequest unsatisfiableRangeRequest = newGetRequest(getURI() + "/" + response.get("uuid") + "/value");
+		unsatisfiableRangeRequest.addHeader("Range", "bytes=" + out.size() + "-");
+
+		assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, handle(unsatisfiableRangeRequest).getStatus());
+
+		MockHttpServletRequest conditionalRequest = newGetRequest(getURI() + "/" + response.get("uuid") + "/value");
+		conditionalRequest.addHeader("If-None-Match", rangeResponse.getHeader("ETag"));
+
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, handle(conditionalRequest).getStatus());
+	}
+
 	@Test
 	public void getObs_shouldCreateAnObsWhenTheQuestionConceptIsSetAsAMapContainingTheUuid() throws Exception {
 		long originalCount = getAllCount();
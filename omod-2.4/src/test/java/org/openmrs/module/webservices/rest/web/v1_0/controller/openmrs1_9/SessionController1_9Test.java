@@ -18,6 +18,7 @@ import org.openmrs.GlobalProperty;
 import org.openmrs.Location;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.api.impl.SessionSnapshotAdvice;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -131,6 +132,20 @@ public class SessionController1_9Test extends BaseModuleWebContextSensitiveTest
 		Assert.assertTrue(currentProvider.toString().contains("Super User"));
 	}
 
+	@Test
+	public void get_shouldReturnTheCachedSessionUntilItChanges() throws Exception {
+		Object ret = controller.get(hsr);
+		Assert.assertSame(ret, controller.get(hsr));
+		
+		Context.getUserContext().setLocation(Context.getLocationService().getLocationByUuid(XANADU_UUID));
+		Object changed = controller.get(hsr);
+		Assert.assertNotSame(ret, changed);
+		Assert.assertTrue(PropertyUtils.getProperty(changed, "sessionLocation").toString().contains("display=Xanadu"));
+		
+		SessionSnapshotAdvice.invalidateAll();
+		Assert.assertNotSame(changed, controller.get(hsr));
+	}
+	
 	@Test
 	public void post_shouldReturnTheCurrentSession() throws Exception{
 		String content = "{}";
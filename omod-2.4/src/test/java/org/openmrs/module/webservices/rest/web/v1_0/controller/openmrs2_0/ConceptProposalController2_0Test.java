@@ -10,10 +10,12 @@
 package org.openmrs.module.webservices.rest.web.v1_0.controller.openmrs2_0;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -21,6 +23,8 @@ import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.ConceptProposal;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.test.Util;
 import org.openmrs.module.webservices.rest.web.RestTestConstants1_8;
 import org.openmrs.module.webservices.rest.web.v1_0.controller.MainResourceControllerTest;
 import org.openmrs.util.OpenmrsConstants;
@@ -55,6 +59,40 @@ public class ConceptProposalController2_0Test extends MainResourceControllerTest
 		return 2;
 	}
 
+	@Test
+	public void shouldGetTheRequestedPageOfProposalsSortedByOccurrences() throws Exception {
+		ConceptProposal sameText = new ConceptProposal();
+		sameText.setOriginalText(proposal.getOriginalText());
+		sameText.setState(OpenmrsConstants.CONCEPT_PROPOSAL_UNMAPPED);
+		Context.getConceptService().saveConceptProposal(sameText);
+
+		SimpleObject result = deserialize(handle(newGetRequest(getURI(), new Parameter("sortOn", "occurrences"),
+				new Parameter("sortOrder", "desc"), new Parameter("limit", "1"))));
+
+		List<Object> proposals = Util.getResultsList(result);
+		assertEquals(1, proposals.size());
+		assertEquals(proposal.getUuid(), Util.getByPath(proposals.get(0), "uuid"));
+		assertEquals(2, Util.getByPath(proposals.get(0), "occurrences"));
+		assertNotNull(result.get("links"));
+	}
+
+	@Test
+	public void shouldCountOnlyUnmappedProposalsAsOccurrencesWhenIncludingCompletedProposals() throws Exception {
+		ConceptProposal rejected = new ConceptProposal();
+		rejected.setOriginalText(proposal.getOriginalText());
+		rejected.setState(OpenmrsConstants.CONCEPT_PROPOSAL_REJECT);
+		Context.getConceptService().saveConceptProposal(rejected);
+
+		SimpleObject result = deserialize(handle(newGetRequest(getURI(), new Parameter("sortOn", "occurrences"),
+				new Parameter("sortOrder", "desc"), new Parameter("includeCompleted", "true"),
+				new Parameter("limit", "1"))));
+
+		List<Object> proposals = Util.getResultsList(result);
+		assertEquals(1, proposals.size());
+		assertEquals(proposal.getUuid(), Util.getByPath(proposals.get(0), "uuid"));
+		assertEquals(1, Util.getByPath(proposals.get(0), "occurrences"));
+	}
+
 	@Test
 	public void shouldIgnoreProposal() throws Exception {
 		ConceptProposal existingProposal = Context.getConceptService().getConceptProposalByUuid(proposal.getUuid());
@@ -11,9 +11,12 @@ package org.openmrs.module.webservices.rest.web.v1_0.resource.openmrs2_4;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.struts.mock.MockHttpServletResponse;
 import org.junit.jupiter.api.Test;
@@ -73,6 +76,72 @@ public class ServerLogResource2_4Test extends BaseModuleWebContextSensitiveTest
 		assertNotEquals(logLine1[3], null);
 	}
 
+	@Test
+	public void getAll_shouldOnlyReturnLinesOfTheRequestedLevelsSinceTheGivenSequence() {
+		ServerLogResource2_4 serverLogResource = (ServerLogResource2_4) restService
+				.getResourceBySupportedClass(ServerLogActionWrapper.class);
+		serverLogResource.setServerLogActionWrapper(mockServerLogActionWrapper);
+
+		mockServerLogActionWrapper.mockMemoryAppenderBuffer.add("INFO - Simple.appender(115) |2018-03-03 15:44:54,834| First");
+		mockServerLogActionWrapper.mockMemoryAppenderBuffer.add("ERROR - Simple.appender(116) |2018-03-03 15:44:55,834| Second");
+
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setMethod("GET");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		SimpleObject result = mainResourceController.get(getURI(), request, response);
+		assertEquals(2, ((List<String[]>) result.get("serverLog")).size());
+		Long lastSequence = result.get("lastSequence");
+
+		mockServerLogActionWrapper.mockMemoryAppenderBuffer.add("INFO - Simple.appender(117) |2018-03-03 15:44:56,834| Third");
+		mockServerLogActionWrapper.mockMemoryAppenderBuffer.add("ERROR - Simple.appender(118) |2018-03-03 15:44:57,834| Fourth\nat line");
+
+		request = new MockHttpServletRequest();
+		request.setMethod("GET");
+		request.addParameter("since", String.valueOf(lastSequence));
+		request.addParameter("level", "error");
+		result = mainResourceController.get(getURI(), request, response);
+
+		List<String[]> serverLog = result.get("serverLog");
+		assertEquals(1, serverLog.size());
+		assertEquals("ERROR", serverLog.get(0)[0]);
+		assertEquals("Simple.appender(118)", serverLog.get(0)[1]);
+		assertEquals("2018-03-03 15:44:57,834", serverLog.get(0)[2]);
+		assertEquals("Fourth\nat line", serverLog.get(0)[3]);
+		assertEquals(lastSequence + 2, (long) (Long) result.get("lastSequence"));
+		assertFalse((Boolean) result.get("hasMore"));
+	}
+
+	@Test
+	public void getAll_shouldPageTheLines() {
+		ServerLogResource2_4 serverLogResource = (ServerLogResource2_4) restService
+				.getResourceBySupportedClass(ServerLogActionWrapper.class);
+		serverLogResource.setServerLogActionWrapper(mockServerLogActionWrapper);
+
+		mockServerLogActionWrapper.mockMemoryAppenderBuffer.add("INFO - Simple.appender(115) |2018-03-03 15:44:54,834| First");
+		mockServerLogActionWrapper.mockMemoryAppenderBuffer.add("INFO - Simple.appender(116) |2018-03-03 15:44:55,834| Second");
+		mockServerLogActionWrapper.mockMemoryAppenderBuffer.add("INFO - Simple.appender(117) |2018-03-03 15:44:56,834| Third");
+
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setMethod("GET");
+		request.addParameter("limit", "2");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		SimpleObject result = mainResourceController.get(getURI(), request, response);
+
+		List<String[]> serverLog = result.get("serverLog");
+		assertEquals(2, serverLog.size());
+		assertEquals("Second", serverLog.get(1)[3]);
+		assertTrue((Boolean) result.get("hasMore"));
+
+		request = new MockHttpServletRequest();
+		request.setMethod("GET");
+		request.addParameter("since", String.valueOf((Long) result.get("lastSequence")));
+		result = mainResourceController.get(getURI(), request, response);
+
+		serverLog = result.get("serverLog");
+		assertEquals(1, serverLog.size());
+		assertEquals("Third", serverLog.get(0)[3]);
+	}
+
 	@Test
 	public void shouldThrowExceptionWhenRequestGetDefaultByUuid() {
 		MockHttpServletRequest request = new MockHttpServletRequest();
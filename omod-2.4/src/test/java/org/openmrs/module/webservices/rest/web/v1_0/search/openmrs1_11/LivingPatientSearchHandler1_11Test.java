@@ -121,6 +121,26 @@ public class LivingPatientSearchHandler1_11Test extends MainResourceControllerTe
 		Assert.assertEquals(3, patients.size());
 	}
 	
+	@Test
+	public void shouldReturnTheRequestedPageOfLivingPatients() throws Exception {
+		patientService.getPatientByUuid(getUuid()).setDead(true);
+		MockHttpServletRequest req = request(RequestMethod.GET, getURI());
+		req.addParameter("q", "Moz");
+		req.addParameter("limit", "2");
+		SimpleObject result = deserialize(handle(req));
+		List<Object> patients = result.get("results");
+		Assert.assertEquals(2, patients.size());
+		Assert.assertNotNull(result.get("links"));
+		
+		req = request(RequestMethod.GET, getURI());
+		req.addParameter("q", "Moz");
+		req.addParameter("limit", "2");
+		req.addParameter("startIndex", "2");
+		result = deserialize(handle(req));
+		patients = result.get("results");
+		Assert.assertEquals(1, patients.size());
+	}
+	
 	@Test
 	public void shouldNotReturnPatientsIfNoPatientMatchesQParam() throws Exception {
 		patientService.getPatientByUuid(getUuid()).setDead(true);
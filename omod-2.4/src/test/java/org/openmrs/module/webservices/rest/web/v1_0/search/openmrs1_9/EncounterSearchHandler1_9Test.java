@@ -53,6 +53,38 @@ public class EncounterSearchHandler1_9Test extends RestControllerTestUtils {
 		Assert.assertEquals(2, encounters.size());
 	}
 	
+	/**
+	 * @verifies returns the requested page of encounters
+	 * @see EncounterSearchHandler1_9#search(RequestContext)
+	 */
+	@Test
+	public void shouldReturnTheRequestedPageOfEncounters() throws Exception {
+		MockHttpServletRequest req = request(RequestMethod.GET, getURI());
+		req.addParameter("s", "byObs");
+		req.addParameter("patient", RestTestConstants1_9.PATIENT_WITH_OBS_UUID);
+		// CD4 count concept
+		req.addParameter("obsConcept", RestTestConstants1_8.CONCEPT_NUMERIC_UUID);
+		req.addParameter("obsValues", "150,175");
+		req.addParameter("limit", "1");
+		
+		SimpleObject result = deserialize(handle(req));
+		List<Object> firstPage = result.get("results");
+		Assert.assertEquals(1, firstPage.size());
+		Assert.assertNotNull(result.get("links"));
+		
+		req = request(RequestMethod.GET, getURI());
+		req.addParameter("s", "byObs");
+		req.addParameter("patient", RestTestConstants1_9.PATIENT_WITH_OBS_UUID);
+		req.addParameter("obsConcept", RestTestConstants1_8.CONCEPT_NUMERIC_UUID);
+		req.addParameter("obsValues", "150,175");
+		req.addParameter("limit", "1");
+		req.addParameter("startIndex", "1");
+		result = deserialize(handle(req));
+		List<Object> secondPage = result.get("results");
+		Assert.assertEquals(1, secondPage.size());
+		Assert.assertNotEquals(firstPage.get(0), secondPage.get(0));
+	}
+	
 	/**
 	 * @verifies returns encounters having observations with matching text values
 	 * @see EncounterSearchHandler1_9#search(RequestContext)
@@ -51,6 +51,18 @@ public class ObservationSearchHandlerTest extends RestControllerTestUtils {
 		Assert.assertEquals("39fb7f47-e80a-4056-9285-bd798be13c63", PropertyUtils.getProperty(obs.get(3), "uuid"));
 	}
 	
+	@Test
+	public void shouldReturnObsForPatientAndQuestionConceptsReferencedByMapping() throws Exception {
+		MockHttpServletRequest req = request(RequestMethod.GET, getURI());
+		req.addParameter("patient", "5946f880-b197-400b-9caa-a3c661d23041");
+		req.addParameter("concepts", "95312123-e0c2-466d-b6b1-cb6e990d0d65,SSTRM:WGT234");
+		SimpleObject result = deserialize(handle(req));
+		List<Object> obs = result.get("results");
+		Assert.assertEquals(4, obs.size());
+		Assert.assertEquals("2ed1e57d-9f18-41d3-b067-2eeaf4b30fb0", PropertyUtils.getProperty(obs.get(0), "uuid"));
+		Assert.assertEquals("39fb7f47-e80a-4056-9285-bd798be13c63", PropertyUtils.getProperty(obs.get(3), "uuid"));
+	}
+	
 	@Test
 	public void shouldReturnObsForPatientAndAnswerConcepts() throws Exception {
 		MockHttpServletRequest req = request(RequestMethod.GET, getURI());
@@ -118,4 +130,22 @@ public class ObservationSearchHandlerTest extends RestControllerTestUtils {
 		Assert.assertEquals("5117f5d4-96cc-11e0-8d6b-9b9415a91465", PropertyUtils.getProperty(obs.get(0), "uuid"));
 		Assert.assertEquals("0d37552a-96cd-11e0-8d6b-9b9415a91465", PropertyUtils.getProperty(obs.get(1), "uuid"));
 	}
+	
+	@Test
+	public void shouldReturnThePageOfObsInObsgroupWithTotalCount() throws Exception {
+		executeDataSet("encounterWithObsGroup1_9.xml");
+		MockHttpServletRequest req = request(RequestMethod.GET, getURI());
+		req.addParameter("patient", "5946f880-b197-400b-9caa-a3c661d23041");
+		req.addParameter("groupingConcepts", "0f97e14e-cdc2-49ac-9255-b5126f8a5147");
+		req.addParameter("startIndex", "1");
+		req.addParameter("limit", "2");
+		req.addParameter("totalCount", "true");
+		SimpleObject result = deserialize(handle(req));
+		List<Object> obs = result.get("results");
+		Assert.assertEquals(2, obs.size());
+		Assert.assertEquals("565f39c6-96cc-11e0-8d6b-9b9415a91465", PropertyUtils.getProperty(obs.get(0), "uuid"));
+		Assert.assertEquals("05ba548c-96cd-11e0-8d6b-9b9415a91465", PropertyUtils.getProperty(obs.get(1), "uuid"));
+		Assert.assertEquals(5, ((Number) result.get("totalCount")).intValue());
+		Assert.assertNotNull(result.get("links"));
+	}
 }
@@ -72,6 +72,25 @@ public class OrderSearchHandler2_3Test extends RestControllerTestUtils {
 		Assert.assertEquals(7, orders.size());
 	}
 
+	/**
+	 * @verifies returns a page of the matching orders
+	 * @see OrderSearchHandler2_3#search(RequestContext)
+	 */
+	@Test
+	public void getSearchConfig_shouldReturnAPageOfTheMatchingOrders() throws Exception {
+		MockHttpServletRequest req = request(RequestMethod.GET, getURI());
+		req.addParameter("s", "default");
+		req.addParameter("canceledOrExpiredOnOrBeforeDate", "2008-09-30");
+		req.addParameter("startIndex", "5");
+		req.addParameter("limit", "5");
+		req.addParameter("totalCount", "true");
+
+		SimpleObject result = deserialize(handle(req));
+		List<Order> orders = result.get("results");
+		Assert.assertEquals(2, orders.size());
+		Assert.assertEquals(7, ((Number) result.get("totalCount")).intValue());
+	}
+
 	/**
 	 * @verifies returns orders matching fulfillerStatus
 	 * @see OrderSearchHandler2_3#search(RequestContext)
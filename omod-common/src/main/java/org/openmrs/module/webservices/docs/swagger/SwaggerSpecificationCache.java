@@ -0,0 +1,347 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.docs.swagger;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.swagger.models.Model;
+import io.swagger.models.Operation;
+import io.swagger.models.Path;
+import io.swagger.models.Swagger;
+import io.swagger.util.Json;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the Swagger specification pre-serialized and pre-compressed so that serving it does not
+ * require any rendering.
+ * <p>
+ * Besides the complete specification, a fragment is kept for each resource (identified by the tag
+ * of its operations) containing only its paths and the definitions they reference, so that clients
+ * can lazy-load the documentation of individual resources.
+ * </p>
+ * <p>
+ * The specification is rendered without host, schemes and base path so that it is independent of
+ * the request it is served for, clients then default to the host and scheme the specification was
+ * loaded from. The base path depends on the context path the webapp is deployed at, it is filled in
+ * by {@link #getSpecification(String)} from the context path of the request. The documents with the
+ * base path are derived once per context path.
+ * </p>
+ */
+public class SwaggerSpecificationCache {
+
+	private static final Log log = LogFactory.getLog(SwaggerSpecificationCache.class);
+
+	private static final String REST_PATH = "/ws/rest/v1";
+
+	private static final Pattern DEFINITION_REFERENCE = Pattern.compile("\"#/definitions/([^\"]+)\"");
+
+	private static final Object lock = new Object();
+
+	private static volatile Specification specification;
+
+	private SwaggerSpecificationCache() {
+	}
+
+	/**
+	 * Returns the cached specification, building it first if it has not been built yet.
+	 *
+	 * @return the specification
+	 */
+	public static Specification getSpecification() {
+		Specification current = specification;
+		if (current != null) {
+			return current;
+		}
+
+		synchronized (lock) {
+			if (specification == null) {
+				specification = buildSpecification();
+			}
+			return specification;
+		}
+	}
+
+	/**
+	 * Returns the cached specification with the base path of the REST API under the given context
+	 * path, building it first if it has not been built yet.
+	 *
+	 * @param contextPath the context path of the request the specification is served for
+	 * @return the specification
+	 */
+	public static Specification getSpecification(String contextPath) {
+		return getSpecification().forContextPath(contextPath);
+	}
+
+	/**
+	 * Builds a new specification and replaces the cached one once complete. Requests served while
+	 * rebuilding get the previous specification if there is one.
+	 */
+	public static void rebuild() {
+		synchronized (lock) {
+			specification = buildSpecification();
+		}
+	}
+
+	/**
+	 * @return true if a specification has been built
+	 */
+	public static boolean isBuilt() {
+		return specification != null;
+	}
+
+	public static void clearCache() {
+		synchronized (lock) {
+			specification = null;
+		}
+	}
+
+	private static Specification buildSpecification() {
+		long start = System.currentTimeMillis();
+
+		String json;
+		Swagger swagger;
+		synchronized (SwaggerSpecificationCreator.class) {
+			SwaggerSpecificationCreator.clearCache();
+			SwaggerSpecificationCreator creator = new SwaggerSpecificationCreator();
+			json = creator.getJSON();
+			swagger = creator.getSwagger();
+		}
+
+		Map<String, Document> resourceDocuments = new TreeMap<String, Document>();
+		for (Map.Entry<String, Swagger> fragment : createResourceFragments(swagger).entrySet()) {
+			resourceDocuments.put(fragment.getKey(), new Document(Json.pretty(fragment.getValue())));
+		}
+
+		Document resourceIndex = new Document(Json.pretty(resourceDocuments.keySet()));
+
+		log.info("Swagger specification with " + resourceDocuments.size() + " resources built in "
+		        + (System.currentTimeMillis() - start) + " ms");
+
+		return new Specification(new Document(json), resourceIndex, resourceDocuments);
+	}
+
+	/**
+	 * Splits the given specification by the tags of its operations.
+	 *
+	 * @param swagger the complete specification
+	 * @return the specification fragments by tag
+	 */
+	private static Map<String, Swagger> createResourceFragments(Swagger swagger) {
+		Map<String, Swagger> fragments = new HashMap<String, Swagger>();
+		if (swagger == null || swagger.getPaths() == null) {
+			return fragments;
+		}
+
+		Map<String, String> definitionsJson = new HashMap<String, String>();
+		if (swagger.getDefinitions() != null) {
+			for (Map.Entry<String, Model> definition : swagger.getDefinitions().entrySet()) {
+				definitionsJson.put(definition.getKey(), Json.pretty(definition.getValue()));
+			}
+		}
+
+		for (Map.Entry<String, Path> path : swagger.getPaths().entrySet()) {
+			String tag = getTag(path.getValue());
+			if (tag == null) {
+				continue;
+			}
+
+			Swagger fragment = fragments.get(tag);
+			if (fragment == null) {
+				fragment = new Swagger().info(swagger.getInfo()).basePath(swagger.getBasePath())
+				        .securityDefinition("basic_auth", swagger.getSecurityDefinitions().get("basic_auth"))
+				        .consumes(swagger.getConsumes()).produces(swagger.getProduces());
+				fragment.setSecurity(swagger.getSecurity());
+				fragment.setPaths(new LinkedHashMap<String, Path>());
+				fragments.put(tag, fragment);
+			}
+			fragment.path(path.getKey(), path.getValue());
+		}
+
+		for (Swagger fragment : fragments.values()) {
+			for (String definitionName : getReferencedDefinitions(Json.pretty(fragment.getPaths()), definitionsJson)) {
+				fragment.addDefinition(definitionName, swagger.getDefinitions().get(definitionName));
+			}
+		}
+
+		return fragments;
+	}
+
+	private static String getTag(Path path) {
+		for (Operation operation : path.getOperations()) {
+			List<String> tags = operation.getTags();
+			if (tags != null && !tags.isEmpty()) {
+				return tags.get(0);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Collects the definitions referenced by the given json, including the definitions referenced by
+	 * those definitions.
+	 */
+	private static Set<String> getReferencedDefinitions(String json, Map<String, String> definitionsJson) {
+		Set<String> referenced = new TreeSet<String>();
+		Deque<String> toScan = new ArrayDeque<String>();
+		toScan.add(json);
+
+		while (!toScan.isEmpty()) {
+			Matcher matcher = DEFINITION_REFERENCE.matcher(toScan.poll());
+			while (matcher.find()) {
+				String definitionName = matcher.group(1);
+				if (definitionsJson.containsKey(definitionName) && referenced.add(definitionName)) {
+					toScan.add(definitionsJson.get(definitionName));
+				}
+			}
+		}
+
+		return referenced;
+	}
+
+	/**
+	 * The complete specification, the list of resources and the specification fragment of each
+	 * resource.
+	 */
+	public static class Specification {
+
+		private final Document document;
+
+		private final Document resourceIndex;
+
+		private final Map<String, Document> resourceDocuments;
+
+		private final ConcurrentMap<String, Specification> specificationsByContextPath = new ConcurrentHashMap<String, Specification>();
+
+		Specification(Document document, Document resourceIndex, Map<String, Document> resourceDocuments) {
+			this.document = document;
+			this.resourceIndex = resourceIndex;
+			this.resourceDocuments = Collections.unmodifiableMap(resourceDocuments);
+		}
+
+		public Document getDocument() {
+			return document;
+		}
+
+		/**
+		 * @return a json array of the names of the resources, which fragments are available for
+		 */
+		public Document getResourceIndex() {
+			return resourceIndex;
+		}
+
+		/**
+		 * @param resourceName the name of the resource
+		 * @return the fragment of the specification documenting the given resource or null if the
+		 *         resource is unknown
+		 */
+		public Document getResourceDocument(String resourceName) {
+			return resourceDocuments.get(resourceName);
+		}
+
+		/**
+		 * @param contextPath the context path of the request the specification is served for
+		 * @return this specification with the base path of the REST API under the given context path
+		 */
+		public Specification forContextPath(String contextPath) {
+			Specification specification = specificationsByContextPath.get(contextPath);
+			if (specification == null) {
+				String basePath = contextPath + REST_PATH;
+				Map<String, Document> documents = new TreeMap<String, Document>();
+				for (Map.Entry<String, Document> resourceDocument : resourceDocuments.entrySet()) {
+					documents.put(resourceDocument.getKey(), resourceDocument.getValue().withBasePath(basePath));
+				}
+				specification = new Specification(document.withBasePath(basePath), resourceIndex, documents);
+
+				Specification existing = specificationsByContextPath.putIfAbsent(contextPath, specification);
+				if (existing != null) {
+					specification = existing;
+				}
+			}
+			return specification;
+		}
+	}
+
+	/**
+	 * A serialized json document along with its gzip compressed form and an entity tag.
+	 */
+	public static class Document {
+
+		private final byte[] content;
+
+		private final byte[] gzippedContent;
+
+		private final String etag;
+
+		Document(String json) {
+			this.content = json.getBytes(StandardCharsets.UTF_8);
+			this.gzippedContent = gzip(content);
+			this.etag = "\"" + DigestUtils.md5Hex(content) + "\"";
+		}
+
+		public byte[] getContent() {
+			return content;
+		}
+
+		public byte[] getGzippedContent() {
+			return gzippedContent;
+		}
+
+		public String getEtag() {
+			return etag;
+		}
+
+		Document withBasePath(String basePath) {
+			ObjectNode json;
+			try {
+				json = (ObjectNode) Json.mapper().readTree(content);
+			}
+			catch (IOException e) {
+				// cannot happen as the content has been serialized by the same mapper
+				throw new IllegalStateException(e);
+			}
+			json.put("basePath", basePath);
+			return new Document(Json.pretty(json));
+		}
+
+		private static byte[] gzip(byte[] content) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4);
+			try {
+				GZIPOutputStream gzip = new GZIPOutputStream(out);
+				gzip.write(content);
+				gzip.close();
+			}
+			catch (IOException e) {
+				// cannot happen when writing to memory
+				throw new IllegalStateException(e);
+			}
+			return out.toByteArray();
+		}
+	}
+}
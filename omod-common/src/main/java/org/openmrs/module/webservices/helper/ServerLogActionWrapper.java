@@ -10,22 +10,36 @@
 package org.openmrs.module.webservices.helper;
 
 import org.openmrs.api.context.Context;
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
 import org.openmrs.util.MemoryAppender;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 /**
  * ServerLogActionWrapper used to serve the Server logs
  */
 public abstract class ServerLogActionWrapper {
 	
+	/**
+	 * Finds the log level at the start of a log line, the rest of the line is parsed without
+	 * regular expressions so that parsing is linear in the length of the line
+	 */
+	private static final Pattern LOG_LEVEL_PATTERN = Pattern.compile("(INFO|ERROR|WARN|DEBUG)\\s");
+	
 	public List<String[]> serverLog;
 	
+	private final LogLineSequencer logLineSequencer = new LogLineSequencer();
+	
 	public void setServerLog(List<String[]> serverLog) {
 		this.serverLog = serverLog;
 	}
@@ -42,53 +56,235 @@ public abstract class ServerLogActionWrapper {
 	public List<String[]> getServerLogs() {
 		// Check the GET_SERVER_LOGS privilege to serve the server logs
 		Context.requirePrivilege(RestConstants.PRIV_GET_SERVER_LOGS);
+		
+		List<String[]> finalOutput = new ArrayList<String[]>();
+		for (String logLine : getLogLines()) {
+			finalOutput.add(logLinePatternMatcher(logLine));
+		}
+		return finalOutput;
+	}
+	
+	/**
+	 * Get the server logs written after the given sequence number. Only the returned lines are
+	 * parsed, so polling with the last sequence number of the previous call is cheap.
+	 * 
+	 * @param since the sequence number of the last line already known to the client or null to get
+	 *            all lines, all lines are returned as well if the sequence number is unknown
+	 * @param levels the log levels to include, all levels are included if null or empty
+	 * @param startIndex the number of matching lines to skip
+	 * @param limit the maximum number of lines to return or null for no limit
+	 * @return the matching log lines
+	 */
+	public ServerLogs getServerLogs(Long since, Collection<String> levels, int startIndex, Integer limit) {
+		// Check the GET_SERVER_LOGS privilege to serve the server logs
+		Context.requirePrivilege(RestConstants.PRIV_GET_SERVER_LOGS);
+		
+		List<String> logLines = getLogLines();
+		long firstSequence = logLineSequencer.getFirstSequence(logLines);
+		long lastSequence = firstSequence + logLines.size() - 1;
+		
+		// a sequence number beyond the last line is not known to this server, e.g. after a restart
+		int from = 0;
+		if (since != null && since <= lastSequence) {
+			from = (int) Math.max(0, since - firstSequence + 1);
+		}
+		
+		List<String[]> lines = new ArrayList<String[]>();
+		int skipped = 0;
+		for (int i = from; i < logLines.size(); i++) {
+			String[] logElements = logLinePatternMatcher(logLines.get(i));
+			if (levels != null && !levels.isEmpty() && !levels.contains(logElements[0])) {
+				continue;
+			}
+			if (skipped < startIndex) {
+				skipped++;
+				continue;
+			}
+			if (limit != null && lines.size() >= limit) {
+				// continue from the line after the last returned one
+				return new ServerLogs(lines, firstSequence + i - 1, true);
+			}
+			lines.add(logElements);
+		}
+		
+		return new ServerLogs(lines, lastSequence, false);
+	}
+	
+	/**
+	 * Get the server logs selected by the {@code since}, {@code level}, {@code startIndex} and
+	 * {@code limit} parameters of the given request. All lines are returned if the request has no
+	 * {@code limit} parameter.
+	 * 
+	 * @param context the request context
+	 * @return the serverLog lines, the lastSequence to poll with and whether there are more lines
+	 */
+	public SimpleObject getServerLogs(RequestContext context) {
+		Long since = null;
+		String sinceParameter = context.getParameter("since");
+		if (StringUtils.isNotBlank(sinceParameter)) {
+			try {
+				since = Long.valueOf(sinceParameter.trim());
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalRequestException("The since parameter must be a number: " + sinceParameter);
+			}
+		}
+		
+		Set<String> levels = new HashSet<String>();
+		for (String level : StringUtils.split(StringUtils.defaultString(context.getParameter("level")), ',')) {
+			if (StringUtils.isNotBlank(level)) {
+				levels.add(level.trim().toUpperCase());
+			}
+		}
+		
+		Integer limit = context.getParameter(RestConstants.REQUEST_PROPERTY_FOR_LIMIT) != null ? context.getLimit() : null;
+		int startIndex = context.getStartIndex() != null ? context.getStartIndex() : 0;
+		
+		ServerLogs serverLogs = getServerLogs(since, levels, startIndex, limit);
+		SimpleObject rest = new SimpleObject();
+		rest.put("serverLog", serverLogs.getLines());
+		rest.put("lastSequence", serverLogs.getLastSequence());
+		rest.put("hasMore", serverLogs.isHasMore());
+		return rest;
+	}
+	
+	/**
+	 * @return the raw log lines currently held by the memory appender
+	 */
+	protected List<String> getLogLines() {
 		// Use the Memory Appender to retrieve the logs
 		MemoryAppender memoryAppender = getMemoryAppender();
-
 		if (memoryAppender == null) {
 			return Collections.emptyList();
 		}
-
-		List<String> logLines = memoryAppender.getLogLines();
-		List<String[]> finalOutput = new ArrayList<String[]>();
-		for (String logLine : logLines) {
-			String[] logElements = logLinePatternMatcher(logLine);
-			finalOutput.add(logElements);
-		}
-		return finalOutput;
+		return memoryAppender.getLogLines();
 	}
 	
 	/**
-	 * Match and find the patterns for log line
+	 * Match and find the patterns for log line. A log line has the form
+	 * {@code LEVEL - location |date| message}, where the message may span multiple lines.
 	 * 
 	 * @param logLine Log lines from the terminal
 	 * @return Array of matched patterns
 	 */
 	public String[] logLinePatternMatcher(String logLine) {
 		String[] logElements = new String[4];
-		// Defined Pattern to analyze
-		String regExPatternType = "(INFO|ERROR|WARN|DEBUG)\\s.*?[-].*?\\s((?:[A-z][A-z].+))\\s[|](.*?)[|]\\s((.*\\n*)+)";
-		try {
-			Pattern pattern = Pattern.compile(regExPatternType);
-			Matcher matcher = pattern.matcher(logLine);
-			if (matcher.find()) {
-				// If pattern matches to the message
-				logElements[0] = matcher.group(1);
-				logElements[1] = matcher.group(2);
-				logElements[2] = matcher.group(3);
-				logElements[3] = matcher.group(4);
-			}
+		
+		Matcher matcher = LOG_LEVEL_PATTERN.matcher(logLine);
+		if (!matcher.find()) {
 			return logElements;
 		}
-		catch (PatternSyntaxException e) {
-			// In case of Exception, It will return array with error information
-			logElements[0] = "ERROR";
-			logElements[1] = "";
-			logElements[2] = "PatternSyntaxException";
-			logElements[3] = e.getMessage();
+		
+		int dash = logLine.indexOf('-', matcher.end(1));
+		int dateStart = dash < 0 ? -1 : logLine.indexOf(" |", dash);
+		int dateEnd = dateStart < 0 ? -1 : logLine.indexOf('|', dateStart + 2);
+		if (dateEnd < 0 || dateEnd + 1 >= logLine.length() || !Character.isWhitespace(logLine.charAt(dateEnd + 1))) {
 			return logElements;
 		}
+		
+		logElements[0] = matcher.group(1);
+		logElements[1] = logLine.substring(dash + 1, dateStart).trim();
+		logElements[2] = logLine.substring(dateStart + 2, dateEnd);
+		logElements[3] = logLine.substring(dateEnd + 2);
+		return logElements;
 	}
-
+	
 	public abstract MemoryAppender getMemoryAppender();
+	
+	/**
+	 * A page of server log lines
+	 */
+	public static class ServerLogs {
+		
+		private final List<String[]> lines;
+		
+		private final long lastSequence;
+		
+		private final boolean hasMore;
+		
+		public ServerLogs(List<String[]> lines, long lastSequence, boolean hasMore) {
+			this.lines = lines;
+			this.lastSequence = lastSequence;
+			this.hasMore = hasMore;
+		}
+		
+		public List<String[]> getLines() {
+			return lines;
+		}
+		
+		/**
+		 * @return the sequence number to pass as {@code since} to get the lines following this page
+		 */
+		public long getLastSequence() {
+			return lastSequence;
+		}
+		
+		public boolean isHasMore() {
+			return hasMore;
+		}
+	}
+	
+	/**
+	 * Assigns sequence numbers to the lines of the memory appender, which is a ring buffer without
+	 * sequence numbers of its own. Each snapshot of the buffer is aligned with the previous one to
+	 * find out how many lines have been evicted in between.
+	 */
+	static class LogLineSequencer {
+		
+		private List<String> previousLines = Collections.emptyList();
+		
+		private long previousFirstSequence = 1;
+		
+		/**
+		 * @param lines the current lines of the buffer
+		 * @return the sequence number of the first of the given lines
+		 */
+		synchronized long getFirstSequence(List<String> lines) {
+			int evicted = getEvictedCount(previousLines, lines);
+			previousFirstSequence += evicted < 0 ? previousLines.size() : evicted;
+			previousLines = new ArrayList<String>(lines);
+			return previousFirstSequence;
+		}
+		
+		/**
+		 * Finds the first line of the previous snapshot from which on the previous lines match the
+		 * start of the current snapshot, in linear time by matching the current lines against the
+		 * previous ones like the Knuth-Morris-Pratt algorithm does.
+		 * 
+		 * @return the number of lines at the start of the previous snapshot which are not part of
+		 *         the current snapshot or -1 if the snapshots do not overlap
+		 */
+		static int getEvictedCount(List<String> previous, List<String> current) {
+			if (current.isEmpty()) {
+				return -1;
+			}
+			
+			// the length of the longest proper prefix of each prefix of the current lines which is its suffix too
+			int[] fallback = new int[current.size()];
+			for (int i = 1, matched = 0; i < current.size(); i++) {
+				while (matched > 0 && !current.get(i).equals(current.get(matched))) {
+					matched = fallback[matched - 1];
+				}
+				if (current.get(i).equals(current.get(matched))) {
+					matched++;
+				}
+				fallback[i] = matched;
+			}
+			
+			int matched = 0;
+			for (int i = 0; i < previous.size(); i++) {
+				while (matched > 0 && !previous.get(i).equals(current.get(matched))) {
+					matched = fallback[matched - 1];
+				}
+				if (previous.get(i).equals(current.get(matched))) {
+					matched++;
+				}
+				if (matched == current.size()) {
+					// all current lines are part of the previous snapshot
+					return i + 1 - matched;
+				}
+			}
+			return matched > 0 ? previous.size() - matched : -1;
+		}
+	}
 }
@@ -0,0 +1,324 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.representation.CustomRepresentation;
+import org.openmrs.module.webservices.rest.web.representation.FullRepresentation;
+import org.openmrs.module.webservices.rest.web.representation.RefRepresentation;
+import org.openmrs.module.webservices.rest.web.representation.Representation;
+import org.openmrs.module.webservices.rest.web.response.RequestTooLargeException;
+import org.openmrs.module.webservices.rest.web.response.TooManyRequestsException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits requests based on their estimated cost and limits the number of requests each user can
+ * make at the same time.
+ * <p>
+ * The cost of a request is estimated as the depth of the requested representation times the number
+ * of requested results times the weight of the resource configured in the
+ * {@link RestConstants#RESOURCE_COST_WEIGHTS_GLOBAL_PROPERTY_NAME} global property. A request is
+ * rejected with 413 (Payload Too Large) if its cost exceeds the maximum configured for its resource
+ * in the {@link RestConstants#RESOURCE_MAX_REQUEST_COSTS_GLOBAL_PROPERTY_NAME} or else the
+ * {@link RestConstants#MAX_REQUEST_COST_GLOBAL_PROPERTY_NAME} global property, and with 429 (Too Many
+ * Requests) if the total cost of the requests being handled would exceed the
+ * {@link RestConstants#MAX_CONCURRENT_REQUEST_COST_GLOBAL_PROPERTY_NAME} global property.
+ * </p>
+ * <p>
+ * All limits are disabled unless configured.
+ * </p>
+ */
+public class AdmissionControl implements GlobalPropertyListener {
+	
+	private static final Log log = LogFactory.getLog(AdmissionControl.class);
+	
+	private static final AdmissionControl instance = new AdmissionControl();
+	
+	private static final List<String> PROPERTY_NAMES = Arrays.asList(
+	    RestConstants.MAX_REQUEST_COST_GLOBAL_PROPERTY_NAME,
+	    RestConstants.RESOURCE_MAX_REQUEST_COSTS_GLOBAL_PROPERTY_NAME,
+	    RestConstants.RESOURCE_COST_WEIGHTS_GLOBAL_PROPERTY_NAME,
+	    RestConstants.MAX_CONCURRENT_REQUEST_COST_GLOBAL_PROPERTY_NAME,
+	    RestConstants.MAX_CONCURRENT_REQUESTS_PER_USER_GLOBAL_PROPERTY_NAME);
+	
+	private volatile Settings settings;
+	
+	private final AtomicLong concurrentCost = new AtomicLong();
+	
+	private final ConcurrentMap<Integer, AtomicInteger> concurrentRequestsByUserId = new ConcurrentHashMap<Integer, AtomicInteger>();
+	
+	private AdmissionControl() {
+	}
+	
+	public static AdmissionControl getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Estimates the cost of the given request.
+	 *
+	 * @param resourceName the name of the requested resource, e.g. "obs" or "patient/identifier"
+	 * @param context the request context
+	 * @param single true if a single object is requested, false if a list of objects is requested
+	 * @return the estimated cost
+	 */
+	public long estimateCost(String resourceName, RequestContext context, boolean single) {
+		long results = single || context.getLimit() == null ? 1 : context.getLimit();
+		return getDepth(context.getRepresentation()) * results * getSettings().getWeight(resourceName);
+	}
+	
+	/**
+	 * Admits the given request unless its estimated cost exceeds the configured limits. Admitted
+	 * requests must be {@link #release(long) released} once handled.
+	 *
+	 * @param resourceName the name of the requested resource, e.g. "obs" or "patient/identifier"
+	 * @param context the request context
+	 * @param single true if a single object is requested, false if a list of objects is requested
+	 * @return the cost to release once the request has been handled
+	 * @throws RequestTooLargeException if the cost of the request exceeds the maximum cost
+	 * @throws TooManyRequestsException if the total cost of the requests being handled would exceed
+	 *             the maximum concurrent cost
+	 */
+	public long admit(String resourceName, RequestContext context, boolean single) {
+		Settings current = getSettings();
+		if (current.maxRequestCost < 0 && current.resourceMaxRequestCosts.isEmpty() && current.maxConcurrentCost < 0) {
+			return 0;
+		}
+		
+		long cost = estimateCost(resourceName, context, single);
+		long maxCost = current.getMaxRequestCost(resourceName);
+		if (maxCost >= 0 && cost > maxCost) {
+			throw new RequestTooLargeException("The estimated cost " + cost + " of the request exceeds the maximum of "
+			        + maxCost + " for " + resourceName + ", request fewer results with the "
+			        + RestConstants.REQUEST_PROPERTY_FOR_LIMIT + " parameter or a smaller representation with the "
+			        + RestConstants.REQUEST_PROPERTY_FOR_REPRESENTATION + " parameter");
+		}
+		
+		if (current.maxConcurrentCost < 0) {
+			return 0;
+		}
+		while (true) {
+			long total = concurrentCost.get();
+			// a single request is always admitted so that requests above the budget are not starved
+			if (total > 0 && total + cost > current.maxConcurrentCost) {
+				throw new TooManyRequestsException("Too many expensive requests are being handled, try again later");
+			}
+			if (concurrentCost.compareAndSet(total, total + cost)) {
+				return cost;
+			}
+		}
+	}
+	
+	/**
+	 * Releases the cost of an admitted request.
+	 *
+	 * @param cost the cost returned by {@link #admit(String, RequestContext, boolean)}
+	 */
+	public void release(long cost) {
+		if (cost > 0) {
+			concurrentCost.addAndGet(-cost);
+		}
+	}
+	
+	/**
+	 * Counts a request of the given user unless the user is already making the maximum number of
+	 * requests at the same time. Counted requests must be {@link #releaseUserRequest(Integer)
+	 * released} once handled.
+	 *
+	 * @param userId the id of the user
+	 * @return true if the request is counted, false if the user is making too many requests
+	 */
+	public boolean tryAcquireUserRequest(Integer userId) {
+		if (userId == null) {
+			return true;
+		}
+		
+		// requests are counted even without limit, so that they are released correctly once limited
+		int max = getSettings().maxConcurrentRequestsPerUser;
+		AtomicInteger requests = concurrentRequestsByUserId.get(userId);
+		if (requests == null) {
+			AtomicInteger newRequests = new AtomicInteger();
+			requests = concurrentRequestsByUserId.putIfAbsent(userId, newRequests);
+			if (requests == null) {
+				requests = newRequests;
+			}
+		}
+		while (true) {
+			int current = requests.get();
+			if (max >= 0 && current >= max) {
+				return false;
+			}
+			if (requests.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Releases a request counted by {@link #tryAcquireUserRequest(Integer)}.
+	 *
+	 * @param userId the id of the user
+	 */
+	public void releaseUserRequest(Integer userId) {
+		AtomicInteger requests = userId != null ? concurrentRequestsByUserId.get(userId) : null;
+		if (requests == null) {
+			return;
+		}
+		while (true) {
+			int current = requests.get();
+			if (current <= 0 || requests.compareAndSet(current, current - 1)) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the depth of the given representation, i.e. 1 for ref, 2 for default and other named
+	 * representations and 3 for full. The depth of a custom representation is the depth of its
+	 * most nested property including the depth of the representation requested for it.
+	 *
+	 * @param representation the representation
+	 * @return the depth
+	 */
+	static int getDepth(Representation representation) {
+		if (representation instanceof RefRepresentation) {
+			return 1;
+		} else if (representation instanceof FullRepresentation) {
+			return 3;
+		} else if (representation instanceof CustomRepresentation) {
+			return getCustomDepth(representation.getRepresentation());
+		}
+		return 2;
+	}
+	
+	private static int getCustomDepth(String specification) {
+		int depth = 1;
+		int nestingLevel = specification.startsWith("(") ? 0 : 1;
+		for (int i = 0; i < specification.length(); i++) {
+			char c = specification.charAt(i);
+			if (c == '(') {
+				nestingLevel++;
+				depth = Math.max(depth, nestingLevel);
+			} else if (c == ')') {
+				nestingLevel--;
+			} else if (c == ':') {
+				String rep = specification.substring(i + 1).split("[,)]", 2)[0].trim();
+				if ("ref".equalsIgnoreCase(rep)) {
+					depth = Math.max(depth, nestingLevel + 1);
+				} else if ("default".equalsIgnoreCase(rep)) {
+					depth = Math.max(depth, nestingLevel + 2);
+				} else if ("full".equalsIgnoreCase(rep)) {
+					depth = Math.max(depth, nestingLevel + 3);
+				}
+			}
+		}
+		return depth;
+	}
+	
+	private Settings getSettings() {
+		Settings current = settings;
+		if (current == null) {
+			current = new Settings();
+			settings = current;
+		}
+		return current;
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return PROPERTY_NAMES.contains(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		settings = null;
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		settings = null;
+	}
+	
+	/**
+	 * The limits as configured by the global properties when loaded.
+	 */
+	private static class Settings {
+		
+		private final long maxRequestCost;
+		
+		private final Map<String, Long> resourceMaxRequestCosts;
+		
+		private final Map<String, Long> resourceWeights;
+		
+		private final long maxConcurrentCost;
+		
+		private final int maxConcurrentRequestsPerUser;
+		
+		private Settings() {
+			maxRequestCost = parseLong(getGlobalProperty(RestConstants.MAX_REQUEST_COST_GLOBAL_PROPERTY_NAME));
+			resourceMaxRequestCosts = RestUtil.parseValuesByResourceName(getGlobalProperty(
+			    RestConstants.RESOURCE_MAX_REQUEST_COSTS_GLOBAL_PROPERTY_NAME));
+			resourceWeights = RestUtil.parseValuesByResourceName(getGlobalProperty(
+			    RestConstants.RESOURCE_COST_WEIGHTS_GLOBAL_PROPERTY_NAME));
+			maxConcurrentCost = parseLong(getGlobalProperty(
+			    RestConstants.MAX_CONCURRENT_REQUEST_COST_GLOBAL_PROPERTY_NAME));
+			maxConcurrentRequestsPerUser = (int) parseLong(getGlobalProperty(
+			    RestConstants.MAX_CONCURRENT_REQUESTS_PER_USER_GLOBAL_PROPERTY_NAME));
+		}
+		
+		private long getMaxRequestCost(String resourceName) {
+			Long max = resourceMaxRequestCosts.get(resourceName);
+			return max != null ? max : maxRequestCost;
+		}
+		
+		private long getWeight(String resourceName) {
+			Long weight = resourceWeights.get(resourceName);
+			return weight != null ? weight : 1;
+		}
+		
+		private static String getGlobalProperty(String propertyName) {
+			return Context.getAdministrationService().getGlobalProperty(propertyName);
+		}
+		
+		private static long parseLong(String value) {
+			if (StringUtils.isBlank(value)) {
+				return -1;
+			}
+			try {
+				return Long.parseLong(value.trim());
+			}
+			catch (NumberFormatException e) {
+				log.warn("Ignoring the invalid admission control limit " + value);
+				return -1;
+			}
+		}
+	}
+}
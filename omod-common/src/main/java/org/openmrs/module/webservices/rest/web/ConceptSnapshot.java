@@ -0,0 +1,367 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openmrs.Concept;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.webservices.rest.web.api.RestHelperService;
+import org.openmrs.module.webservices.rest.web.representation.Representation;
+import org.openmrs.util.OpenmrsUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds gzip compressed snapshots of the concept dictionary in the application data directory, so
+ * that clients can download the whole dictionary at once instead of paging through the concept
+ * resource.
+ * <p>
+ * A snapshot holds the full representation of the concepts, i.e. including their names, mappings,
+ * answers and set members. It is versioned by the time of the latest change of the dictionary in
+ * milliseconds. Besides full snapshots, delta snapshots hold the concepts created, changed or
+ * retired between two versions. Purged concepts cannot be reported.
+ * </p>
+ * <p>
+ * Snapshots are built one at a time by a daemon thread on the first request for them, builds
+ * requested before the module has been started wait for it. The full
+ * snapshots of the latest {@value #MAX_FULL_SNAPSHOTS} versions are kept, delta snapshots are only
+ * built from these versions and deleted once a newer one has been built.
+ * </p>
+ */
+public class ConceptSnapshot {
+	
+	private static final Log log = LogFactory.getLog(ConceptSnapshot.class);
+	
+	private static final int PAGE_SIZE = 500;
+	
+	private static final Pattern FILE_NAME = Pattern.compile("concepts-(?:(\\d+)-)?(\\d+)\\.json\\.gz");
+	
+	/**
+	 * The number of full snapshots which are kept, so that delta snapshots can be built from them
+	 */
+	private static final int MAX_FULL_SNAPSHOTS = 3;
+	
+	private static final Set<String> building = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	private static final Queue<Runnable> pendingBuilds = new LinkedList<Runnable>();
+	
+	private static boolean workerRunning;
+	
+	private static volatile DaemonToken daemonToken;
+	
+	private static final Object versionLock = new Object();
+	
+	private static Long currentVersion;
+	
+	private static long versionChanges;
+	
+	private ConceptSnapshot() {
+	}
+	
+	/**
+	 * Sets the token to run the builds in a daemon thread with and starts the builds which have been
+	 * requested before.
+	 * 
+	 * @param token the daemon token of the module
+	 */
+	public static void setDaemonToken(DaemonToken token) {
+		daemonToken = token;
+		if (token != null) {
+			startWorker(token);
+		}
+	}
+	
+	/**
+	 * Gets the current version of the concept dictionary. It is cached until the dictionary is
+	 * changed, see {@link #invalidateCurrentVersion()}.
+	 * 
+	 * @return the current version of the concept dictionary or 0 if there are no concepts
+	 */
+	public static long getCurrentVersion() {
+		long changes;
+		synchronized (versionLock) {
+			if (currentVersion != null) {
+				return currentVersion;
+			}
+			changes = versionChanges;
+		}
+		
+		Date latestChange = Context.getService(RestHelperService.class).getLatestConceptChange();
+		long version = latestChange != null ? latestChange.getTime() : 0;
+		synchronized (versionLock) {
+			// a change made while querying might not be part of the version
+			if (changes == versionChanges) {
+				currentVersion = version;
+			}
+		}
+		return version;
+	}
+	
+	/**
+	 * Discards the cached current version of the concept dictionary, so that it is queried again on
+	 * the next request. It must be called whenever concepts are changed.
+	 */
+	public static void invalidateCurrentVersion() {
+		synchronized (versionLock) {
+			currentVersion = null;
+			versionChanges++;
+		}
+	}
+	
+	/**
+	 * @param since the version a delta snapshot starts from or null for a full snapshot
+	 * @param version the version of the snapshot
+	 * @return the file the snapshot is stored in, which does not exist if it has not been built yet
+	 */
+	public static File getFile(Long since, long version) {
+		String name = since != null ? "concepts-" + since + "-" + version + ".json.gz" : "concepts-" + version + ".json.gz";
+		return new File(getDirectory(), name);
+	}
+	
+	/**
+	 * @return the full snapshot of the latest version which has been built or null if there is none
+	 */
+	public static File getLatestFullSnapshot() {
+		List<Long> versions = getFullSnapshotVersions();
+		return versions.isEmpty() ? null : getFile(null, versions.get(0));
+	}
+	
+	/**
+	 * @param version a version of the concept dictionary
+	 * @return true if there is a full snapshot of the given version, i.e. delta snapshots can be
+	 *         built from it
+	 */
+	public static boolean hasFullSnapshot(long version) {
+		return getFile(null, version).isFile();
+	}
+	
+	/**
+	 * Builds the given snapshot in the background unless it is already being built or waiting to be
+	 * built. The snapshots are built one after the other by a single daemon thread. If the daemon
+	 * token has not been set yet, i.e. before the module has been started, the build waits until it
+	 * is set.
+	 * 
+	 * @param since the version a delta snapshot starts from or null for a full snapshot
+	 * @param version the version of the snapshot
+	 */
+	public static void buildInBackground(final Long since, final long version) {
+		final String name = getFile(since, version).getName();
+		if (!building.add(name)) {
+			return;
+		}
+		
+		Runnable build = new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					build(since, version);
+				}
+				catch (Exception e) {
+					log.error("Failed to build the concept snapshot " + name, e);
+				}
+				finally {
+					building.remove(name);
+				}
+			}
+		};
+		
+		synchronized (pendingBuilds) {
+			pendingBuilds.add(build);
+		}
+		DaemonToken token = daemonToken;
+		if (token == null) {
+			return;
+		}
+		try {
+			startWorker(token);
+		}
+		catch (RuntimeException e) {
+			synchronized (pendingBuilds) {
+				pendingBuilds.remove(build);
+			}
+			building.remove(name);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Starts the daemon thread running the pending builds unless it is running already.
+	 */
+	private static void startWorker(DaemonToken token) {
+		synchronized (pendingBuilds) {
+			if (workerRunning || pendingBuilds.isEmpty()) {
+				return;
+			}
+			workerRunning = true;
+		}
+		try {
+			Daemon.runInDaemonThread(new Runnable() {
+				
+				@Override
+				public void run() {
+					while (true) {
+						Runnable next;
+						synchronized (pendingBuilds) {
+							next = pendingBuilds.poll();
+							if (next == null) {
+								workerRunning = false;
+								return;
+							}
+						}
+						next.run();
+					}
+				}
+			}, token);
+		}
+		catch (RuntimeException e) {
+			synchronized (pendingBuilds) {
+				workerRunning = false;
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Builds the given snapshot. It is written to a temporary file first, so that an incomplete
+	 * snapshot is never served.
+	 * 
+	 * @param since the version a delta snapshot starts from or null for a full snapshot
+	 * @param version the version of the snapshot
+	 * @return the file the snapshot has been stored in
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public static File build(Long since, long version) throws IOException {
+		long start = System.currentTimeMillis();
+		File file = getFile(since, version);
+		File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		
+		int count = 0;
+		ObjectMapper mapper = new ObjectMapper();
+		OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			JsonGenerator json = mapper.getJsonFactory().createJsonGenerator(out, JsonEncoding.UTF8);
+			json.writeStartObject();
+			json.writeNumberField("version", version);
+			if (since != null) {
+				json.writeNumberField("since", since);
+			}
+			json.writeArrayFieldStart("concepts");
+			
+			RestHelperService restHelperService = Context.getService(RestHelperService.class);
+			Date sinceDate = since != null ? new Date(since) : null;
+			Date until = new Date(version);
+			Integer lastId = null;
+			List<Concept> concepts;
+			do {
+				concepts = restHelperService.getObjectsChangedSince(Concept.class, sinceDate, until, lastId, PAGE_SIZE);
+				for (Concept concept : concepts) {
+					json.writeObject(ConversionUtil.convertToRepresentation(concept, Representation.FULL));
+					lastId = concept.getConceptId();
+				}
+				count += concepts.size();
+				// the concepts of a page are not needed anymore
+				Context.clearSession();
+			} while (concepts.size() == PAGE_SIZE);
+			
+			json.writeEndArray();
+			json.writeEndObject();
+			json.close();
+		}
+		finally {
+			out.close();
+		}
+		
+		if (!tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("Failed to move the concept snapshot to " + file);
+		}
+		deleteOutdatedSnapshots(since, version);
+		
+		log.info("Built the concept snapshot " + file.getName() + " with " + count + " concepts in "
+		        + (System.currentTimeMillis() - start) + " ms");
+		return file;
+	}
+	
+	/**
+	 * Deletes the delta snapshots of older versions and, once a full snapshot has been built, the
+	 * full snapshots beyond the latest {@value #MAX_FULL_SNAPSHOTS} along with the delta snapshots
+	 * starting from them.
+	 */
+	private static void deleteOutdatedSnapshots(Long since, long version) {
+		File[] files = getDirectory().listFiles();
+		if (files == null) {
+			return;
+		}
+		List<Long> fullVersions = getFullSnapshotVersions();
+		List<Long> keptVersions = fullVersions.subList(0, Math.min(fullVersions.size(), MAX_FULL_SNAPSHOTS));
+		for (File file : files) {
+			Matcher matcher = FILE_NAME.matcher(file.getName());
+			if (!matcher.matches()) {
+				continue;
+			}
+			
+			boolean outdated;
+			if (matcher.group(1) == null) {
+				outdated = since == null && !keptVersions.contains(Long.valueOf(matcher.group(2)));
+			} else {
+				outdated = Long.parseLong(matcher.group(2)) < version
+				        || !keptVersions.contains(Long.valueOf(matcher.group(1)));
+			}
+			if (outdated && !file.delete()) {
+				log.warn("Failed to delete the outdated concept snapshot " + file);
+			}
+		}
+	}
+	
+	/**
+	 * @return the versions of the full snapshots which have been built, newest first
+	 */
+	private static List<Long> getFullSnapshotVersions() {
+		List<Long> versions = new ArrayList<Long>();
+		File[] files = getDirectory().listFiles();
+		if (files != null) {
+			for (File file : files) {
+				Matcher matcher = FILE_NAME.matcher(file.getName());
+				if (matcher.matches() && matcher.group(1) == null) {
+					versions.add(Long.valueOf(matcher.group(2)));
+				}
+			}
+		}
+		Collections.sort(versions, Collections.reverseOrder());
+		return versions;
+	}
+	
+	private static File getDirectory() {
+		return OpenmrsUtil.getDirectoryInApplicationDataDirectory(RestConstants.MODULE_ID + File.separator
+		        + "conceptSnapshots");
+	}
+}
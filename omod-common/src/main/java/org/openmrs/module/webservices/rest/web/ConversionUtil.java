@@ -412,12 +412,18 @@ public class ConversionUtil {
 				// otherwise we have no choice but to return the plain object
 				return o;
 			}
+			// stop converting (and lazily loading) the objects of a request which has timed out
+			RequestDeadline.check();
+			long conversionStart = RequestTimings.startTimer(RequestTimings.CONVERSION);
 			try {
 				return converter.asRepresentation(o, rep);
 			}
 			catch (Exception ex) {
 				throw new ConversionException("converting " + o.getClass() + " to " + rep, ex);
 			}
+			finally {
+				RequestTimings.stopTimer(RequestTimings.CONVERSION, conversionStart);
+			}
 		}
 	}
 	
@@ -0,0 +1,86 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openmrs.api.context.Context;
+import org.openmrs.messagesource.MessageSourceService;
+
+/**
+ * Caches the localizations of metadata, e.g. ui.i18n.Concept.name.&lt;uuid&gt;, per locale. Since
+ * most metadata is not localized, missing messages are cached as well.
+ * <p>
+ * The cache is cleared whenever the context is refreshed, which is when the message sources are
+ * reloaded, whenever the message source service or its active message source is replaced and, by
+ * the {@link org.openmrs.module.webservices.rest.web.api.impl.LocalizationCacheAdvice}, whenever
+ * messages are added or removed at runtime.
+ * </p>
+ */
+public class LocalizationCache {
+	
+	private static final int MAX_MESSAGES_PER_LOCALE = 100000;
+	
+	private static final ConcurrentMap<Locale, ConcurrentMap<String, String>> messagesByLocale = new ConcurrentHashMap<Locale, ConcurrentMap<String, String>>();
+	
+	private static volatile MessageSourceService cachedMessageSourceService;
+	
+	private static volatile Object cachedActiveMessageSource;
+	
+	private LocalizationCache() {
+	}
+	
+	/**
+	 * Gets the message for the given code in the locale of the authenticated user.
+	 * 
+	 * @param code the message code
+	 * @return the message or null if there is no message for the code
+	 */
+	public static String getMessage(String code) {
+		MessageSourceService messageSourceService = Context.getMessageSourceService();
+		Object activeMessageSource = messageSourceService.getActiveMessageSource();
+		if (messageSourceService != cachedMessageSourceService || activeMessageSource != cachedActiveMessageSource) {
+			clearCache();
+			cachedMessageSourceService = messageSourceService;
+			cachedActiveMessageSource = activeMessageSource;
+		}
+		
+		Locale locale = Context.getLocale();
+		ConcurrentMap<String, String> messages = messagesByLocale.get(locale);
+		if (messages == null) {
+			messages = new ConcurrentHashMap<String, String>();
+			ConcurrentMap<String, String> existing = messagesByLocale.putIfAbsent(locale, messages);
+			if (existing != null) {
+				messages = existing;
+			}
+		}
+		
+		String message = messages.get(code);
+		if (message == null) {
+			message = messageSourceService.getMessage(code);
+			if (message == null) {
+				// the message source returns the code itself for missing messages as well
+				message = code;
+			}
+			if (messages.size() >= MAX_MESSAGES_PER_LOCALE) {
+				messages.clear();
+			}
+			messages.put(code, message);
+		}
+		
+		return message.equals(code) ? null : message;
+	}
+	
+	public static void clearCache() {
+		messagesByLocale.clear();
+	}
+}
@@ -9,12 +9,19 @@
  */
 package org.openmrs.module.webservices.rest.web;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.webservices.rest.web.annotation.ResourceIndexProcessor;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
@@ -34,6 +41,8 @@ public class OpenmrsClassScanner {
 	
 	private static final OpenmrsClassScanner instance = new OpenmrsClassScanner();
 	
+	private static final String BASE_PACKAGE_PATH = "org/openmrs/";
+	
 	private final MetadataReaderFactory metadataReaderFactory;
 	
 	private final ResourcePatternResolver resourceResolver;
@@ -58,6 +67,12 @@ public class OpenmrsClassScanner {
 	
 	/**
 	 * Searches for classes extending or implementing the given type.
+	 * <p>
+	 * When searching for REST {@link org.openmrs.module.webservices.rest.web.resource.api.Resource}s,
+	 * jars and class folders containing a {@link ResourceIndexProcessor#RESOURCE_INDEX_LOCATION}
+	 * index are not scanned. Only the annotated resources listed in their index are returned for
+	 * them. All other locations are scanned class by class.
+	 * </p>
 	 * 
 	 * @param <T>
 	 * @param type
@@ -70,53 +85,188 @@ public class OpenmrsClassScanner {
 		
 		List<Class<? extends T>> types = new ArrayList<Class<? extends T>>();
 		
-		String pattern = "classpath*:org/openmrs/**/*.class";
+		Set<String> indexedClasspathRoots = new HashSet<String>();
+		
+		if (org.openmrs.module.webservices.rest.web.resource.api.Resource.class.isAssignableFrom(type)) {
+			
+			indexedClasspathRoots = addIndexedClasses(type, concrete, types);
+			
+		}
 		
-		Resource[] resources = resourceResolver.getResources(pattern);
+		Resource[] packageRoots = resourceResolver.getResources("classpath*:" + BASE_PACKAGE_PATH);
 		
 		TypeFilter typeFilter = new AssignableTypeFilter(type);
 		
-		for (Resource resource : resources) {
+		for (Resource packageRoot : packageRoots) {
 			
-			try {
+			String packageRootUrl = packageRoot.getURL().toString();
+			
+			if (indexedClasspathRoots.contains(getClasspathRoot(packageRootUrl, BASE_PACKAGE_PATH))) {
+				
+				continue;
 				
-				MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(resource);
+			}
+			
+			Resource[] resources = resourceResolver.getResources(packageRootUrl + "**/*.class");
+			
+			for (Resource resource : resources) {
 				
-				if (typeFilter.match(metadataReader, metadataReaderFactory)
-				        && concrete == metadataReader.getClassMetadata().isConcrete()) {
+				try {
 					
-					String classname = metadataReader.getClassMetadata().getClassName();
+					MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(resource);
 					
-					try {
+					if (typeFilter.match(metadataReader, metadataReaderFactory)
+					        && concrete == metadataReader.getClassMetadata().isConcrete()) {
 						
-						@SuppressWarnings("unchecked")
-						Class<? extends T> metadata = (Class<? extends T>) OpenmrsClassLoader.getInstance()
-						        .loadClass(classname);
+						String classname = metadataReader.getClassMetadata().getClassName();
+						
+						try {
+							
+							@SuppressWarnings("unchecked")
+							Class<? extends T> metadata = (Class<? extends T>) OpenmrsClassLoader.getInstance()
+							        .loadClass(classname);
+							
+							types.add(metadata);
+							
+						}
 						
-						types.add(metadata);
+						catch (ClassNotFoundException e) {
+							
+							throw new IOException("Class cannot be loaded: " + classname, e);
+							
+						}
 						
 					}
 					
-					catch (ClassNotFoundException e) {
+				}
+				
+				catch (IOException e) {
+					
+					log.debug("Resource cannot be loaded: " + resource);
+					
+				}
+				
+			}
+			
+		}
+		
+		return types;
+		
+	}
+	
+	/**
+	 * Adds the classes listed in resource indexes, which match the given type, to the given list.
+	 * 
+	 * @param type the type the classes must extend or implement
+	 * @param concrete true if only concrete classes should be added
+	 * @param types the list to add the classes to
+	 * @return the classpath roots that have been read from an index and need not be scanned
+	 * @throws IOException
+	 */
+	
+	private <T> Set<String> addIndexedClasses(Class<? extends T> type, boolean concrete, List<Class<? extends T>> types)
+	        throws IOException {
+		
+		Set<String> indexedClasspathRoots = new HashSet<String>();
+		
+		Resource[] indexes = resourceResolver.getResources("classpath*:"
+		        + ResourceIndexProcessor.RESOURCE_INDEX_LOCATION);
+		
+		for (Resource index : indexes) {
+			
+			List<Class<? extends T>> indexedTypes = new ArrayList<Class<? extends T>>();
+			
+			try {
+				
+				for (String classname : readIndex(index)) {
+					
+					Class<?> indexedClass = OpenmrsClassLoader.getInstance().loadClass(classname);
+					
+					boolean isConcrete = !indexedClass.isInterface() && !Modifier.isAbstract(indexedClass.getModifiers());
+					
+					if (type.isAssignableFrom(indexedClass) && concrete == isConcrete) {
 						
-						throw new IOException("Class cannot be loaded: " + classname, e);
+						@SuppressWarnings("unchecked")
+						Class<? extends T> indexedType = (Class<? extends T>) indexedClass;
+						
+						indexedTypes.add(indexedType);
 						
 					}
-
 					
 				}
 				
 			}
 			
-			catch (IOException e) {
+			catch (ClassNotFoundException e) {
 				
-				log.debug("Resource cannot be loaded: " + resource);
+				log.warn("Index " + index + " is out of date and will be ignored, falling back to scanning", e);
+				
+				continue;
 				
 			}
 			
+			catch (LinkageError e) {
+				
+				log.warn("Index " + index + " references a class which cannot be linked, falling back to scanning", e);
+				
+				continue;
+				
+			}
+			
+			types.addAll(indexedTypes);
+			
+			indexedClasspathRoots.add(getClasspathRoot(index.getURL().toString(),
+			    ResourceIndexProcessor.RESOURCE_INDEX_LOCATION));
+			
 		}
 		
-		return types;
+		return indexedClasspathRoots;
+		
+	}
+	
+	private List<String> readIndex(Resource index) throws IOException {
+		
+		List<String> classnames = new ArrayList<String>();
+		
+		BufferedReader reader = new BufferedReader(new InputStreamReader(index.getInputStream(), StandardCharsets.UTF_8));
+		
+		try {
+			
+			String line;
+			
+			while ((line = reader.readLine()) != null) {
+				
+				line = line.trim();
+				
+				if (!line.isEmpty()) {
+					
+					classnames.add(line);
+					
+				}
+				
+			}
+			
+		}
+		
+		finally {
+			
+			reader.close();
+			
+		}
+		
+		return classnames;
+		
+	}
+	
+	/**
+	 * @param url the url of a resource
+	 * @param path the path of the resource relative to its jar or class folder
+	 * @return the url of the jar or class folder containing the resource
+	 */
+	
+	private static String getClasspathRoot(String url, String path) {
+		
+		return url.endsWith(path) ? url.substring(0, url.length() - path.length()) : url;
 		
 	}
 }
@@ -0,0 +1,312 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.GlobalProperty;
+import org.openmrs.Role;
+import org.openmrs.User;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.response.ResponseException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces identical GET requests handled at the same time, so that only the first one is executed
+ * and the others wait for and return its result instead of loading and converting the same objects
+ * again.
+ * <p>
+ * Requests are identical if they have the same path, parameters and requested timeout and are made
+ * by the same user in the same locale. The requests are only coalesced if enabled by the
+ * {@link RestConstants#COALESCE_REQUESTS_GLOBAL_PROPERTY_NAME} global property.
+ * </p>
+ * <p>
+ * The waiting requests get the response headers and status set while the first one was executed.
+ * They wait at most {@link #MAX_WAIT_MILLIS} or until their deadline, after which they are executed
+ * themselves, so that a slow request does not hold up the others indefinitely.
+ * </p>
+ */
+public class RequestCoalescer implements GlobalPropertyListener {
+	
+	/**
+	 * The maximum time in milliseconds to wait for an identical request
+	 */
+	public static final long MAX_WAIT_MILLIS = 10000;
+	
+	private static final Log log = LogFactory.getLog(RequestCoalescer.class);
+	
+	private static final String SET_COOKIE_HEADER = "Set-Cookie";
+	
+	private static final RequestCoalescer instance = new RequestCoalescer();
+	
+	private static volatile Boolean enabled;
+	
+	private final ConcurrentMap<String, FutureTask<Result>> inFlight = new ConcurrentHashMap<String, FutureTask<Result>>();
+	
+	private RequestCoalescer() {
+	}
+	
+	public static RequestCoalescer getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * The handling of a request which may be coalesced.
+	 */
+	public interface Execution {
+		
+		Object execute() throws ResponseException;
+	}
+	
+	/**
+	 * @return true if the requests are coalesced as enabled by the global property
+	 */
+	public static boolean isEnabled() {
+		Boolean isEnabled = enabled;
+		if (isEnabled == null) {
+			isEnabled = Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(
+			    RestConstants.COALESCE_REQUESTS_GLOBAL_PROPERTY_NAME));
+			enabled = isEnabled;
+		}
+		return isEnabled;
+	}
+	
+	/**
+	 * Executes the given request unless an identical request is already being executed, in which
+	 * case its result is returned or its exception rethrown once it has completed.
+	 *
+	 * @param request the request
+	 * @param response the response to the request
+	 * @param execution the handling of the request
+	 * @return the result of the request
+	 * @throws ResponseException
+	 */
+	public Object execute(HttpServletRequest request, HttpServletResponse response, Execution execution)
+	        throws ResponseException {
+		if (!isEnabled() || !"GET".equals(request.getMethod())) {
+			return execution.execute();
+		}
+		
+		return execute(getKey(request), response, execution, MAX_WAIT_MILLIS);
+	}
+	
+	/**
+	 * Executes the given request unless a request with the same key is already being executed.
+	 *
+	 * @param key the key identifying the identical requests
+	 * @param response the response to the request, may be null
+	 * @param execution the handling of the request
+	 * @param maxWaitMillis the maximum time to wait for the identical request before executing the
+	 *            request itself
+	 * @return the result of the request
+	 * @throws ResponseException
+	 */
+	Object execute(String key, final HttpServletResponse response, final Execution execution, long maxWaitMillis)
+	        throws ResponseException {
+		FutureTask<Result> task = new FutureTask<Result>(new Callable<Result>() {
+			
+			@Override
+			public Result call() throws Exception {
+				Map<String, List<String>> headersBefore = getHeaders(response);
+				Object value = execution.execute();
+				return new Result(value, getHeadersSetSince(headersBefore, response), response != null ? response
+				        .getStatus() : HttpServletResponse.SC_OK);
+			}
+		});
+		FutureTask<Result> leader = inFlight.putIfAbsent(key, task);
+		if (leader == null) {
+			try {
+				task.run();
+			}
+			finally {
+				inFlight.remove(key, task);
+			}
+			return getResult(task).value;
+		}
+		
+		long waitMillis = maxWaitMillis;
+		Long remainingMillis = RequestDeadline.getRemainingMillis();
+		if (remainingMillis != null) {
+			waitMillis = Math.max(0, Math.min(waitMillis, remainingMillis));
+		}
+		Result result;
+		try {
+			result = leader.get(waitMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException e) {
+			log.debug("Executing the request itself since the identical request has not completed in time");
+			return execution.execute();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for an identical request", e);
+		}
+		catch (ExecutionException e) {
+			throw rethrow(e);
+		}
+		
+		if (response != null) {
+			for (Map.Entry<String, List<String>> header : result.headers.entrySet()) {
+				response.setHeader(header.getKey(), null);
+				for (String value : header.getValue()) {
+					response.addHeader(header.getKey(), value);
+				}
+			}
+			if (result.status != HttpServletResponse.SC_OK) {
+				response.setStatus(result.status);
+			}
+		}
+		return result.value;
+	}
+	
+	private Result getResult(FutureTask<Result> task) {
+		try {
+			return task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while getting the result of a request", e);
+		}
+		catch (ExecutionException e) {
+			throw rethrow(e);
+		}
+	}
+	
+	private RuntimeException rethrow(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		throw new IllegalStateException(cause);
+	}
+	
+	private static Map<String, List<String>> getHeaders(HttpServletResponse response) {
+		Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+		if (response == null) {
+			return headers;
+		}
+		for (String name : new ArrayList<String>(response.getHeaderNames())) {
+			Collection<String> values = response.getHeaders(name);
+			headers.put(name, values != null ? new ArrayList<String>(values) : new ArrayList<String>());
+		}
+		return headers;
+	}
+	
+	/**
+	 * @return the headers set or changed since the given headers, except for cookies which belong to
+	 *         the session of the request
+	 */
+	private static Map<String, List<String>> getHeadersSetSince(Map<String, List<String>> headersBefore,
+	        HttpServletResponse response) {
+		Map<String, List<String>> headers = getHeaders(response);
+		headers.keySet().remove(SET_COOKIE_HEADER);
+		for (Map.Entry<String, List<String>> header : headersBefore.entrySet()) {
+			if (header.getValue().equals(headers.get(header.getKey()))) {
+				headers.remove(header.getKey());
+			}
+		}
+		return headers;
+	}
+	
+	/**
+	 * @return the key identifying the requests which have the same result as the given one
+	 */
+	String getKey(HttpServletRequest request) {
+		StringBuilder key = new StringBuilder(request.getRequestURI());
+		
+		SortedMap<String, String[]> parameters = new TreeMap<String, String[]>();
+		for (Map.Entry<?, ?> parameter : request.getParameterMap().entrySet()) {
+			parameters.put((String) parameter.getKey(), (String[]) parameter.getValue());
+		}
+		for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+			key.append('\n').append(parameter.getKey()).append('=').append(Arrays.toString(parameter.getValue()));
+		}
+		
+		// the timeout requested by the client decides whether the request fails, so it must match too
+		key.append('\n').append(StringUtils.trimToEmpty(request.getHeader(RestConstants.REQUEST_TIMEOUT_HEADER)));
+		key.append('\n').append(Context.getLocale());
+		// results may depend on the user, e.g. on data filtered for the user or on user properties
+		User user = Context.getAuthenticatedUser();
+		if (user != null) {
+			key.append('\n').append(user.getUserId());
+			SortedSet<String> roles = new TreeSet<String>();
+			for (Role role : user.getAllRoles()) {
+				roles.add(role.getRole());
+			}
+			key.append('\n').append(roles);
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * The result of a request along with the response headers and status set while it was executed.
+	 */
+	private static class Result {
+		
+		private final Object value;
+		
+		private final Map<String, List<String>> headers;
+		
+		private final int status;
+		
+		private Result(Object value, Map<String, List<String>> headers, int status) {
+			this.value = value;
+			this.headers = headers;
+			this.status = status;
+		}
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return RestConstants.COALESCE_REQUESTS_GLOBAL_PROPERTY_NAME.equals(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		enabled = Boolean.valueOf(newValue.getPropertyValue());
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		enabled = false;
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import org.openmrs.module.webservices.rest.web.response.RequestTimeoutException;
+
+/**
+ * Holds the deadline of the request handled by the current thread, so that long running work such
+ * as the conversion of many objects can be aborted once the client is not waiting for the response
+ * anymore.
+ */
+public class RequestDeadline {
+	
+	private static final ThreadLocal<Long> deadline = new ThreadLocal<Long>();
+	
+	private RequestDeadline() {
+	}
+	
+	/**
+	 * Sets the deadline of the request handled by the current thread.
+	 *
+	 * @param timeoutMillis the milliseconds from now until the deadline
+	 */
+	public static void start(long timeoutMillis) {
+		deadline.set(System.currentTimeMillis() + timeoutMillis);
+	}
+	
+	/**
+	 * Removes the deadline of the request handled by the current thread.
+	 */
+	public static void clear() {
+		deadline.remove();
+	}
+	
+	/**
+	 * @return the milliseconds until the deadline of the current request or null if it has none
+	 */
+	public static Long getRemainingMillis() {
+		Long current = deadline.get();
+		return current != null ? current - System.currentTimeMillis() : null;
+	}
+	
+	/**
+	 * Aborts the current request if its deadline has passed.
+	 *
+	 * @throws RequestTimeoutException if the deadline has passed
+	 */
+	public static void check() {
+		Long current = deadline.get();
+		if (current != null && System.currentTimeMillis() >= current) {
+			throw new RequestTimeoutException("The request has not completed within its timeout");
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
+
+/**
+ * Records the time spent in the phases of the request handled by the current thread, so that it
+ * can be reported in the Server-Timing response header. Nothing is recorded unless
+ * {@link #begin()} has been called for the current request.
+ * <p>
+ * The phases overlap, e.g. the {@link #HANDLER} phase includes the conversion and most queries.
+ * Nested timers of the same phase are ignored, so that recursive conversions are only counted once.
+ * </p>
+ * <p>
+ * Details describing the request, such as the requested resource and representation, can be added
+ * for the {@link SlowRequestLog}.
+ * </p>
+ */
+public class RequestTimings {
+	
+	/**
+	 * Looking up the resource and the search handler of the request
+	 */
+	public static final String LOOKUP = "lookup";
+	
+	/**
+	 * Calling the resource or the search handler
+	 */
+	public static final String HANDLER = "handler";
+	
+	/**
+	 * Converting objects to their representation
+	 */
+	public static final String CONVERSION = "conversion";
+	
+	/**
+	 * Executing database statements
+	 */
+	public static final String DB = "db";
+	
+	/**
+	 * Writing the response body
+	 */
+	public static final String SERIALIZATION = "serialization";
+	
+	private static final ThreadLocal<RequestTimings> current = new ThreadLocal<RequestTimings>();
+	
+	private final long start = System.nanoTime();
+	
+	private final Map<String, long[]> phases = new LinkedHashMap<String, long[]>();
+	
+	private final Set<String> running = new HashSet<String>();
+	
+	private final Map<String, Object> details = new LinkedHashMap<String, Object>();
+	
+	private RequestTimings() {
+	}
+	
+	/**
+	 * Starts recording the timings of the request handled by the current thread.
+	 *
+	 * @return the timings
+	 */
+	public static RequestTimings begin() {
+		RequestTimings timings = new RequestTimings();
+		current.set(timings);
+		return timings;
+	}
+	
+	/**
+	 * Stops recording the timings of the request handled by the current thread.
+	 */
+	public static void end() {
+		current.remove();
+	}
+	
+	/**
+	 * @return true if the timings of the current request are recorded
+	 */
+	public static boolean isRecording() {
+		return current.get() != null;
+	}
+	
+	/**
+	 * Starts timing the given phase.
+	 *
+	 * @param phase the phase
+	 * @return the start to pass to {@link #stopTimer(String, long)} or -1 if the phase is not timed,
+	 *         because nothing is recorded or the phase is already being timed
+	 */
+	public static long startTimer(String phase) {
+		RequestTimings timings = current.get();
+		if (timings == null || !timings.running.add(phase)) {
+			return -1;
+		}
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Stops timing the given phase.
+	 *
+	 * @param phase the phase
+	 * @param start the value returned by {@link #startTimer(String)}
+	 */
+	public static void stopTimer(String phase, long start) {
+		RequestTimings timings = current.get();
+		if (timings == null || start == -1) {
+			return;
+		}
+		timings.running.remove(phase);
+		timings.add(phase, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Adds a detail describing the current request, unless its timings are not recorded.
+	 *
+	 * @param name the name of the detail
+	 * @param value the value
+	 */
+	public static void putDetail(String name, Object value) {
+		RequestTimings timings = current.get();
+		if (timings != null) {
+			timings.details.put(name, value);
+		}
+	}
+	
+	/**
+	 * Adds the details describing a GET request for the given resource, unless its timings are not
+	 * recorded.
+	 *
+	 * @param resourceName the name of the resource, e.g. "obs" or "patient/identifier"
+	 * @param operation the operation, e.g. "retrieve" or "list"
+	 * @param context the request context
+	 * @param searchHandler the search handler selected for the request or null
+	 */
+	public static void describe(String resourceName, String operation, RequestContext context,
+	        SearchHandler searchHandler) {
+		if (!isRecording()) {
+			return;
+		}
+		
+		putDetail("resource", resourceName);
+		putDetail("operation", operation);
+		putDetail("representation", context.getRepresentation() != null ? context.getRepresentation()
+		        .getRepresentation() : null);
+		putDetail("limit", context.getLimit());
+		putDetail("startIndex", context.getStartIndex());
+		if (searchHandler != null) {
+			putDetail("searchHandler", searchHandler.getSearchConfig().getId());
+		}
+	}
+	
+	/**
+	 * Adds the given duration to a phase and increments its count.
+	 *
+	 * @param phase the phase
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void add(String phase, long nanos) {
+		long[] phaseTimings = phases.get(phase);
+		if (phaseTimings == null) {
+			phaseTimings = new long[2];
+			phases.put(phase, phaseTimings);
+		}
+		phaseTimings[0] += nanos;
+		phaseTimings[1]++;
+	}
+	
+	/**
+	 * @param phase the phase
+	 * @return the number of times the phase has been timed, e.g. the number of database statements
+	 */
+	public long getCount(String phase) {
+		long[] phaseTimings = phases.get(phase);
+		return phaseTimings != null ? phaseTimings[1] : 0;
+	}
+	
+	/**
+	 * @return the details describing the request in the order they were added
+	 */
+	public Map<String, Object> getDetails() {
+		return details;
+	}
+	
+	/**
+	 * @return the milliseconds spent in each phase in the order they were first recorded
+	 */
+	public Map<String, Double> getPhaseMillis() {
+		Map<String, Double> phaseMillis = new LinkedHashMap<String, Double>();
+		for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+			phaseMillis.put(phase.getKey(), toMillis(phase.getValue()[0]));
+		}
+		return phaseMillis;
+	}
+	
+	/**
+	 * @return the milliseconds since the timings started to be recorded
+	 */
+	public double getTotalMillis() {
+		return toMillis(System.nanoTime() - start);
+	}
+	
+	/**
+	 * Formats the timings as the value of the Server-Timing header, e.g.
+	 * <code>lookup;dur=0.2, db;dur=12.5;desc="31 statements", total;dur=40.1</code>
+	 *
+	 * @return the header value
+	 */
+	public String toServerTiming() {
+		StringBuilder header = new StringBuilder();
+		for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+			header.append(phase.getKey()).append(";dur=").append(format(toMillis(phase.getValue()[0])));
+			if (DB.equals(phase.getKey())) {
+				header.append(";desc=\"").append(phase.getValue()[1]).append(" statements\"");
+			}
+			header.append(", ");
+		}
+		return header.append("total;dur=").append(format(getTotalMillis())).toString();
+	}
+	
+	private static double toMillis(long nanos) {
+		// rounded to a tenth of a millisecond
+		return Math.round(nanos / 100000.0) / 10.0;
+	}
+	
+	private static String format(double millis) {
+		return String.format(Locale.ENGLISH, "%.1f", millis);
+	}
+}
@@ -21,6 +21,12 @@ public class RestConstants {
 	
 	public static final String PRIV_VIEW_RESTWS = "View RESTWS";
 	
+	/**
+	 * Allows to get the objects of any resource changed since a date with the
+	 * {@link #REQUEST_PROPERTY_FOR_CHANGED_SINCE} parameter
+	 */
+	public static final String PRIV_GET_CHANGES = "Get RESTWS Changes";
+	
 	/**
 	 * The number of results to limit lists of objects to, if an admin has not defined a global
 	 * property
@@ -63,6 +69,141 @@ public class RestConstants {
 	 */
 	public static String ALLOWED_IPS_GLOBAL_PROPERTY_NAME = MODULE_ID + ".allowedips";
 	
+	/**
+	 * The maximum size in bytes of multipart uploads, if an admin has not defined a global property
+	 * 
+	 * @see #MAX_UPLOAD_SIZE_GLOBAL_PROPERTY_NAME
+	 */
+	public static final long MAX_UPLOAD_SIZE_DEFAULT = 10485760L;
+	
+	/**
+	 * The key of the global property that an admin can set to allow larger or smaller multipart
+	 * uploads, e.g. of complex obs data. A negative value means no limit.
+	 * 
+	 * @see #MAX_UPLOAD_SIZE_DEFAULT
+	 */
+	public static final String MAX_UPLOAD_SIZE_GLOBAL_PROPERTY_NAME = MODULE_ID + ".maxUploadSize";
+	
+	/**
+	 * The maximum number of sub-requests of a batch request, if an admin has not defined a global
+	 * property
+	 * 
+	 * @see #MAX_BATCH_SIZE_GLOBAL_PROPERTY_NAME
+	 */
+	public static final int MAX_BATCH_SIZE_DEFAULT = 50;
+	
+	/**
+	 * The key of the global property that an admin can set to allow more or less sub-requests in a
+	 * single batch request.
+	 * 
+	 * @see #MAX_BATCH_SIZE_DEFAULT
+	 */
+	public static final String MAX_BATCH_SIZE_GLOBAL_PROPERTY_NAME = MODULE_ID + ".maxBatchSize";
+	
+	/**
+	 * The key of the global property that an admin can set to "true" to answer patient identifier
+	 * prefix searches from an in-memory index of the identifiers of non-voided patients instead of
+	 * the database.
+	 */
+	public static final String PATIENT_IDENTIFIER_INDEX_GLOBAL_PROPERTY_NAME = MODULE_ID + ".patientIdentifierIndex";
+	
+	/**
+	 * The key of the global property that an admin can set to "true" to let identical GET requests
+	 * handled at the same time wait for the result of the first one instead of being executed again.
+	 */
+	public static final String COALESCE_REQUESTS_GLOBAL_PROPERTY_NAME = MODULE_ID + ".coalesceRequests";
+	
+	/**
+	 * The key of the global property that an admin can set to "false" to not warm up the resources
+	 * after the context has been refreshed.
+	 */
+	public static final String WARM_UP_GLOBAL_PROPERTY_NAME = MODULE_ID + ".warmUp";
+	
+	/**
+	 * The key of the global property that an admin can set to a whitespace separated list of requests
+	 * relative to the REST API, e.g. <code>concept/{uuid}?v=full</code>, which are executed when
+	 * warming up the resources.
+	 */
+	public static final String WARM_UP_REQUESTS_GLOBAL_PROPERTY_NAME = MODULE_ID + ".warmUpRequests";
+	
+	/**
+	 * The key of the global property that an admin can set to the maximum estimated cost of a single
+	 * request, i.e. the depth of the representation times the number of results times the weight of
+	 * the resource.
+	 * 
+	 * @see #RESOURCE_COST_WEIGHTS_GLOBAL_PROPERTY_NAME
+	 */
+	public static final String MAX_REQUEST_COST_GLOBAL_PROPERTY_NAME = MODULE_ID + ".maxRequestCost";
+	
+	/**
+	 * The key of the global property that an admin can set to the maximum estimated costs of single
+	 * requests by resource, e.g. "obs:500,encounter:200", overriding
+	 * {@link #MAX_REQUEST_COST_GLOBAL_PROPERTY_NAME}.
+	 */
+	public static final String RESOURCE_MAX_REQUEST_COSTS_GLOBAL_PROPERTY_NAME = MODULE_ID + ".resourceMaxRequestCosts";
+	
+	/**
+	 * The key of the global property that an admin can set to the weights of the resources when
+	 * estimating the costs of requests, e.g. "obs:2,encounter:5". The weight of other resources is 1.
+	 */
+	public static final String RESOURCE_COST_WEIGHTS_GLOBAL_PROPERTY_NAME = MODULE_ID + ".resourceCostWeights";
+	
+	/**
+	 * The key of the global property that an admin can set to the maximum total estimated cost of the
+	 * requests handled at the same time.
+	 */
+	public static final String MAX_CONCURRENT_REQUEST_COST_GLOBAL_PROPERTY_NAME = MODULE_ID + ".maxConcurrentRequestCost";
+	
+	/**
+	 * The key of the global property that an admin can set to the maximum number of requests a user
+	 * can make at the same time.
+	 */
+	public static final String MAX_CONCURRENT_REQUESTS_PER_USER_GLOBAL_PROPERTY_NAME = MODULE_ID
+	        + ".maxConcurrentRequestsPerUser";
+	
+	/**
+	 * The key of the global property that an admin can set to the number of seconds after which
+	 * the handling of a request is aborted.
+	 */
+	public static final String REQUEST_TIMEOUT_GLOBAL_PROPERTY_NAME = MODULE_ID + ".requestTimeout";
+	
+	/**
+	 * The key of the global property that an admin can set to request timeouts in seconds per
+	 * resource, e.g. "obs:30,encounter:60", overriding the
+	 * {@link #REQUEST_TIMEOUT_GLOBAL_PROPERTY_NAME} global property.
+	 */
+	public static final String RESOURCE_REQUEST_TIMEOUTS_GLOBAL_PROPERTY_NAME = MODULE_ID + ".resourceRequestTimeouts";
+	
+	/**
+	 * The key of the global property that an admin can set to the number of milliseconds after
+	 * which a request is logged as slow.
+	 */
+	public static final String SLOW_REQUEST_THRESHOLD_GLOBAL_PROPERTY_NAME = MODULE_ID + ".slowRequestThreshold";
+	
+	/**
+	 * The key of the global property that an admin can set to the fraction of the slow requests
+	 * which are logged, e.g. 0.1 for every tenth.
+	 */
+	public static final String SLOW_REQUEST_SAMPLE_RATE_GLOBAL_PROPERTY_NAME = MODULE_ID + ".slowRequestSampleRate";
+	
+	/**
+	 * The key of the global property that an admin can set to the maximum number of slow requests
+	 * logged per minute.
+	 */
+	public static final String SLOW_REQUEST_MAX_LOGS_PER_MINUTE_GLOBAL_PROPERTY_NAME = MODULE_ID
+	        + ".slowRequestMaxLogsPerMinute";
+	
+	/**
+	 * The header clients can use to request a timeout in seconds shorter than the configured one
+	 */
+	public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+	
+	/**
+	 * The header users with the {@link #PRIV_MANAGE_RESTWS} privilege can set to "timing" to get
+	 * the time spent handling a request in the Server-Timing response header
+	 */
+	public static final String DEBUG_HEADER = "X-Rest-Debug";
+	
 	/**
 	 * The version number for the first rest web services representations
 	 */
@@ -139,6 +280,46 @@ public class RestConstants {
 	 */
 	public static final String REQUEST_PROPERTY_FOR_TOTAL_COUNT = "totalCount";
 	
+	/**
+	 * An optional request parameter doing the same as the {@link #DEBUG_HEADER} header
+	 */
+	public static final String REQUEST_PROPERTY_FOR_DEBUG = "_debug";
+	
+	/**
+	 * An optional request parameter to get the objects created, changed, voided or retired since
+	 * the given date instead of all objects, e.g. to synchronize clients
+	 */
+	public static final String REQUEST_PROPERTY_FOR_CHANGED_SINCE = "changedSince";
+	
+	/**
+	 * The request parameter and response property holding the date up to which the changes are
+	 * returned, which is the {@link #REQUEST_PROPERTY_FOR_CHANGED_SINCE} date of the next request
+	 */
+	public static final String REQUEST_PROPERTY_FOR_HIGH_WATER_MARK = "highWaterMark";
+	
+	/**
+	 * The number of seconds the high-water mark of {@link #REQUEST_PROPERTY_FOR_CHANGED_SINCE}
+	 * results lags behind the current date, if an admin has not defined a global property
+	 * 
+	 * @see #CHANGED_SINCE_SAFETY_LAG_GLOBAL_PROPERTY_NAME
+	 */
+	public static final int CHANGED_SINCE_SAFETY_LAG_DEFAULT = 30;
+	
+	/**
+	 * The key of the global property that an admin can set to the number of seconds the high-water
+	 * mark of {@link #REQUEST_PROPERTY_FOR_CHANGED_SINCE} results lags behind the current date, so
+	 * that changes of transactions still running when the changes are collected are not missed.
+	 * 
+	 * @see #CHANGED_SINCE_SAFETY_LAG_DEFAULT
+	 */
+	public static final String CHANGED_SINCE_SAFETY_LAG_GLOBAL_PROPERTY_NAME = MODULE_ID + ".changedSinceSafetyLag";
+	
+	/**
+	 * The request parameter holding the id of the last object of the previous page of changes, which
+	 * the next page of {@link #REQUEST_PROPERTY_FOR_CHANGED_SINCE} results starts after
+	 */
+	public static final String REQUEST_PROPERTY_FOR_LAST_ID = "lastId";
+	
 	/**
 	 * Used in object representations to indicate which specific type an instance belongs to for a
 	 * resource that represents a full class hierarchy
@@ -195,6 +376,10 @@ public class RestConstants {
 		SPECIAL_REQUEST_PARAMETERS.add(REQUEST_PROPERTY_FOR_SEARCH_ID);
 		SPECIAL_REQUEST_PARAMETERS.add(REQUEST_PROPERTY_FOR_TYPE);
 		SPECIAL_REQUEST_PARAMETERS.add(REQUEST_PROPERTY_FOR_TOTAL_COUNT);
+		SPECIAL_REQUEST_PARAMETERS.add(REQUEST_PROPERTY_FOR_DEBUG);
+		SPECIAL_REQUEST_PARAMETERS.add(REQUEST_PROPERTY_FOR_CHANGED_SINCE);
+		SPECIAL_REQUEST_PARAMETERS.add(REQUEST_PROPERTY_FOR_HIGH_WATER_MARK);
+		SPECIAL_REQUEST_PARAMETERS.add(REQUEST_PROPERTY_FOR_LAST_ID);
 	}
 	
 	/**
@@ -0,0 +1,82 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+
+/**
+ * Multipart resolver which applies the upload size limit configured in the
+ * {@link RestConstants#MAX_UPLOAD_SIZE_GLOBAL_PROPERTY_NAME} global property.
+ * <p>
+ * The limit is read once, when the first upload is parsed, rather than while the web application
+ * context is started and no session might be open to read global properties. Changes of the global
+ * property are applied as a {@link GlobalPropertyListener}, so that parsing a request neither reads
+ * the global property nor changes the shared settings of the resolver.
+ * </p>
+ * <p>
+ * Uploaded files larger than the in-memory threshold are written to a temporary file while the
+ * request is parsed so that they can be streamed from there instead of being held in memory.
+ * </p>
+ */
+public class RestMultipartResolver extends CommonsMultipartResolver implements GlobalPropertyListener {
+	
+	private final Object lock = new Object();
+	
+	private volatile boolean maxUploadSizeApplied;
+	
+	@Override
+	protected MultipartParsingResult parseRequest(HttpServletRequest request) throws MultipartException {
+		if (!maxUploadSizeApplied) {
+			synchronized (lock) {
+				if (!maxUploadSizeApplied) {
+					setMaxUploadSize(RestUtil.getMaxUploadSize());
+					maxUploadSizeApplied = true;
+				}
+			}
+		}
+		return super.parseRequest(request);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return RestConstants.MAX_UPLOAD_SIZE_GLOBAL_PROPERTY_NAME.equals(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		applyMaxUploadSize(RestUtil.parseMaxUploadSize(newValue.getPropertyValue()));
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		applyMaxUploadSize(RestConstants.MAX_UPLOAD_SIZE_DEFAULT);
+	}
+	
+	private void applyMaxUploadSize(long maxUploadSize) {
+		synchronized (lock) {
+			setMaxUploadSize(maxUploadSize);
+			maxUploadSizeApplied = true;
+		}
+	}
+}
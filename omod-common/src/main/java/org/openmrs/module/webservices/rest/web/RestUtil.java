@@ -11,18 +11,22 @@ package org.openmrs.module.webservices.rest.web;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLDecoder;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -114,6 +118,150 @@ public class RestUtil implements GlobalPropertyListener {
 		}
 	}
 	
+	/**
+	 * Looks up the admin defined global property for the maximum size of multipart uploads
+	 * 
+	 * @return the maximum upload size in bytes, a negative value means no limit
+	 * @see RestConstants#MAX_UPLOAD_SIZE_GLOBAL_PROPERTY_NAME
+	 */
+	public static long getMaxUploadSize() {
+		return parseMaxUploadSize(Context.getAdministrationService().getGlobalProperty(
+		    RestConstants.MAX_UPLOAD_SIZE_GLOBAL_PROPERTY_NAME));
+	}
+	
+	/**
+	 * Parses the value of the global property for the maximum size of multipart uploads
+	 * 
+	 * @param maxUploadSize the value of the global property, may be null
+	 * @return the maximum upload size in bytes, a negative value means no limit
+	 * @see RestConstants#MAX_UPLOAD_SIZE_GLOBAL_PROPERTY_NAME
+	 */
+	public static long parseMaxUploadSize(String maxUploadSize) {
+		if (StringUtils.isNotEmpty(maxUploadSize)) {
+			try {
+				return Long.parseLong(maxUploadSize.trim());
+			}
+			catch (NumberFormatException nfex) {
+				log.error(
+				    RestConstants.MAX_UPLOAD_SIZE_GLOBAL_PROPERTY_NAME + " must be an integer. " + nfex.getMessage());
+				return RestConstants.MAX_UPLOAD_SIZE_DEFAULT;
+			}
+		} else {
+			return RestConstants.MAX_UPLOAD_SIZE_DEFAULT;
+		}
+	}
+	
+	/**
+	 * Looks up the admin defined global property for the maximum number of sub-requests of a batch
+	 * request
+	 * 
+	 * @return the maximum batch size
+	 * @see RestConstants#MAX_BATCH_SIZE_GLOBAL_PROPERTY_NAME
+	 */
+	public static int getMaxBatchSize() {
+		String maxBatchSize = Context.getAdministrationService()
+		        .getGlobalProperty(RestConstants.MAX_BATCH_SIZE_GLOBAL_PROPERTY_NAME);
+		if (StringUtils.isNotEmpty(maxBatchSize)) {
+			try {
+				return Integer.parseInt(maxBatchSize.trim());
+			}
+			catch (NumberFormatException nfex) {
+				log.error(
+				    RestConstants.MAX_BATCH_SIZE_GLOBAL_PROPERTY_NAME + " must be an integer. " + nfex.getMessage());
+				return RestConstants.MAX_BATCH_SIZE_DEFAULT;
+			}
+		} else {
+			return RestConstants.MAX_BATCH_SIZE_DEFAULT;
+		}
+	}
+	
+	/**
+	 * Looks up the admin defined global property for the number of seconds the high-water mark of
+	 * changes lags behind the current date
+	 * 
+	 * @return the safety lag in seconds
+	 * @see RestConstants#CHANGED_SINCE_SAFETY_LAG_GLOBAL_PROPERTY_NAME
+	 */
+	public static int getChangedSinceSafetyLag() {
+		String safetyLag = Context.getAdministrationService().getGlobalProperty(
+		    RestConstants.CHANGED_SINCE_SAFETY_LAG_GLOBAL_PROPERTY_NAME);
+		if (StringUtils.isNotEmpty(safetyLag)) {
+			try {
+				return Math.max(0, Integer.parseInt(safetyLag.trim()));
+			}
+			catch (NumberFormatException nfex) {
+				log.error(RestConstants.CHANGED_SINCE_SAFETY_LAG_GLOBAL_PROPERTY_NAME + " must be an integer. "
+				        + nfex.getMessage());
+				return RestConstants.CHANGED_SINCE_SAFETY_LAG_DEFAULT;
+			}
+		} else {
+			return RestConstants.CHANGED_SINCE_SAFETY_LAG_DEFAULT;
+		}
+	}
+	
+	/**
+	 * Parses the parameters of a query string, e.g. "q=John&v=full".
+	 * 
+	 * @param query the query string without the leading question mark, may be null
+	 * @return the decoded parameter values by name in the order of the query string
+	 */
+	public static Map<String, String[]> parseQueryString(String query) {
+		Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+		if (StringUtils.isNotEmpty(query)) {
+			for (String parameter : StringUtils.split(query, '&')) {
+				String name = decode(StringUtils.substringBefore(parameter, "="));
+				String value = decode(StringUtils.substringAfter(parameter, "="));
+				if (!values.containsKey(name)) {
+					values.put(name, new ArrayList<String>());
+				}
+				values.get(name).add(value);
+			}
+		}
+		
+		Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+		for (Map.Entry<String, List<String>> value : values.entrySet()) {
+			parameters.put(value.getKey(), value.getValue().toArray(new String[0]));
+		}
+		return parameters;
+	}
+	
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Parses the comma separated non-negative values by resource name configured in a global
+	 * property, e.g. "obs:2,encounter:3". Invalid values are ignored.
+	 * 
+	 * @param values the values by resource name
+	 * @return the parsed values by resource name
+	 */
+	public static Map<String, Long> parseValuesByResourceName(String values) {
+		if (StringUtils.isBlank(values)) {
+			return Collections.emptyMap();
+		}
+		
+		Map<String, Long> valuesByResourceName = new HashMap<String, Long>();
+		for (String value : StringUtils.split(values, ',')) {
+			String resourceName = StringUtils.substringBeforeLast(value, ":").trim();
+			try {
+				long parsed = Long.parseLong(StringUtils.substringAfterLast(value, ":").trim());
+				if (StringUtils.isNotEmpty(resourceName) && parsed >= 0) {
+					valuesByResourceName.put(resourceName, parsed);
+				}
+			}
+			catch (NumberFormatException e) {
+				log.warn("Ignoring the invalid value " + value);
+			}
+		}
+		return valuesByResourceName;
+	}
+	
 	/**
 	 * Tests whether or not a client's IP address is allowed to have access to the REST API (based on a
 	 * admin-settable global property).
@@ -0,0 +1,209 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs requests which took longer than the number of milliseconds configured in the
+ * {@link RestConstants#SLOW_REQUEST_THRESHOLD_GLOBAL_PROPERTY_NAME} global property as one JSON line
+ * with the details and {@link RequestTimings} of the request.
+ * <p>
+ * Only the fraction of slow requests configured in the
+ * {@link RestConstants#SLOW_REQUEST_SAMPLE_RATE_GLOBAL_PROPERTY_NAME} global property is logged,
+ * and at most as many per minute as configured in the
+ * {@link RestConstants#SLOW_REQUEST_MAX_LOGS_PER_MINUTE_GLOBAL_PROPERTY_NAME} global property. The
+ * number of slow requests skipped because of the latter is added to the next line.
+ * </p>
+ */
+public class SlowRequestLog implements GlobalPropertyListener {
+	
+	private static final Log log = LogFactory.getLog(SlowRequestLog.class);
+	
+	private static final SlowRequestLog instance = new SlowRequestLog();
+	
+	private static final List<String> PROPERTY_NAMES = Arrays.asList(
+	    RestConstants.SLOW_REQUEST_THRESHOLD_GLOBAL_PROPERTY_NAME,
+	    RestConstants.SLOW_REQUEST_SAMPLE_RATE_GLOBAL_PROPERTY_NAME,
+	    RestConstants.SLOW_REQUEST_MAX_LOGS_PER_MINUTE_GLOBAL_PROPERTY_NAME);
+	
+	private static final long MINUTE = 60000;
+	
+	private final ObjectMapper mapper = new ObjectMapper();
+	
+	private volatile Settings settings;
+	
+	private final AtomicLong windowStart = new AtomicLong();
+	
+	private final AtomicInteger loggedInWindow = new AtomicInteger();
+	
+	private final AtomicLong skipped = new AtomicLong();
+	
+	private SlowRequestLog() {
+	}
+	
+	public static SlowRequestLog getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * @return true if slow requests are logged, i.e. their timings need to be recorded
+	 */
+	public boolean isEnabled() {
+		return getSettings().threshold >= 0;
+	}
+	
+	/**
+	 * Logs the given request if it has been slow, sampled and the rate limit allows it.
+	 *
+	 * @param request the request
+	 * @param status the status of the response
+	 * @param timings the timings of the request
+	 */
+	public void log(HttpServletRequest request, int status, RequestTimings timings) {
+		Settings current = getSettings();
+		if (current.threshold < 0 || timings.getTotalMillis() < current.threshold) {
+			return;
+		}
+		if (current.sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= current.sampleRate) {
+			return;
+		}
+		if (!tryAcquire(System.currentTimeMillis(), current.maxLogsPerMinute)) {
+			skipped.incrementAndGet();
+			return;
+		}
+		
+		try {
+			log.warn(mapper.writeValueAsString(describe(request, status, timings, skipped.getAndSet(0))));
+		}
+		catch (IOException e) {
+			log.debug("Failed to log the slow request " + request.getRequestURI(), e);
+		}
+	}
+	
+	/**
+	 * @return true if another line can be logged in the current minute
+	 */
+	boolean tryAcquire(long now, int maxLogsPerMinute) {
+		if (maxLogsPerMinute < 0) {
+			return true;
+		}
+		
+		long start = windowStart.get();
+		if (now - start >= MINUTE && windowStart.compareAndSet(start, now)) {
+			loggedInWindow.set(0);
+		}
+		return loggedInWindow.incrementAndGet() <= maxLogsPerMinute;
+	}
+	
+	/**
+	 * @return the properties of the line logged for the given request
+	 */
+	static Map<String, Object> describe(HttpServletRequest request, int status, RequestTimings timings,
+	        long skippedRequests) {
+		Map<String, Object> line = new LinkedHashMap<String, Object>();
+		line.put("method", request.getMethod());
+		line.put("uri", request.getRequestURI());
+		line.put("status", status);
+		line.put("durationMs", timings.getTotalMillis());
+		line.putAll(timings.getDetails());
+		line.put("sqlCount", timings.getCount(RequestTimings.DB));
+		line.put("phasesMs", timings.getPhaseMillis());
+		if (skippedRequests > 0) {
+			line.put("skippedSlowRequests", skippedRequests);
+		}
+		return line;
+	}
+	
+	private Settings getSettings() {
+		Settings current = settings;
+		if (current == null) {
+			current = new Settings();
+			settings = current;
+		}
+		return current;
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return PROPERTY_NAMES.contains(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		settings = null;
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		settings = null;
+	}
+	
+	/**
+	 * The settings as configured by the global properties when loaded.
+	 */
+	private static class Settings {
+		
+		private final long threshold;
+		
+		private final double sampleRate;
+		
+		private final int maxLogsPerMinute;
+		
+		private Settings() {
+			threshold = (long) parse(getGlobalProperty(RestConstants.SLOW_REQUEST_THRESHOLD_GLOBAL_PROPERTY_NAME), -1);
+			sampleRate = parse(getGlobalProperty(RestConstants.SLOW_REQUEST_SAMPLE_RATE_GLOBAL_PROPERTY_NAME), 1);
+			maxLogsPerMinute = (int) parse(
+			    getGlobalProperty(RestConstants.SLOW_REQUEST_MAX_LOGS_PER_MINUTE_GLOBAL_PROPERTY_NAME), -1);
+		}
+		
+		private static String getGlobalProperty(String propertyName) {
+			return Context.getAdministrationService().getGlobalProperty(propertyName);
+		}
+		
+		private static double parse(String value, double defaultValue) {
+			if (StringUtils.isBlank(value)) {
+				return defaultValue;
+			}
+			try {
+				return Double.parseDouble(value.trim());
+			}
+			catch (NumberFormatException e) {
+				log.warn("Ignoring the invalid slow request log setting " + value);
+				return defaultValue;
+			}
+		}
+	}
+}
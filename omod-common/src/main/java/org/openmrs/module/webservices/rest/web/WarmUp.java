@@ -0,0 +1,251 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.util.ReflectionUtil;
+import org.openmrs.module.webservices.rest.web.api.RestService;
+import org.openmrs.module.webservices.rest.web.representation.Representation;
+import org.openmrs.module.webservices.rest.web.resource.api.Converter;
+import org.openmrs.module.webservices.rest.web.resource.api.Listable;
+import org.openmrs.module.webservices.rest.web.resource.api.Resource;
+import org.openmrs.module.webservices.rest.web.resource.api.Retrievable;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
+import org.openmrs.module.webservices.rest.web.resource.api.Searchable;
+import org.openmrs.module.webservices.rest.web.resource.impl.BaseDelegatingResource;
+import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
+import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Warms up the resources after the context has been refreshed, so that the first requests do not
+ * have to pay for it.
+ * <p>
+ * Unless disabled by the {@link RestConstants#WARM_UP_GLOBAL_PROPERTY_NAME} global property, the
+ * subclass handlers of all resources are initialized, the converters of their supported classes are
+ * resolved and the property getters of their ref, default and full representations are looked up.
+ * Then the requests listed in the {@link RestConstants#WARM_UP_REQUESTS_GLOBAL_PROPERTY_NAME}
+ * global property are executed and their results discarded.
+ * </p>
+ * <p>
+ * The {@link #getStatus()} is exposed to e.g. let load balancers hold traffic until the warm-up has
+ * completed.
+ * </p>
+ */
+public class WarmUp {
+	
+	private static final Log log = LogFactory.getLog(WarmUp.class);
+	
+	private static final Representation[] REPRESENTATIONS = { Representation.REF, Representation.DEFAULT,
+	        Representation.FULL };
+	
+	public enum Status {
+		NOT_STARTED, RUNNING, COMPLETED
+	}
+	
+	private static volatile Status status = Status.NOT_STARTED;
+	
+	private static volatile long startTime;
+	
+	private static volatile long endTime;
+	
+	private static volatile int failures;
+	
+	private WarmUp() {
+	}
+	
+	/**
+	 * @return the status of the last warm-up
+	 */
+	public static Status getStatus() {
+		return status;
+	}
+	
+	/**
+	 * Marks the resources as not warmed up, e.g. until a new warm-up is started after the context
+	 * has been refreshed.
+	 */
+	public static void reset() {
+		status = Status.NOT_STARTED;
+	}
+	
+	/**
+	 * @return the status, start time, duration and number of failed steps of the last warm-up
+	 */
+	public static SimpleObject getStatusDetails() {
+		SimpleObject details = new SimpleObject();
+		details.add("status", status.name());
+		if (status != Status.NOT_STARTED) {
+			details.add("startTime", new SimpleDateFormat(ConversionUtil.DATE_FORMAT).format(new Date(startTime)));
+			long end = status == Status.COMPLETED ? endTime : System.currentTimeMillis();
+			details.add("duration", end - startTime);
+			details.add("failures", failures);
+		}
+		return details;
+	}
+	
+	/**
+	 * Warms up the resources. Failures of single steps are logged and do not stop the warm-up.
+	 */
+	public static void run() {
+		startTime = System.currentTimeMillis();
+		failures = 0;
+		status = Status.RUNNING;
+		try {
+			String enabled = Context.getAdministrationService().getGlobalProperty(
+			    RestConstants.WARM_UP_GLOBAL_PROPERTY_NAME);
+			if (!"false".equalsIgnoreCase(StringUtils.trim(enabled))) {
+				warmUpResources();
+				executeRequests(Context.getAdministrationService().getGlobalProperty(
+				    RestConstants.WARM_UP_REQUESTS_GLOBAL_PROPERTY_NAME));
+			}
+		}
+		catch (RuntimeException e) {
+			failures++;
+			log.error("Failed to warm up the resources", e);
+		}
+		finally {
+			endTime = System.currentTimeMillis();
+			status = Status.COMPLETED;
+		}
+		log.info("Warmed up the resources in " + (endTime - startTime) + " ms with " + failures + " failures");
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static void warmUpResources() {
+		for (DelegatingResourceHandler<?> handler : Context.getService(RestService.class).getResourceHandlers()) {
+			try {
+				if (handler instanceof BaseDelegatingResource) {
+					((BaseDelegatingResource) handler).init();
+				}
+				if (handler instanceof Resource) {
+					ConversionUtil.getConverter(RestUtil.getSupportedClass((Resource) handler));
+				}
+				for (Representation representation : REPRESENTATIONS) {
+					DelegatingResourceDescription description = handler.getRepresentationDescription(representation);
+					if (description != null) {
+						for (String property : description.getProperties().keySet()) {
+							ReflectionUtil.findPropertyGetterMethod(handler, property);
+						}
+					}
+				}
+			}
+			catch (Exception e) {
+				failures++;
+				log.warn("Failed to warm up " + handler.getClass().getName(), e);
+			}
+		}
+	}
+	
+	/**
+	 * Executes the given requests, e.g. <code>concept/{uuid}?v=full</code> or
+	 * <code>location?tag=Login+Location</code>, relative to the REST API and separated by whitespace.
+	 */
+	static void executeRequests(String requests) {
+		if (StringUtils.isBlank(requests)) {
+			return;
+		}
+		
+		for (String request : StringUtils.split(requests)) {
+			try {
+				executeRequest(request);
+			}
+			catch (Exception e) {
+				failures++;
+				log.warn("Failed to warm up with the request " + request, e);
+			}
+			finally {
+				Context.clearSession();
+			}
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static void executeRequest(String request) {
+		String path = StringUtils.substringBefore(request, "?");
+		String[] segments = StringUtils.split(path, '/');
+		if (segments.length == 0 || segments.length > 2) {
+			throw new IllegalArgumentException("Only resources and resources by uuid can be requested");
+		}
+		
+		Map<String, String[]> parameters = RestUtil.parseQueryString(StringUtils.substringAfter(request, "?"));
+		HttpServletRequest servletRequest = createRequest(parameters);
+		String resourceName = RestConstants.VERSION_1 + "/" + segments[0];
+		Resource resource = Context.getService(RestService.class).getResourceByName(resourceName);
+		
+		if (segments.length == 2) {
+			RequestContext context = RestUtil.getRequestContext(servletRequest, null);
+			((Retrievable) resource).retrieve(segments[1], context);
+			return;
+		}
+		
+		RequestContext context = RestUtil.getRequestContext(servletRequest, null, Representation.REF);
+		SearchHandler searchHandler = Context.getService(RestService.class).getSearchHandler(resourceName, parameters);
+		if (searchHandler != null) {
+			searchHandler.search(context).toSimpleObject(resource instanceof Converter ? (Converter<?>) resource : null);
+			return;
+		}
+		for (String parameter : parameters.keySet()) {
+			if (!RestConstants.SPECIAL_REQUEST_PARAMETERS.contains(parameter)) {
+				((Searchable) resource).search(context);
+				return;
+			}
+		}
+		((Listable) resource).getAll(context);
+	}
+	
+	/**
+	 * Creates a GET request which only has the given parameters, which is enough for the resources
+	 * and search handlers.
+	 */
+	private static HttpServletRequest createRequest(final Map<String, String[]> parameters) {
+		return (HttpServletRequest) Proxy.newProxyInstance(WarmUp.class.getClassLoader(),
+		    new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+			    
+			    @Override
+			    public Object invoke(Object proxy, Method method, Object[] args) {
+				    String name = method.getName();
+				    if ("getParameter".equals(name)) {
+					    String[] values = parameters.get(args[0]);
+					    return values != null ? values[0] : null;
+				    } else if ("getParameterValues".equals(name)) {
+					    return parameters.get(args[0]);
+				    } else if ("getParameterMap".equals(name)) {
+					    return Collections.unmodifiableMap(parameters);
+				    } else if ("getParameterNames".equals(name)) {
+					    return Collections.enumeration(parameters.keySet());
+				    } else if ("getMethod".equals(name)) {
+					    return "GET";
+				    } else if ("toString".equals(name)) {
+					    return "warm-up request";
+				    } else if (method.getReturnType() == boolean.class) {
+					    return false;
+				    } else if (method.getReturnType() == int.class) {
+					    return -1;
+				    } else if (method.getReturnType() == long.class) {
+					    return -1L;
+				    }
+				    return null;
+			    }
+		    });
+	}
+}
@@ -0,0 +1,137 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.annotation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor which writes the names of all concrete classes annotated with
+ * {@link Resource} or {@link SubResource} to {@link #RESOURCE_INDEX_LOCATION} at build time.
+ * <p>
+ * The processor is registered through {@code META-INF/services} so any module compiling against
+ * this module gets an index in its jar without further configuration. The
+ * {@link org.openmrs.module.webservices.rest.web.OpenmrsClassScanner} reads these indexes instead
+ * of scanning every class of an indexed jar.
+ * </p>
+ */
+@SupportedAnnotationTypes({ "org.openmrs.module.webservices.rest.web.annotation.Resource",
+        "org.openmrs.module.webservices.rest.web.annotation.SubResource" })
+public class ResourceIndexProcessor extends AbstractProcessor {
+	
+	/**
+	 * The location of the resource index relative to the root of a jar or classes directory
+	 */
+	public static final String RESOURCE_INDEX_LOCATION = "META-INF/webservices.rest/resources.index";
+	
+	private final Set<String> resourceClassNames = new TreeSet<String>();
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeIndex();
+			return false;
+		}
+		
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() == ElementKind.CLASS && !element.getModifiers().contains(Modifier.ABSTRACT)) {
+					resourceClassNames.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element)
+					        .toString());
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Merges the collected class names with an already existing index (left over from a previous
+	 * incremental compilation) and writes the result.
+	 */
+	private void writeIndex() {
+		readExistingIndex();
+		if (resourceClassNames.isEmpty()) {
+			return;
+		}
+		
+		try {
+			FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+			    RESOURCE_INDEX_LOCATION);
+			Writer writer = index.openWriter();
+			try {
+				for (String resourceClassName : resourceClassNames) {
+					writer.write(resourceClassName);
+					writer.write("\n");
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+		catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+			    "Failed to write the REST resource index: " + e.getMessage());
+		}
+	}
+	
+	private void readExistingIndex() {
+		try {
+			FileObject existingIndex = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+			    RESOURCE_INDEX_LOCATION);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(existingIndex.openInputStream(),
+			        StandardCharsets.UTF_8));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					// skip classes which have been deleted or lost their annotation since the last build
+					if (!line.isEmpty() && isStillAnnotated(line)) {
+						resourceClassNames.add(line);
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (IOException e) {
+			// there is no index from a previous compilation
+		}
+	}
+	
+	private boolean isStillAnnotated(String className) {
+		TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+		return type != null
+		        && (type.getAnnotation(Resource.class) != null || type.getAnnotation(SubResource.class) != null);
+	}
+}
@@ -9,15 +9,26 @@
  */
 package org.openmrs.module.webservices.rest.web.api;
 
+import org.openmrs.CareSetting;
+import org.openmrs.Concept;
 import org.openmrs.ConceptMap;
+import org.openmrs.ConceptProposal;
+import org.openmrs.Encounter;
+import org.openmrs.Obs;
+import org.openmrs.Order;
+import org.openmrs.OrderType;
 import org.openmrs.Patient;
 import org.openmrs.annotation.Authorized;
+import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingSubclassHandler;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * It is provided as a workaround for missing API methods to fetch {@link ConceptMap}, etc.
@@ -35,6 +46,177 @@ public interface RestHelperService {
 	@Authorized({ "View Patients" })
 	List<Patient> findPatientsByIdentifierStartingWith(String identifier, boolean includeAll);
 	
+	/**
+	 * Finds a page of the distinct patients having an identifier starting with the given prefix.
+	 * Patients are ordered by id or, if the in-memory index is enabled and voided patients are not
+	 * included, by identifier.
+	 * 
+	 * @param identifier the identifier prefix
+	 * @param includeAll whether to include voided patients
+	 * @param firstResult the index of the first patient to return
+	 * @param maxResults the maximum number of patients to return or null for all
+	 * @return the patients
+	 * @see org.openmrs.module.webservices.rest.web.RestConstants#PATIENT_IDENTIFIER_INDEX_GLOBAL_PROPERTY_NAME
+	 */
+	@Authorized({ "View Patients" })
+	List<Patient> findPatientsByIdentifierStartingWith(String identifier, boolean includeAll, Integer firstResult,
+	        Integer maxResults);
+	
+	/**
+	 * Gets the distinct encounters of a patient having a non-voided obs for the given concept,
+	 * optionally restricted to the given values, newest first.
+	 * 
+	 * @param patient the patient
+	 * @param concept the question of the obs
+	 * @param values the values to match or null to match any value, these must be numbers for
+	 *            numeric concepts, strings for text concepts and the uuids of the answers for coded
+	 *            concepts
+	 * @param firstResult the index of the first encounter to return
+	 * @param maxResults the maximum number of encounters to return or null for all
+	 * @return the encounters
+	 */
+	@Authorized(value = { "View Encounters", "View Observations" }, requireAll = true)
+	List<Encounter> getEncountersByObs(Patient patient, Concept concept, Collection<?> values, Integer firstResult,
+	        Integer maxResults);
+	
+	/**
+	 * Gets the non-voided obs of a patient, newest first, optionally restricted by question, answer
+	 * and the question of the obs group they belong to.
+	 * 
+	 * @param patient the patient
+	 * @param questionConceptUuids the uuids of the questions to match or empty to match any question
+	 * @param answerConceptUuids the uuids of the coded answers to match or empty to match any value
+	 * @param groupingConceptUuids the uuids of the questions of the obs groups to match or empty to
+	 *            match obs regardless of their group
+	 * @param firstResult the index of the first obs to return
+	 * @param maxResults the maximum number of obs to return or null for all
+	 * @return the obs
+	 */
+	@Authorized({ "View Observations" })
+	List<Obs> getObservations(Patient patient, Collection<String> questionConceptUuids,
+	        Collection<String> answerConceptUuids, Collection<String> groupingConceptUuids, Integer firstResult,
+	        Integer maxResults);
+	
+	/**
+	 * Counts the obs matched by
+	 * {@link #getObservations(Patient, Collection, Collection, Collection, Integer, Integer)}
+	 */
+	@Authorized({ "View Observations" })
+	Long getObservationCount(Patient patient, Collection<String> questionConceptUuids,
+	        Collection<String> answerConceptUuids, Collection<String> groupingConceptUuids);
+	
+	/**
+	 * Gets the orders of a patient in the given status as of a date, optionally sorted by date.
+	 * <p>
+	 * Active orders are the non-voided orders other than discontinuation orders which are activated
+	 * and neither stopped nor expired as of the date, inactive orders are the ones which are stopped
+	 * or expired as of the date. When sorting, active orders and orders in any status are sorted by
+	 * their activation date and inactive orders by the date they were stopped or expired, both
+	 * falling back to their creation date. Unsorted, active orders are returned in the order they
+	 * were created and any other orders newest first.
+	 * </p>
+	 * 
+	 * @param orderClass the class of the orders to return, e.g. DrugOrder, or null for any order
+	 * @param patient the patient
+	 * @param careSetting the care setting to match or null to match any care setting
+	 * @param orderTypes the order types to match or empty to match any order type
+	 * @param status "inactive", "any" or anything else for active orders
+	 * @param asOfDate the date to determine the status of the orders as of or null for now
+	 * @param includeVoided whether to include voided orders, only applies to orders in any status
+	 * @param sortOrder "asc" to sort ascending, any other value to sort descending or null to not
+	 *            sort
+	 * @param firstResult the index of the first order to return
+	 * @param maxResults the maximum number of orders to return or null for all
+	 * @return the orders
+	 */
+	@Authorized({ "Get Orders" })
+	List<Order> getOrders(Class<? extends Order> orderClass, Patient patient, CareSetting careSetting,
+	        Collection<OrderType> orderTypes, String status, Date asOfDate, boolean includeVoided, String sortOrder,
+	        Integer firstResult, Integer maxResults);
+	
+	/**
+	 * Gets one concept proposal for each distinct original text, i.e. the first one proposed, along
+	 * with the number of unmapped proposals with that original text.
+	 * 
+	 * @param includeCompleted whether to include proposals which are not unmapped anymore
+	 * @param sortOn "occurrences" to sort by the number of proposals with the same original text or
+	 *            anything else to sort by original text
+	 * @param descending whether to sort descending
+	 * @param firstResult the index of the first proposal to return
+	 * @param maxResults the maximum number of proposals to return or null for all
+	 * @return the proposals in the requested order mapped to the number of unmapped proposals with
+	 *         the same original text
+	 */
+	@Authorized({ "Get Concept Proposals" })
+	Map<ConceptProposal, Long> getConceptProposalsWithUniqueOriginalTexts(boolean includeCompleted, String sortOn,
+	        boolean descending, Integer firstResult, Integer maxResults);
+	
+	/**
+	 * Counts the distinct original texts of the concept proposals.
+	 * 
+	 * @param includeCompleted whether to include proposals which are not unmapped anymore
+	 * @return the number of original texts
+	 */
+	@Authorized({ "Get Concept Proposals" })
+	Long getConceptProposalOriginalTextCount(boolean includeCompleted);
+	
+	/**
+	 * Counts the unmapped concept proposals with the given original text.
+	 * 
+	 * @param originalText the original text
+	 * @return the number of proposals
+	 */
+	@Authorized({ "Get Concept Proposals" })
+	Long getConceptProposalCount(String originalText);
+	
+	/**
+	 * Gets the ids of the members of a concept set, i.e. the same concepts as
+	 * {@link org.openmrs.api.ConceptService#getConceptsByConceptSet(Concept)} in the same order,
+	 * which are the members of nested sets rather than the nested sets themselves. Only the ids
+	 * are selected, one query per level of nesting.
+	 * 
+	 * @param conceptSet the concept set
+	 * @param includeRetired whether to include retired members
+	 * @return the ids of the members
+	 */
+	@Authorized({ "Get Concepts" })
+	Set<Integer> getConceptSetMemberIds(Concept conceptSet, boolean includeRetired);
+	
+	/**
+	 * Gets concepts by id in the order of the given ids.
+	 * 
+	 * @param conceptIds the ids of the concepts
+	 * @return the concepts
+	 */
+	@Authorized({ "Get Concepts" })
+	List<Concept> getConcepts(List<Integer> conceptIds);
+	
+	/**
+	 * Gets the time of the latest change of the concept dictionary, i.e. the latest date a concept
+	 * has been created, changed or retired.
+	 * 
+	 * @return the date of the latest change or null if there are no concepts
+	 */
+	@Authorized({ "Get Concepts" })
+	Date getLatestConceptChange();
+	
+	/**
+	 * Gets the objects of the given type which have been created, changed, voided or retired within
+	 * the given period, ordered by id so that they can be paged through by id while they are
+	 * changed. Only the dates mapped for the type are checked, e.g. obs have no date changed.
+	 * 
+	 * @param type the type of the objects, which must be {@link org.openmrs.Auditable}
+	 * @param since the start of the period (exclusive) or null for all objects created until the end
+	 *            of the period
+	 * @param until the end of the period (inclusive)
+	 * @param afterId the id of the last object of the previous page or null for the first page
+	 * @param maxResults the maximum number of objects to return or null for all
+	 * @return the objects including voided and retired ones
+	 */
+	@Authorized({ RestConstants.PRIV_GET_CHANGES })
+	<T> List<T> getObjectsChangedSince(Class<? extends T> type, Date since, Date until, Integer afterId,
+	        Integer maxResults);
+	
 	List<SearchHandler> getRegisteredSearchHandlers();
 	
 	List<DelegatingSubclassHandler> getRegisteredRegisteredSubclassHandlers();
@@ -75,7 +75,8 @@ public interface RestService {
 	public List<DelegatingResourceHandler<?>> getResourceHandlers() throws APIException;
 	
 	/**
-	 * Initializes all Resources and Search handlers for use; called after module startup
+	 * Initializes all Resources and Search handlers for use; called after module startup. Requests
+	 * served while initializing keep using the previously initialized Resources and Search handlers.
 	 */
 	public void initialize();
 	
@@ -0,0 +1,37 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.api.impl;
+
+import java.lang.reflect.Method;
+
+import org.openmrs.module.webservices.rest.web.ConceptSnapshot;
+import org.springframework.aop.AfterReturningAdvice;
+
+/**
+ * Discards the cached current version of the {@link ConceptSnapshot}s whenever concepts are changed
+ * through the {@link org.openmrs.api.ConceptService}.
+ */
+public class ConceptSnapshotAdvice implements AfterReturningAdvice {
+	
+	private static final String[] MUTATING_METHOD_PREFIXES = { "save", "purge", "retire", "unretire", "map" };
+	
+	/**
+	 * @see AfterReturningAdvice#afterReturning(Object, Method, Object[], Object)
+	 */
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) throws Throwable {
+		for (String prefix : MUTATING_METHOD_PREFIXES) {
+			if (method.getName().startsWith(prefix)) {
+				ConceptSnapshot.invalidateCurrentVersion();
+				return;
+			}
+		}
+	}
+}
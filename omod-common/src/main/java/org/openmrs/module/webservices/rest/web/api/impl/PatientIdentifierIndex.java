@@ -0,0 +1,305 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.api.impl;
+
+import org.openmrs.GlobalProperty;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An in-memory index of the identifiers of non-voided patients, which answers identifier prefix
+ * lookups without querying the database.
+ * <p>
+ * Lookups give the same results as the database query they replace: prefixes are matched ignoring
+ * case, voided identifiers of non-voided patients are matched too and the patients are ordered by
+ * patient id. The database query matches the identifiers as its collation does, so the index must
+ * only be enabled if the patient_identifier table has a case-insensitive collation, like the
+ * default collation of MySQL and MariaDB, or else searches give different results depending on
+ * whether they are answered by the index.
+ * </p>
+ * <p>
+ * The index is only used if enabled by the
+ * {@link RestConstants#PATIENT_IDENTIFIER_INDEX_GLOBAL_PROPERTY_NAME} global property. It is built
+ * on the first lookup and kept up to date by the {@link PatientIdentifierIndexAdvice} whenever
+ * patients or patient identifiers are saved, voided, purged or merged through the
+ * {@link org.openmrs.api.PatientService}.
+ * </p>
+ */
+public class PatientIdentifierIndex implements GlobalPropertyListener {
+	
+	private static final PatientIdentifierIndex instance = new PatientIdentifierIndex();
+	
+	private static volatile Boolean enabled;
+	
+	private final Object lock = new Object();
+	
+	private final ConcurrentSkipListMap<String, Set<Integer>> patientIdsByIdentifier = new ConcurrentSkipListMap<String, Set<Integer>>();
+	
+	private final Map<Integer, Set<String>> identifiersByPatientId = new ConcurrentHashMap<Integer, Set<String>>();
+	
+	private volatile boolean built;
+	
+	private long version;
+	
+	private PatientIdentifierIndex() {
+	}
+	
+	public static PatientIdentifierIndex getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * @return true if the index is enabled by the global property
+	 */
+	public static boolean isEnabled() {
+		Boolean isEnabled = enabled;
+		if (isEnabled == null) {
+			isEnabled = Boolean.valueOf(Context.getAdministrationService().getGlobalProperty(
+			    RestConstants.PATIENT_IDENTIFIER_INDEX_GLOBAL_PROPERTY_NAME));
+			enabled = isEnabled;
+		}
+		return isEnabled;
+	}
+	
+	/**
+	 * @return true if the index has been built
+	 */
+	public boolean isBuilt() {
+		return built;
+	}
+	
+	/**
+	 * Returns a number which changes whenever the index is changed. It must be obtained before
+	 * loading the identifiers to {@link #build(List, long)} the index from.
+	 *
+	 * @return the current version of the index
+	 */
+	public long getVersion() {
+		synchronized (lock) {
+			return version;
+		}
+	}
+	
+	/**
+	 * Builds the index from the given identifiers unless it has been changed since the identifiers
+	 * have been loaded, since the changes might not be part of them.
+	 *
+	 * @param rows pairs of identifier and patient id
+	 * @param expectedVersion the {@link #getVersion()} before the identifiers were loaded
+	 * @return true if the index has been built
+	 */
+	public boolean build(List<Object[]> rows, long expectedVersion) {
+		synchronized (lock) {
+			if (version != expectedVersion) {
+				return false;
+			}
+			
+			clear();
+			for (Object[] row : rows) {
+				add((String) row[0], (Integer) row[1]);
+			}
+			built = true;
+			version++;
+			return true;
+		}
+	}
+	
+	/**
+	 * Replaces the identifiers of the given patient by its current identifiers, or removes them if
+	 * the patient is voided.
+	 *
+	 * @param patient the patient
+	 */
+	public void update(Patient patient) {
+		if (patient == null || patient.getPatientId() == null) {
+			return;
+		}
+		if (!built) {
+			// there is nothing to update, but an index being built might miss the change
+			synchronized (lock) {
+				version++;
+			}
+			return;
+		}
+		
+		Set<String> identifiers = new HashSet<String>();
+		if (!patient.getVoided() && patient.getIdentifiers() != null) {
+			for (PatientIdentifier identifier : patient.getIdentifiers()) {
+				if (identifier.getIdentifier() != null) {
+					identifiers.add(identifier.getIdentifier());
+				}
+			}
+		}
+		
+		synchronized (lock) {
+			version++;
+			if (built) {
+				removePatient(patient.getPatientId());
+				for (String identifier : identifiers) {
+					add(identifier, patient.getPatientId());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Removes the identifiers of the given patient.
+	 *
+	 * @param patientId the id of the patient
+	 */
+	public void remove(Integer patientId) {
+		synchronized (lock) {
+			version++;
+			if (built && patientId != null) {
+				removePatient(patientId);
+			}
+		}
+	}
+	
+	/**
+	 * Discards the index so that it is rebuilt on the next lookup.
+	 */
+	public void invalidate() {
+		synchronized (lock) {
+			version++;
+			built = false;
+			clear();
+		}
+	}
+	
+	/**
+	 * Finds the patients with an identifier starting with the given prefix ignoring case, ordered
+	 * by patient id.
+	 *
+	 * @param prefix the identifier prefix
+	 * @param firstResult the index of the first patient to return
+	 * @param maxResults the maximum number of patients to return or null for all
+	 * @return the ids of the patients
+	 */
+	public List<Integer> findPatientIds(String prefix, Integer firstResult, Integer maxResults) {
+		int skip = firstResult != null ? firstResult : 0;
+		int max = maxResults != null ? maxResults : Integer.MAX_VALUE;
+		if (max <= 0) {
+			return new ArrayList<Integer>();
+		}
+		// only the lowest patient ids up to the end of the requested page are kept
+		long limit = (long) skip + max;
+		
+		String key = normalize(prefix);
+		TreeSet<Integer> patientIds = new TreeSet<Integer>();
+		NavigableMap<String, Set<Integer>> matches = patientIdsByIdentifier.tailMap(key, true);
+		for (Map.Entry<String, Set<Integer>> match : matches.entrySet()) {
+			if (!match.getKey().startsWith(key)) {
+				break;
+			}
+			for (Integer patientId : match.getValue()) {
+				if (patientIds.size() < limit) {
+					patientIds.add(patientId);
+				} else if (patientId < patientIds.last() && patientIds.add(patientId)) {
+					patientIds.pollLast();
+				}
+			}
+		}
+		
+		List<Integer> page = new ArrayList<Integer>(patientIds);
+		int from = Math.min(skip, page.size());
+		return new ArrayList<Integer>(page.subList(from, page.size()));
+	}
+	
+	private static String normalize(String identifier) {
+		return identifier.toLowerCase(Locale.ROOT);
+	}
+	
+	private void add(String identifier, Integer patientId) {
+		identifier = normalize(identifier);
+		Set<Integer> patientIds = patientIdsByIdentifier.get(identifier);
+		if (patientIds == null) {
+			patientIds = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+			patientIdsByIdentifier.put(identifier, patientIds);
+		}
+		patientIds.add(patientId);
+		
+		Set<String> identifiers = identifiersByPatientId.get(patientId);
+		if (identifiers == null) {
+			identifiers = new HashSet<String>();
+			identifiersByPatientId.put(patientId, identifiers);
+		}
+		identifiers.add(identifier);
+	}
+	
+	private void removePatient(Integer patientId) {
+		Collection<String> identifiers = identifiersByPatientId.remove(patientId);
+		if (identifiers == null) {
+			return;
+		}
+		for (String identifier : identifiers) {
+			Set<Integer> patientIds = patientIdsByIdentifier.get(identifier);
+			if (patientIds != null) {
+				patientIds.remove(patientId);
+				if (patientIds.isEmpty()) {
+					patientIdsByIdentifier.remove(identifier);
+				}
+			}
+		}
+	}
+	
+	private void clear() {
+		patientIdsByIdentifier.clear();
+		identifiersByPatientId.clear();
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return RestConstants.PATIENT_IDENTIFIER_INDEX_GLOBAL_PROPERTY_NAME.equals(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		setEnabled(Boolean.valueOf(newValue.getPropertyValue()));
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		setEnabled(false);
+	}
+	
+	private static void setEnabled(boolean isEnabled) {
+		enabled = isEnabled;
+		if (!isEnabled) {
+			// free the memory and make sure a stale index is never used once enabled again
+			instance.invalidate();
+		}
+	}
+}
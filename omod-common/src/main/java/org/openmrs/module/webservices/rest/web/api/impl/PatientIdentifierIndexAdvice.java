@@ -0,0 +1,62 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.api.impl;
+
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.springframework.aop.AfterReturningAdvice;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+
+/**
+ * Keeps the {@link PatientIdentifierIndex} up to date with the patients and patient identifiers
+ * saved, voided, unvoided, purged or merged through the {@link org.openmrs.api.PatientService}.
+ */
+public class PatientIdentifierIndexAdvice implements AfterReturningAdvice {
+	
+	/**
+	 * @see AfterReturningAdvice#afterReturning(Object, Method, Object[], Object)
+	 */
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) throws Throwable {
+		String name = method.getName();
+		if (!(name.startsWith("save") || name.startsWith("void") || name.startsWith("unvoid")
+		        || name.startsWith("purge") || name.startsWith("merge"))) {
+			return;
+		}
+		
+		PatientIdentifierIndex index = PatientIdentifierIndex.getInstance();
+		boolean purge = name.startsWith("purgePatient") && !name.startsWith("purgePatientIdentifier");
+		if (args != null) {
+			for (Object arg : args) {
+				update(index, arg, purge);
+			}
+		}
+		update(index, returnValue, purge);
+	}
+	
+	private void update(PatientIdentifierIndex index, Object object, boolean purge) {
+		if (object instanceof Collection) {
+			// e.g. the patients merged into another one
+			for (Object element : (Collection<?>) object) {
+				update(index, element, purge);
+			}
+		} else if (object instanceof Patient) {
+			if (purge) {
+				index.remove(((Patient) object).getPatientId());
+			} else {
+				index.update((Patient) object);
+			}
+		} else if (object instanceof PatientIdentifier) {
+			index.update(((PatientIdentifier) object).getPatient());
+		}
+	}
+}
@@ -11,23 +11,51 @@ package org.openmrs.module.webservices.rest.web.api.impl;
 
 import org.hibernate.CacheMode;
 import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.criterion.Subqueries;
+import org.hibernate.metadata.ClassMetadata;
+import org.openmrs.Auditable;
+import org.openmrs.CareSetting;
+import org.openmrs.Concept;
+import org.openmrs.ConceptDatatype;
+import org.openmrs.ConceptProposal;
+import org.openmrs.ConceptSet;
+import org.openmrs.Encounter;
+import org.openmrs.Obs;
+import org.openmrs.OrderType;
 import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.hibernate.DbSession;
 import org.openmrs.api.db.hibernate.DbSessionFactory;
 import org.openmrs.api.impl.BaseOpenmrsService;
+import org.openmrs.module.webservices.rest.web.RequestDeadline;
 import org.openmrs.module.webservices.rest.web.api.RestHelperService;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
 import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingSubclassHandler;
+import org.openmrs.util.OpenmrsConstants;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.openmrs.api.context.Context.getRegisteredComponents;
 
@@ -36,6 +64,13 @@ import static org.openmrs.api.context.Context.getRegisteredComponents;
  */
 public class RestHelperServiceImpl extends BaseOpenmrsService implements RestHelperService {
 	
+	/**
+	 * The properties of the dates an object is created, changed, voided or retired at, which
+	 * {@link #getObjectsChangedSince(Class, Date, Date, Integer, Integer)} checks if they are mapped
+	 */
+	private static final List<String> CHANGE_DATE_PROPERTIES = Arrays.asList("dateCreated", "dateChanged",
+	    "dateVoided", "dateRetired");
+	
 	DbSessionFactory sessionFactory;
 	
 	Method method;
@@ -51,7 +86,20 @@ public class RestHelperServiceImpl extends BaseOpenmrsService implements RestHel
 	@Override
 	@Transactional(readOnly = true)
 	public <T> T getObjectByUuid(Class<? extends T> type, String uuid) {
-		return type.cast(getSession().createCriteria(type).add(Restrictions.eq("uuid", uuid)).uniqueResult());
+		return type.cast(createCriteria(type).add(Restrictions.eq("uuid", uuid)).uniqueResult());
+	}
+	
+	/**
+	 * Creates a criteria query which times out with the current request, since the query timeout of
+	 * the session does not apply to criteria queries.
+	 */
+	private Criteria createCriteria(Class<?> type) {
+		Criteria criteria = getSession().createCriteria(type);
+		Long remainingMillis = RequestDeadline.getRemainingMillis();
+		if (remainingMillis != null) {
+			criteria.setTimeout((int) Math.max(1, Math.min((remainingMillis + 999) / 1000, Integer.MAX_VALUE)));
+		}
+		return criteria;
 	}
 	
 	private DbSession getSession() {
@@ -95,7 +143,7 @@ public class RestHelperServiceImpl extends BaseOpenmrsService implements RestHel
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> List<T> getObjectsByFields(Class<? extends T> type, Field... fields) {
-		Criteria criteria = getSession().createCriteria(type);
+		Criteria criteria = createCriteria(type);
 		for (Field field : fields) {
 			if (field != null) {
 				criteria.add(Restrictions.eq(field.getName(), field.getValue()));
@@ -113,7 +161,7 @@ public class RestHelperServiceImpl extends BaseOpenmrsService implements RestHel
 		List<Patient> ret = new ArrayList<Patient>();
 		
 		if (!patientIds.isEmpty()) {
-			Criteria criteria = getSession().createCriteria(Patient.class);
+			Criteria criteria = createCriteria(Patient.class);
 			criteria.setCacheMode(CacheMode.IGNORE);
 			criteria.add(Restrictions.in("patientId", patientIds));
 			criteria.add(Restrictions.eq("voided", false));
@@ -128,16 +176,498 @@ public class RestHelperServiceImpl extends BaseOpenmrsService implements RestHel
 	
 	@Override
 	public List<Patient> findPatientsByIdentifierStartingWith(String identifier, boolean includeAll) {
-		Criteria criteria = getSession().createCriteria(Patient.class);
-		criteria.createAlias("identifiers", "identifiers");
-		criteria.add(Restrictions.like("identifiers.identifier", identifier, MatchMode.START));
-		criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
-		if (!includeAll) {
-			criteria.add(Restrictions.eq("voided", false));
+		return findPatientsByIdentifierStartingWith(identifier, includeAll, null, null);
+	}
+	
+	/**
+	 * @see RestHelperService#findPatientsByIdentifierStartingWith(String, boolean, Integer, Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public List<Patient> findPatientsByIdentifierStartingWith(String identifier, boolean includeAll,
+	        Integer firstResult, Integer maxResults) {
+		List<Integer> patientIds;
+		if (!includeAll && PatientIdentifierIndex.isEnabled() && isPatientIdentifierIndexBuilt()) {
+			patientIds = PatientIdentifierIndex.getInstance().findPatientIds(identifier, firstResult, maxResults);
+		} else {
+			// select the page of distinct patient ids first, so that the database does the paging; like
+			// the index, the match ignores case as far as the database collation does and includes
+			// voided identifiers
+			Criteria criteria = createCriteria(PatientIdentifier.class);
+			criteria.createAlias("patient", "patient");
+			criteria.add(Restrictions.like("identifier", identifier, MatchMode.START));
+			if (!includeAll) {
+				criteria.add(Restrictions.eq("patient.voided", false));
+			}
+			criteria.setProjection(Projections.distinct(Projections.property("patient.patientId")));
+			criteria.addOrder(Order.asc("patient.patientId"));
+			if (firstResult != null) {
+				criteria.setFirstResult(firstResult);
+			}
+			if (maxResults != null) {
+				criteria.setMaxResults(maxResults);
+			}
+			patientIds = criteria.list();
+		}
+		
+		if (patientIds.isEmpty()) {
+			return new ArrayList<Patient>();
+		}
+		
+		Map<Integer, Patient> patientsById = new HashMap<Integer, Patient>();
+		for (Patient patient : (List<Patient>) createCriteria(Patient.class)
+		        .add(Restrictions.in("patientId", patientIds)).list()) {
+			patientsById.put(patient.getPatientId(), patient);
+		}
+		
+		List<Patient> patients = new ArrayList<Patient>(patientIds.size());
+		for (Integer patientId : patientIds) {
+			Patient patient = patientsById.get(patientId);
+			if (patient != null && (includeAll || !patient.getVoided())) {
+				patients.add(patient);
+			}
+		}
+		return patients;
+	}
+	
+	/**
+	 * Builds the patient identifier index if needed.
+	 * 
+	 * @return false if the index has been changed while it was built, the database should be
+	 *         queried then
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean isPatientIdentifierIndexBuilt() {
+		PatientIdentifierIndex index = PatientIdentifierIndex.getInstance();
+		if (index.isBuilt()) {
+			return true;
+		}
+		
+		long version = index.getVersion();
+		List<Object[]> rows = getSession()
+		        .createQuery(
+		            "select pi.identifier, p.patientId from PatientIdentifier pi join pi.patient p"
+		                    + " where p.voided = false").list();
+		return index.build(rows, version);
+	}
+	
+	/**
+	 * @see RestHelperService#getEncountersByObs(Patient, Concept, Collection, Integer, Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public List<Encounter> getEncountersByObs(Patient patient, Concept concept, Collection<?> values,
+	        Integer firstResult, Integer maxResults) {
+		DetachedCriteria obs = DetachedCriteria.forClass(Obs.class, "obs");
+		obs.createAlias("obs.encounter", "encounter");
+		obs.add(Restrictions.eq("obs.person", patient));
+		obs.add(Restrictions.eq("obs.concept", concept));
+		obs.add(Restrictions.eq("obs.voided", false));
+		
+		if (values != null) {
+			if (values.isEmpty()) {
+				return Collections.emptyList();
+			}
+			
+			ConceptDatatype datatype = concept.getDatatype();
+			if (datatype.isNumeric()) {
+				obs.add(Restrictions.in("obs.valueNumeric", values));
+			} else if (datatype.isText()) {
+				obs.add(Restrictions.in("obs.valueText", values));
+			} else if (datatype.isCoded()) {
+				obs.createAlias("obs.valueCoded", "valueCoded");
+				obs.add(Restrictions.in("valueCoded.uuid", values));
+			} else {
+				return Collections.emptyList();
+			}
+		}
+		obs.setProjection(Projections.property("encounter.encounterId"));
+		
+		Criteria criteria = createCriteria(Encounter.class);
+		criteria.add(Subqueries.propertyIn("encounterId", obs));
+		criteria.addOrder(Order.desc("encounterDatetime"));
+		criteria.addOrder(Order.desc("encounterId"));
+		if (firstResult != null) {
+			criteria.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			criteria.setMaxResults(maxResults);
+		}
+		return criteria.list();
+	}
+	
+	/**
+	 * @see RestHelperService#getObservations(Patient, Collection, Collection, Collection, Integer,
+	 *      Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public List<Obs> getObservations(Patient patient, Collection<String> questionConceptUuids,
+	        Collection<String> answerConceptUuids, Collection<String> groupingConceptUuids, Integer firstResult,
+	        Integer maxResults) {
+		Criteria criteria = createObsCriteria(patient, questionConceptUuids, answerConceptUuids, groupingConceptUuids);
+		// same order as ObsService#getObservations with a tie-breaker to keep pages stable
+		criteria.addOrder(Order.desc("obsDatetime"));
+		criteria.addOrder(Order.asc("obsId"));
+		if (firstResult != null) {
+			criteria.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			criteria.setMaxResults(maxResults);
+		}
+		return criteria.list();
+	}
+	
+	/**
+	 * @see RestHelperService#getObservationCount(Patient, Collection, Collection, Collection)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Long getObservationCount(Patient patient, Collection<String> questionConceptUuids,
+	        Collection<String> answerConceptUuids, Collection<String> groupingConceptUuids) {
+		Criteria criteria = createObsCriteria(patient, questionConceptUuids, answerConceptUuids, groupingConceptUuids);
+		criteria.setProjection(Projections.rowCount());
+		return ((Number) criteria.uniqueResult()).longValue();
+	}
+	
+	/**
+	 * @see RestHelperService#getOrders(Class, Patient, CareSetting, Collection, String, Date,
+	 *      boolean, String, Integer, Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public List<org.openmrs.Order> getOrders(Class<? extends org.openmrs.Order> orderClass, Patient patient,
+	        CareSetting careSetting, Collection<OrderType> orderTypes, String status, Date asOfDate,
+	        boolean includeVoided, String sortOrder, Integer firstResult, Integer maxResults) {
+		boolean inactive = "inactive".equals(status);
+		boolean any = "any".equals(status);
+		
+		StringBuilder hql = new StringBuilder("select o from ");
+		hql.append(orderClass != null ? orderClass.getName() : org.openmrs.Order.class.getName());
+		hql.append(" o where o.patient = :patient and o.action <> :discontinue");
+		if (careSetting != null) {
+			hql.append(" and o.careSetting = :careSetting");
+		}
+		if (orderTypes != null && !orderTypes.isEmpty()) {
+			hql.append(" and o.orderType in (:orderTypes)");
+		}
+		if (!any || !includeVoided) {
+			hql.append(" and o.voided = false");
+		}
+		// the same conditions as Order#isActive, Order#isDiscontinued and Order#isExpired
+		if (inactive) {
+			hql.append(" and o.dateActivated <= :asOfDate and ((o.dateStopped is not null and o.dateStopped < :asOfDate)");
+			hql.append(" or (o.autoExpireDate is not null and o.autoExpireDate < :asOfDate))");
+		} else if (!any) {
+			hql.append(" and o.dateActivated <= :asOfDate and (o.dateStopped is null or o.dateStopped >= :asOfDate)");
+			hql.append(" and (o.autoExpireDate is null or o.autoExpireDate >= :asOfDate)");
+		}
+		
+		// the order id is the tie-breaker to keep pages stable
+		if (sortOrder != null) {
+			String direction = "asc".equalsIgnoreCase(sortOrder) ? "asc" : "desc";
+			if (inactive) {
+				hql.append(" order by coalesce(o.dateStopped, o.autoExpireDate, o.dateCreated) ");
+			} else {
+				hql.append(" order by coalesce(o.dateActivated, o.dateCreated) ");
+			}
+			hql.append(direction).append(", o.orderId asc");
+		} else if (inactive || any) {
+			hql.append(" order by o.dateActivated desc, o.orderId asc");
+		} else {
+			hql.append(" order by o.orderId asc");
+		}
+		
+		Query query = getSession().createQuery(hql.toString());
+		query.setParameter("patient", patient);
+		query.setParameter("discontinue", org.openmrs.Order.Action.DISCONTINUE);
+		if (careSetting != null) {
+			query.setParameter("careSetting", careSetting);
+		}
+		if (orderTypes != null && !orderTypes.isEmpty()) {
+			query.setParameterList("orderTypes", orderTypes);
+		}
+		if (!any) {
+			query.setTimestamp("asOfDate", asOfDate != null ? asOfDate : new Date());
+		}
+		if (firstResult != null) {
+			query.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			query.setMaxResults(maxResults);
+		}
+		return query.list();
+	}
+	
+	/**
+	 * @see RestHelperService#getConceptProposalsWithUniqueOriginalTexts(boolean, String, boolean,
+	 *      Integer, Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public Map<ConceptProposal, Long> getConceptProposalsWithUniqueOriginalTexts(boolean includeCompleted,
+	        String sortOn, boolean descending, Integer firstResult, Integer maxResults) {
+		String direction = descending ? "desc" : "asc";
+		// the occurrences of an original text only count the unmapped proposals
+		StringBuilder hql = new StringBuilder(
+		        "select min(cp.conceptProposalId), sum(case when cp.state = :unmapped then 1 else 0 end)"
+		                + " from ConceptProposal cp");
+		if (!includeCompleted) {
+			hql.append(" where cp.state = :unmapped");
+		}
+		hql.append(" group by cp.originalText order by ");
+		if ("occurrences".equals(sortOn)) {
+			hql.append("count(cp.conceptProposalId) ").append(direction).append(", cp.originalText asc");
+		} else {
+			hql.append("cp.originalText ").append(direction);
+		}
+		
+		Query query = getSession().createQuery(hql.toString());
+		query.setParameter("unmapped", OpenmrsConstants.CONCEPT_PROPOSAL_UNMAPPED);
+		if (firstResult != null) {
+			query.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			query.setMaxResults(maxResults);
+		}
+		List<Object[]> rows = query.list();
+		Map<ConceptProposal, Long> proposals = new LinkedHashMap<ConceptProposal, Long>();
+		if (rows.isEmpty()) {
+			return proposals;
+		}
+		
+		List<Integer> proposalIds = new ArrayList<Integer>(rows.size());
+		for (Object[] row : rows) {
+			proposalIds.add((Integer) row[0]);
+		}
+		Map<Integer, ConceptProposal> proposalsById = new HashMap<Integer, ConceptProposal>();
+		for (ConceptProposal proposal : (List<ConceptProposal>) createCriteria(ConceptProposal.class)
+		        .add(Restrictions.in("conceptProposalId", proposalIds)).list()) {
+			proposalsById.put(proposal.getConceptProposalId(), proposal);
+		}
+		
+		for (Object[] row : rows) {
+			proposals.put(proposalsById.get(row[0]), ((Number) row[1]).longValue());
+		}
+		return proposals;
+	}
+	
+	/**
+	 * @see RestHelperService#getConceptProposalOriginalTextCount(boolean)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Long getConceptProposalOriginalTextCount(boolean includeCompleted) {
+		Criteria criteria = createCriteria(ConceptProposal.class);
+		if (!includeCompleted) {
+			criteria.add(Restrictions.eq("state", OpenmrsConstants.CONCEPT_PROPOSAL_UNMAPPED));
+		}
+		criteria.setProjection(Projections.countDistinct("originalText"));
+		return ((Number) criteria.uniqueResult()).longValue();
+	}
+	
+	/**
+	 * @see RestHelperService#getConceptProposalCount(String)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Long getConceptProposalCount(String originalText) {
+		Criteria criteria = createCriteria(ConceptProposal.class);
+		criteria.add(Restrictions.eq("state", OpenmrsConstants.CONCEPT_PROPOSAL_UNMAPPED));
+		if (originalText != null) {
+			criteria.add(Restrictions.eq("originalText", originalText));
+		} else {
+			criteria.add(Restrictions.isNull("originalText"));
+		}
+		criteria.setProjection(Projections.rowCount());
+		return ((Number) criteria.uniqueResult()).longValue();
+	}
+	
+	/**
+	 * @see RestHelperService#getConceptSetMemberIds(Concept, boolean)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public Set<Integer> getConceptSetMemberIds(Concept conceptSet, boolean includeRetired) {
+		// load the rows of the set and all nested sets level by level
+		Map<Integer, List<Object[]>> membersBySetId = new HashMap<Integer, List<Object[]>>();
+		Set<Integer> setIds = Collections.singleton(conceptSet.getConceptId());
+		while (!setIds.isEmpty()) {
+			Criteria criteria = createCriteria(ConceptSet.class);
+			criteria.createAlias("conceptSet", "set");
+			criteria.createAlias("concept", "member");
+			criteria.add(Restrictions.in("set.conceptId", setIds));
+			criteria.setProjection(Projections.projectionList().add(Projections.property("set.conceptId"))
+			        .add(Projections.property("member.conceptId")).add(Projections.property("member.set"))
+			        .add(Projections.property("member.retired")));
+			criteria.addOrder(Order.asc("sortWeight"));
+			criteria.addOrder(Order.asc("conceptSetId"));
+			List<Object[]> rows = criteria.list();
+			
+			Set<Integer> nestedSetIds = new HashSet<Integer>();
+			for (Object[] row : rows) {
+				List<Object[]> members = membersBySetId.get(row[0]);
+				if (members == null) {
+					members = new ArrayList<Object[]>();
+					membersBySetId.put((Integer) row[0], members);
+				}
+				members.add(row);
+				if (Boolean.TRUE.equals(row[2]) && !membersBySetId.containsKey(row[1])) {
+					nestedSetIds.add((Integer) row[1]);
+				}
+			}
+			for (Integer nestedSetId : nestedSetIds) {
+				// marks the nested set as loaded even if it has no members
+				if (!membersBySetId.containsKey(nestedSetId)) {
+					membersBySetId.put(nestedSetId, new ArrayList<Object[]>());
+				}
+			}
+			setIds = nestedSetIds;
+		}
+		
+		Set<Integer> memberIds = new LinkedHashSet<Integer>();
+		addConceptSetMemberIds(conceptSet.getConceptId(), membersBySetId, includeRetired, memberIds,
+		    new HashSet<Integer>());
+		return memberIds;
+	}
+	
+	private void addConceptSetMemberIds(Integer setId, Map<Integer, List<Object[]>> membersBySetId,
+	        boolean includeRetired, Set<Integer> memberIds, Set<Integer> alreadySeen) {
+		if (!alreadySeen.add(setId) || !membersBySetId.containsKey(setId)) {
+			return;
+		}
+		for (Object[] member : membersBySetId.get(setId)) {
+			Integer conceptId = (Integer) member[1];
+			if (Boolean.TRUE.equals(member[2])) {
+				addConceptSetMemberIds(conceptId, membersBySetId, includeRetired, memberIds, alreadySeen);
+			} else if (includeRetired || !Boolean.TRUE.equals(member[3])) {
+				memberIds.add(conceptId);
+			}
+		}
+	}
+	
+	/**
+	 * @see RestHelperService#getConcepts(List)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public List<Concept> getConcepts(List<Integer> conceptIds) {
+		if (conceptIds.isEmpty()) {
+			return new ArrayList<Concept>();
+		}
+		
+		Map<Integer, Concept> conceptsById = new HashMap<Integer, Concept>();
+		for (Concept concept : (List<Concept>) createCriteria(Concept.class)
+		        .add(Restrictions.in("conceptId", conceptIds)).list()) {
+			conceptsById.put(concept.getConceptId(), concept);
+		}
+		
+		List<Concept> concepts = new ArrayList<Concept>(conceptIds.size());
+		for (Integer conceptId : conceptIds) {
+			Concept concept = conceptsById.get(conceptId);
+			if (concept != null) {
+				concepts.add(concept);
+			}
+		}
+		return concepts;
+	}
+	
+	/**
+	 * @see RestHelperService#getLatestConceptChange()
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Date getLatestConceptChange() {
+		Object[] latest = (Object[]) createCriteria(Concept.class)
+		        .setProjection(Projections.projectionList().add(Projections.max("dateCreated"))
+		                .add(Projections.max("dateChanged")).add(Projections.max("dateRetired")))
+		        .uniqueResult();
+		
+		Date latestChange = null;
+		for (Object date : latest) {
+			if (date != null && (latestChange == null || ((Date) date).after(latestChange))) {
+				latestChange = (Date) date;
+			}
+		}
+		return latestChange != null ? new Date(latestChange.getTime()) : null;
+	}
+	
+	/**
+	 * @see RestHelperService#getObjectsChangedSince(Class, Date, Date, Integer, Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public <T> List<T> getObjectsChangedSince(Class<? extends T> type, Date since, Date until, Integer afterId,
+	        Integer maxResults) {
+		if (!Auditable.class.isAssignableFrom(type)) {
+			throw new IllegalArgumentException(type + " does not record when it has been changed");
+		}
+		
+		// not every type maps all the dates of its interfaces, e.g. obs have no date changed
+		ClassMetadata metadata = sessionFactory.getHibernateSessionFactory().getClassMetadata(type);
+		if (metadata == null) {
+			throw new IllegalArgumentException(type + " is not mapped");
+		}
+		List<String> mappedProperties = Arrays.asList(metadata.getPropertyNames());
+		List<String> dateProperties = new ArrayList<String>();
+		for (String dateProperty : CHANGE_DATE_PROPERTIES) {
+			if (mappedProperties.contains(dateProperty)) {
+				dateProperties.add(dateProperty);
+			}
+		}
+		if (!dateProperties.contains("dateCreated")) {
+			throw new IllegalArgumentException(type + " does not record when it has been created");
+		}
+		
+		Criteria criteria = createCriteria(type);
+		if (since == null) {
+			criteria.add(Restrictions.le("dateCreated", until));
+		} else {
+			Disjunction changed = Restrictions.disjunction();
+			for (String dateProperty : dateProperties) {
+				changed.add(Restrictions.and(Restrictions.gt(dateProperty, since), Restrictions.le(dateProperty, until)));
+			}
+			criteria.add(changed);
+		}
+		if (afterId != null) {
+			criteria.add(Restrictions.gt("id", afterId));
+		}
+		criteria.addOrder(Order.asc("id"));
+		if (maxResults != null) {
+			criteria.setMaxResults(maxResults);
 		}
 		return criteria.list();
 	}
 	
+	private Criteria createObsCriteria(Patient patient, Collection<String> questionConceptUuids,
+	        Collection<String> answerConceptUuids, Collection<String> groupingConceptUuids) {
+		Criteria criteria = createCriteria(Obs.class);
+		criteria.add(Restrictions.eq("person", patient));
+		criteria.add(Restrictions.eq("voided", false));
+		if (questionConceptUuids != null && !questionConceptUuids.isEmpty()) {
+			criteria.createAlias("concept", "question");
+			criteria.add(Restrictions.in("question.uuid", questionConceptUuids));
+		}
+		if (answerConceptUuids != null && !answerConceptUuids.isEmpty()) {
+			criteria.createAlias("valueCoded", "answer");
+			criteria.add(Restrictions.in("answer.uuid", answerConceptUuids));
+		}
+		if (groupingConceptUuids != null && !groupingConceptUuids.isEmpty()) {
+			criteria.createAlias("obsGroup", "obsGroup");
+			criteria.createAlias("obsGroup.concept", "groupingConcept");
+			criteria.add(Restrictions.in("groupingConcept.uuid", groupingConceptUuids));
+		}
+		return criteria;
+	}
+	
 	/**
 	 * @see RestHelperService#getRegisteredSearchHandlers()
 	 */
@@ -11,6 +11,7 @@ package org.openmrs.module.webservices.rest.web.api.impl;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -18,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.proxy.HibernateProxy;
@@ -47,17 +49,15 @@ import org.openmrs.util.OpenmrsConstants;
  */
 public class RestServiceImpl implements RestService {
 	
-	volatile Map<String, ResourceDefinition> resourceDefinitionsByNames;
+	private final AtomicReference<ResourceRegistry> resourceRegistry = new AtomicReference<ResourceRegistry>();
 	
-	volatile Map<Class<?>, Resource> resourcesBySupportedClasses;
+	private final AtomicReference<SearchHandlerRegistry> searchHandlerRegistry = new AtomicReference<SearchHandlerRegistry>();
 	
-	private volatile Map<CompositeSearchHandlerKeyValue, Set<SearchHandler>> searchHandlersByParameter;
-	
-	private volatile Map<CompositeSearchHandlerKeyValue, SearchHandler> searchHandlersByIds;
-	
-	private volatile Map<String, Set<SearchHandler>> searchHandlersByResource;
-	
-	private volatile List<SearchHandler> allSearchHandlers;
+	/**
+	 * Guards building of the registries so that only one thread at a time scans for resources and
+	 * search handlers.
+	 */
+	private final Object registryLock = new Object();
 	
 	private RestHelperService restHelperService;
 	
@@ -95,6 +95,49 @@ public class RestServiceImpl implements RestService {
 		
 	}
 	
+	/**
+	 * An immutable snapshot of the resources known to the service. A new snapshot is built whenever
+	 * the service is initialized and published with a single atomic swap so that concurrent
+	 * requests keep using the previous snapshot until the new one is complete.
+	 */
+	static class ResourceRegistry {
+		
+		final Map<String, ResourceDefinition> resourceDefinitionsByNames;
+		
+		final Map<Class<?>, Resource> resourcesBySupportedClasses;
+		
+		ResourceRegistry(Map<String, ResourceDefinition> resourceDefinitionsByNames,
+		    Map<Class<?>, Resource> resourcesBySupportedClasses) {
+			this.resourceDefinitionsByNames = Collections.unmodifiableMap(resourceDefinitionsByNames);
+			this.resourcesBySupportedClasses = Collections.unmodifiableMap(resourcesBySupportedClasses);
+		}
+	}
+	
+	/**
+	 * An immutable snapshot of the search handlers known to the service.
+	 * 
+	 * @see ResourceRegistry
+	 */
+	private static class SearchHandlerRegistry {
+		
+		final Map<CompositeSearchHandlerKeyValue, Set<SearchHandler>> searchHandlersByParameter;
+		
+		final Map<CompositeSearchHandlerKeyValue, SearchHandler> searchHandlersByIds;
+		
+		final Map<String, Set<SearchHandler>> searchHandlersByResource;
+		
+		final List<SearchHandler> allSearchHandlers;
+		
+		SearchHandlerRegistry(Map<CompositeSearchHandlerKeyValue, Set<SearchHandler>> searchHandlersByParameter,
+		    Map<CompositeSearchHandlerKeyValue, SearchHandler> searchHandlersByIds,
+		    Map<String, Set<SearchHandler>> searchHandlersByResource, List<SearchHandler> allSearchHandlers) {
+			this.searchHandlersByParameter = Collections.unmodifiableMap(searchHandlersByParameter);
+			this.searchHandlersByIds = Collections.unmodifiableMap(searchHandlersByIds);
+			this.searchHandlersByResource = Collections.unmodifiableMap(searchHandlersByResource);
+			this.allSearchHandlers = Collections.unmodifiableList(allSearchHandlers);
+		}
+	}
+	
 	/**
 	 * Wraps {@code Resource} name and an additional string-based key into a composite key.
 	 */
@@ -145,11 +188,29 @@ public class RestServiceImpl implements RestService {
 		}
 	}
 	
-	private void initializeResources() {
-		if (resourceDefinitionsByNames != null) {
-			return;
+	/**
+	 * Returns the current resource registry, building it first if the service has not been
+	 * initialized yet.
+	 * 
+	 * @return the resource registry
+	 */
+	private ResourceRegistry getResourceRegistry() {
+		ResourceRegistry registry = resourceRegistry.get();
+		if (registry != null) {
+			return registry;
 		}
 		
+		synchronized (registryLock) {
+			registry = resourceRegistry.get();
+			if (registry == null) {
+				registry = buildResourceRegistry();
+				resourceRegistry.set(registry);
+			}
+			return registry;
+		}
+	}
+	
+	private ResourceRegistry buildResourceRegistry() {
 		Map<String, ResourceDefinition> tempResourceDefinitionsByNames = new HashMap<String, ResourceDefinition>();
 		Map<Class<?>, Resource> tempResourcesBySupportedClasses = new HashMap<Class<?>, Resource>();
 		
@@ -175,8 +236,7 @@ public class RestServiceImpl implements RestService {
 			}
 		}
 		
-		resourcesBySupportedClasses = tempResourcesBySupportedClasses;
-		resourceDefinitionsByNames = tempResourceDefinitionsByNames;
+		return new ResourceRegistry(tempResourceDefinitionsByNames, tempResourcesBySupportedClasses);
 	}
 	
 	/**
@@ -282,11 +342,29 @@ public class RestServiceImpl implements RestService {
 		return result;
 	}
 	
-	private void initializeSearchHandlers() {
-		if (searchHandlersByIds != null) {
-			return;
+	/**
+	 * Returns the current search handler registry, building it first if the service has not been
+	 * initialized yet.
+	 * 
+	 * @return the search handler registry
+	 */
+	private SearchHandlerRegistry getSearchHandlerRegistry() {
+		SearchHandlerRegistry registry = searchHandlerRegistry.get();
+		if (registry != null) {
+			return registry;
 		}
 		
+		synchronized (registryLock) {
+			registry = searchHandlerRegistry.get();
+			if (registry == null) {
+				registry = buildSearchHandlerRegistry();
+				searchHandlerRegistry.set(registry);
+			}
+			return registry;
+		}
+	}
+	
+	private SearchHandlerRegistry buildSearchHandlerRegistry() {
 		Map<CompositeSearchHandlerKeyValue, SearchHandler> tempSearchHandlersByIds = new HashMap<CompositeSearchHandlerKeyValue, SearchHandler>();
 		Map<CompositeSearchHandlerKeyValue, Set<SearchHandler>> tempSearchHandlersByParameters = new HashMap<CompositeSearchHandlerKeyValue, Set<SearchHandler>>();
 		Map<String, Set<SearchHandler>> tempSearchHandlersByResource = new HashMap<String, Set<SearchHandler>>();
@@ -296,10 +374,8 @@ public class RestServiceImpl implements RestService {
 			addSearchHandler(tempSearchHandlersByIds, tempSearchHandlersByParameters, tempSearchHandlersByResource,
 			    searchHandler);
 		}
-		this.allSearchHandlers = allSearchHandlers;
-		searchHandlersByParameter = tempSearchHandlersByParameters;
-		searchHandlersByIds = tempSearchHandlersByIds;
-		searchHandlersByResource = tempSearchHandlersByResource;
+		return new SearchHandlerRegistry(tempSearchHandlersByParameters, tempSearchHandlersByIds,
+		        tempSearchHandlersByResource, allSearchHandlers);
 	}
 	
 	private void addSearchHandler(Map<CompositeSearchHandlerKeyValue, SearchHandler> tempSearchHandlersByIds,
@@ -409,9 +485,7 @@ public class RestServiceImpl implements RestService {
 	 */
 	@Override
 	public Resource getResourceByName(String name) throws APIException {
-		initializeResources();
-		
-		ResourceDefinition resourceDefinition = resourceDefinitionsByNames.get(name);
+		ResourceDefinition resourceDefinition = getResourceRegistry().resourceDefinitionsByNames.get(name);
 		if (resourceDefinition == null) {
 			throw new UnknownResourceException("Unknown resource: " + name);
 		} else {
@@ -437,7 +511,7 @@ public class RestServiceImpl implements RestService {
 	 */
 	@Override
 	public Resource getResourceBySupportedClass(Class<?> resourceClass) throws APIException {
-		initializeResources();
+		Map<Class<?>, Resource> resourcesBySupportedClasses = getResourceRegistry().resourcesBySupportedClasses;
 		
 		if (HibernateProxy.class.isAssignableFrom(resourceClass)) {
 			resourceClass = resourceClass.getSuperclass();
@@ -519,7 +593,7 @@ public class RestServiceImpl implements RestService {
 	 */
 	@Override
 	public SearchHandler getSearchHandler(String resourceName, Map<String, String[]> parameters) throws APIException {
-		initializeSearchHandlers();
+		SearchHandlerRegistry registry = getSearchHandlerRegistry();
 		
 		Set<SearchParameter> searchParameters = new HashSet<SearchParameter>();
 		
@@ -532,8 +606,8 @@ public class RestServiceImpl implements RestService {
 		
 		String[] searchIds = parameters.get(RestConstants.REQUEST_PROPERTY_FOR_SEARCH_ID);
 		if (searchIds != null && searchIds.length > 0) {
-			SearchHandler searchHandler = searchHandlersByIds.get(new CompositeSearchHandlerKeyValue(resourceName,
-			        searchIds[0]));
+			SearchHandler searchHandler = registry.searchHandlersByIds.get(new CompositeSearchHandlerKeyValue(
+			        resourceName, searchIds[0]));
 			if (searchHandler == null) {
 				throw new InvalidSearchException("The search with id '" + searchIds[0] + "' for '" + resourceName
 				        + "' resource is not recognized");
@@ -544,10 +618,10 @@ public class RestServiceImpl implements RestService {
 		
 		Set<SearchHandler> candidateSearchHandlers = null;
 		for (SearchParameter param : searchParameters) {
-			Set<SearchHandler> searchHandlers = searchHandlersByParameter.get(new CompositeSearchHandlerKeyValue(
+			Set<SearchHandler> searchHandlers = registry.searchHandlersByParameter.get(new CompositeSearchHandlerKeyValue(
 			        resourceName, param.getName(), param.getValue()));
 			if (searchHandlers == null) {
-				searchHandlers = searchHandlersByParameter.get(new CompositeSearchHandlerKeyValue(resourceName, param
+				searchHandlers = registry.searchHandlersByParameter.get(new CompositeSearchHandlerKeyValue(resourceName, param
 				        .getName()));
 				if (searchHandlers == null)
 					return null; //Missing parameter so there's no handler.
@@ -646,11 +720,9 @@ public class RestServiceImpl implements RestService {
 	 */
 	@Override
 	public List<DelegatingResourceHandler<?>> getResourceHandlers() throws APIException {
-		initializeResources();
-		
 		List<DelegatingResourceHandler<?>> resourceHandlers = new ArrayList<DelegatingResourceHandler<?>>();
 		
-		for (Resource resource : resourcesBySupportedClasses.values()) {
+		for (Resource resource : getResourceRegistry().resourcesBySupportedClasses.values()) {
 			if (resource instanceof DelegatingResourceHandler) {
 				resourceHandlers.add((DelegatingResourceHandler<?>) resource);
 			}
@@ -670,8 +742,8 @@ public class RestServiceImpl implements RestService {
 	 * <strong>Should</strong> return null if search handlers have not been initialized
 	 */
 	public List<SearchHandler> getAllSearchHandlers() {
-		
-		return allSearchHandlers;
+		SearchHandlerRegistry registry = searchHandlerRegistry.get();
+		return registry != null ? registry.allSearchHandlers : null;
 	}
 	
 	/**
@@ -684,10 +756,7 @@ public class RestServiceImpl implements RestService {
 	 */
 	@Override
 	public Set<SearchHandler> getSearchHandlers(String resourceName) {
-		if (searchHandlersByResource == null) {
-			initializeSearchHandlers();
-		}
-		return searchHandlersByResource.get(resourceName);
+		return getSearchHandlerRegistry().searchHandlersByResource.get(resourceName);
 	}
 	
 	/**
@@ -701,15 +770,13 @@ public class RestServiceImpl implements RestService {
 	 */
 	@Override
 	public void initialize() {
-		
-		// first clear out any existing values
-		resourceDefinitionsByNames = null;
-		resourcesBySupportedClasses = null;
-		searchHandlersByIds = null;
-		searchHandlersByParameter = null;
-		searchHandlersByResource = null;
-		
-		initializeResources();
-		initializeSearchHandlers();
+		synchronized (registryLock) {
+			// build the new registries off to the side, requests keep using the current ones meanwhile
+			ResourceRegistry newResourceRegistry = buildResourceRegistry();
+			SearchHandlerRegistry newSearchHandlerRegistry = buildSearchHandlerRegistry();
+			
+			resourceRegistry.set(newResourceRegistry);
+			searchHandlerRegistry.set(newSearchHandlerRegistry);
+		}
 	}
 }
@@ -0,0 +1,83 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.api.impl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.util.OpenmrsConstants;
+import org.springframework.aop.AfterReturningAdvice;
+
+/**
+ * Keeps track of changes to the data rendered in the session snapshots cached by the session
+ * resource, i.e. users, roles, privileges, persons, providers, locations and the allowed locales.
+ * The cached snapshots are tagged with the {@link #getVersion()} they were rendered for and are
+ * discarded once it changes.
+ */
+public class SessionSnapshotAdvice implements AfterReturningAdvice, GlobalPropertyListener {
+	
+	private static final String[] MUTATING_METHOD_PREFIXES = { "save", "purge", "retire", "unretire", "void", "unvoid",
+	        "change", "set", "remove", "delete", "merge" };
+	
+	private static final AtomicLong version = new AtomicLong();
+	
+	/**
+	 * @return a number which changes whenever the data rendered in the session snapshots changes
+	 */
+	public static long getVersion() {
+		return version.get();
+	}
+	
+	/**
+	 * Discards all cached session snapshots.
+	 */
+	public static void invalidateAll() {
+		version.incrementAndGet();
+	}
+	
+	/**
+	 * @see AfterReturningAdvice#afterReturning(Object, Method, Object[], Object)
+	 */
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) throws Throwable {
+		for (String prefix : MUTATING_METHOD_PREFIXES) {
+			if (method.getName().startsWith(prefix)) {
+				invalidateAll();
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return OpenmrsConstants.GLOBAL_PROPERTY_LOCALE_ALLOWED_LIST.equals(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		invalidateAll();
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		invalidateAll();
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.filter;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.AdmissionControl;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Filter for /ws/rest endpoints which rejects requests of authenticated users with 429 (Too Many
+ * Requests) while they are already making as many requests as allowed by the
+ * {@link RestConstants#MAX_CONCURRENT_REQUESTS_PER_USER_GLOBAL_PROPERTY_NAME} global property. It
+ * must be mapped after the {@link AuthorizationFilter}.
+ */
+public class ConcurrentRequestsFilter implements Filter {
+	
+	protected final Log log = LogFactory.getLog(getClass());
+	
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig arg0) throws ServletException {
+		log.debug("Initializing REST WS Concurrent Requests filter");
+	}
+	
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		log.debug("Destroying REST WS Concurrent Requests filter");
+	}
+	
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse,
+	 *      javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+	        ServletException {
+		User user = Context.getAuthenticatedUser();
+		Integer userId = user != null ? user.getUserId() : null;
+		
+		AdmissionControl admissionControl = AdmissionControl.getInstance();
+		if (!admissionControl.tryAcquireUserRequest(userId)) {
+			HttpServletResponse httpResponse = (HttpServletResponse) response;
+			httpResponse.setHeader("Retry-After", "1");
+			httpResponse.sendError(429, "Too many concurrent requests, try again once the previous requests completed");
+			return;
+		}
+		
+		try {
+			chain.doFilter(request, response);
+		}
+		finally {
+			admissionControl.releaseUserRequest(userId);
+		}
+	}
+}
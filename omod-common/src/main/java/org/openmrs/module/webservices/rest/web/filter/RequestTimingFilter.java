@@ -0,0 +1,148 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.filter;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.RequestTimings;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.SlowRequestLog;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Filter for /ws/rest endpoints which records the {@link RequestTimings} of requests asking for
+ * them with the {@link RestConstants#DEBUG_HEADER} header or the
+ * {@link RestConstants#REQUEST_PROPERTY_FOR_DEBUG} parameter set to "timing", and returns them in
+ * the Server-Timing response header. Only users with the {@link RestConstants#PRIV_MANAGE_RESTWS}
+ * privilege get the timings. It must be mapped after the {@link AuthorizationFilter}.
+ * <p>
+ * The response body is buffered for such requests, so that the time spent writing it can be
+ * included in the header.
+ * </p>
+ * <p>
+ * The timings of all requests are recorded while the {@link SlowRequestLog} is enabled.
+ * </p>
+ */
+public class RequestTimingFilter implements Filter {
+	
+	private static final String TIMING = "timing";
+	
+	protected final Log log = LogFactory.getLog(getClass());
+	
+	/**
+	 * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+	 */
+	@Override
+	public void init(FilterConfig arg0) throws ServletException {
+		log.debug("Initializing REST WS Request Timing filter");
+	}
+	
+	/**
+	 * @see javax.servlet.Filter#destroy()
+	 */
+	@Override
+	public void destroy() {
+		log.debug("Destroying REST WS Request Timing filter");
+	}
+	
+	/**
+	 * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse,
+	 *      javax.servlet.FilterChain)
+	 */
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+	        ServletException {
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		boolean sendTimings = isTimingRequested(httpRequest) && Context.hasPrivilege(RestConstants.PRIV_MANAGE_RESTWS);
+		SlowRequestLog slowRequestLog = SlowRequestLog.getInstance();
+		boolean logSlowRequest = slowRequestLog.isEnabled();
+		if (!sendTimings && !logSlowRequest) {
+			chain.doFilter(request, response);
+			return;
+		}
+		
+		RequestTimings timings = RequestTimings.begin();
+		ContentCachingResponseWrapper cachingResponse = sendTimings ? new ContentCachingResponseWrapper(
+		        (HttpServletResponse) response) : null;
+		TimedResponse timedResponse = new TimedResponse(cachingResponse != null ? cachingResponse
+		        : (HttpServletResponse) response);
+		try {
+			chain.doFilter(request, timedResponse);
+		}
+		finally {
+			if (timedResponse.serializationStart != -1) {
+				timings.add(RequestTimings.SERIALIZATION, System.nanoTime() - timedResponse.serializationStart);
+			}
+			RequestTimings.end();
+			
+			if (logSlowRequest) {
+				slowRequestLog.log(httpRequest, timedResponse.getStatus(), timings);
+			}
+			if (cachingResponse != null) {
+				String serverTiming = timings.toServerTiming();
+				cachingResponse.setHeader("Server-Timing", serverTiming);
+				cachingResponse.copyBodyToResponse();
+				if (log.isDebugEnabled()) {
+					log.debug("Timings of " + httpRequest.getMethod() + " " + httpRequest.getRequestURI() + ": "
+					        + serverTiming);
+				}
+			}
+		}
+	}
+	
+	private boolean isTimingRequested(HttpServletRequest request) {
+		return TIMING.equals(request.getHeader(RestConstants.DEBUG_HEADER))
+		        || TIMING.equals(request.getParameter(RestConstants.REQUEST_PROPERTY_FOR_DEBUG));
+	}
+	
+	/**
+	 * Remembers when the response body started to be written.
+	 */
+	private static class TimedResponse extends HttpServletResponseWrapper {
+		
+		private long serializationStart = -1;
+		
+		public TimedResponse(HttpServletResponse response) {
+			super(response);
+		}
+		
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			startSerialization();
+			return super.getOutputStream();
+		}
+		
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			startSerialization();
+			return super.getWriter();
+		}
+		
+		private void startSerialization() {
+			if (serializationStart == -1) {
+				serializationStart = System.nanoTime();
+			}
+		}
+	}
+}
@@ -16,6 +16,7 @@ import org.openmrs.module.webservices.rest.SimpleObject;
 import org.openmrs.module.webservices.rest.web.ConversionUtil;
 import org.openmrs.module.webservices.rest.web.Hyperlink;
 import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.RequestTimings;
 import org.openmrs.module.webservices.rest.web.resource.api.Converter;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
@@ -55,6 +56,8 @@ public abstract class BasePageableResult<T> implements PageableResult {
 			results.add(ConversionUtil.convertToRepresentation(match, context.getRepresentation(), preferredConverter));
 		}
 		
+		RequestTimings.putDetail("resultCount", results.size());
+		
 		SimpleObject ret = new SimpleObject().add("results", results);
 		boolean hasMore = hasMoreResults();
 		if (context.getStartIndex() > 0 || hasMore) {
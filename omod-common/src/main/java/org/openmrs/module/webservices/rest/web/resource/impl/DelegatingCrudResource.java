@@ -9,23 +9,38 @@
  */
 package org.openmrs.module.webservices.rest.web.resource.impl;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openmrs.Auditable;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.Retireable;
+import org.openmrs.Voidable;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.webservices.rest.SimpleObject;
 import org.openmrs.module.webservices.rest.web.ConversionUtil;
+import org.openmrs.module.webservices.rest.web.Hyperlink;
+import org.openmrs.module.webservices.rest.web.LocalizationCache;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.RestUtil;
 import org.openmrs.module.webservices.rest.web.annotation.Resource;
+import org.openmrs.module.webservices.rest.web.api.RestHelperService;
 import org.openmrs.module.webservices.rest.web.representation.Representation;
 import org.openmrs.module.webservices.rest.web.resource.api.CrudResource;
 import org.openmrs.module.webservices.rest.web.resource.api.Listable;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.resource.api.Searchable;
 import org.openmrs.module.webservices.rest.web.response.IllegalPropertyException;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
 import org.openmrs.module.webservices.rest.web.response.ObjectNotFoundException;
 import org.openmrs.module.webservices.rest.web.response.ResourceDoesNotSupportOperationException;
 import org.openmrs.module.webservices.rest.web.response.ResponseException;
@@ -213,6 +228,11 @@ public abstract class DelegatingCrudResource<T> extends BaseDelegatingResource<T
 	 */
 	@Override
 	public SimpleObject getAll(RequestContext context) throws ResponseException {
+		String changedSince = context.getParameter(RestConstants.REQUEST_PROPERTY_FOR_CHANGED_SINCE);
+		if (changedSince != null) {
+			return getChangedSince(changedSince, context);
+		}
+		
 		if (context.getType() != null) {
 			if (!hasTypesDefined())
 				throw new IllegalArgumentException(getClass() + " does not support "
@@ -232,6 +252,126 @@ public abstract class DelegatingCrudResource<T> extends BaseDelegatingResource<T
 		}
 	}
 	
+	/**
+	 * Gets the objects created, changed, voided or retired since the given date up to the date of
+	 * the {@link RestConstants#REQUEST_PROPERTY_FOR_HIGH_WATER_MARK} parameter or else the current
+	 * date less the {@link RestConstants#CHANGED_SINCE_SAFETY_LAG_GLOBAL_PROPERTY_NAME}, which is
+	 * returned as the high-water mark to get the next changes from. The lag makes sure changes of
+	 * transactions committed after the changes are collected are still returned by the next request.
+	 * Voided and retired objects are returned as tombstones holding their uuids.
+	 * <p>
+	 * The objects are queried page by page in the database for all {@link Auditable} delegates.
+	 * Pages are ordered by id and the next page starts after the id of the last object given by the
+	 * {@link RestConstants#REQUEST_PROPERTY_FOR_LAST_ID} parameter, so that objects changed while
+	 * paging do not shift the following pages. Purged objects cannot be returned since nothing is
+	 * left to find them by.
+	 * </p>
+	 * 
+	 * @param changedSince the date of the {@link RestConstants#REQUEST_PROPERTY_FOR_CHANGED_SINCE}
+	 *            parameter
+	 * @param context the request context
+	 * @return the results, the tombstones and the high-water mark
+	 * @throws ResponseException
+	 */
+	@SuppressWarnings("unchecked")
+	protected SimpleObject getChangedSince(String changedSince, RequestContext context) throws ResponseException {
+		Class<? extends T> type;
+		if (context.getType() != null) {
+			type = getActualSubclass(context.getType());
+		} else {
+			type = (Class<? extends T>) RestUtil.getSupportedClass(this);
+		}
+		if (type == null || !Auditable.class.isAssignableFrom(type)) {
+			throw new ResourceDoesNotSupportOperationException(getClass().getSimpleName() + " does not support "
+			        + RestConstants.REQUEST_PROPERTY_FOR_CHANGED_SINCE);
+		}
+		
+		Date since = (Date) ConversionUtil.convert(changedSince, Date.class);
+		String highWaterMark = context.getParameter(RestConstants.REQUEST_PROPERTY_FOR_HIGH_WATER_MARK);
+		Date until;
+		if (highWaterMark != null) {
+			until = (Date) ConversionUtil.convert(highWaterMark, Date.class);
+		} else {
+			// transactions still running might commit changes dated before now later on
+			until = new Date(System.currentTimeMillis() - RestUtil.getChangedSinceSafetyLag() * 1000L);
+		}
+		
+		// page by id rather than by index, since changes made meanwhile would shift the following pages
+		String lastId = context.getParameter(RestConstants.REQUEST_PROPERTY_FOR_LAST_ID);
+		Integer afterId;
+		try {
+			afterId = lastId != null ? Integer.valueOf(lastId) : null;
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalRequestException(RestConstants.REQUEST_PROPERTY_FOR_LAST_ID + " must be an integer");
+		}
+		
+		int limit = context.getLimit();
+		List<T> changed = Context.getService(RestHelperService.class).getObjectsChangedSince(type, since, until,
+		    afterId, limit + 1);
+		boolean hasMore = changed.size() > limit;
+		if (hasMore) {
+			changed = changed.subList(0, limit);
+		}
+		
+		List<Object> results = new ArrayList<Object>();
+		List<String> tombstones = new ArrayList<String>();
+		for (T delegate : changed) {
+			if (isVoidedOrRetired(delegate)) {
+				tombstones.add(((OpenmrsObject) delegate).getUuid());
+			} else {
+				results.add(ConversionUtil.convertToRepresentation(delegate, context.getRepresentation(), this));
+			}
+		}
+		
+		String formattedUntil = new SimpleDateFormat(ConversionUtil.DATE_FORMAT).format(until);
+		SimpleObject ret = new SimpleObject().add("results", results).add("tombstones", tombstones)
+		        .add(RestConstants.REQUEST_PROPERTY_FOR_HIGH_WATER_MARK, formattedUntil);
+		if (hasMore) {
+			Integer nextAfterId = ((OpenmrsObject) changed.get(changed.size() - 1)).getId();
+			ret.add("links", Arrays.asList(getNextChangesLink(context, formattedUntil, nextAfterId)));
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return the link to the page of changes after the object with the given id, which must not
+	 *         include changes made after the given high-water mark
+	 */
+	@SuppressWarnings("unchecked")
+	private Hyperlink getNextChangesLink(RequestContext context, String highWaterMark, Integer afterId) {
+		StringBuilder uri = context.getRequest().getRequestURL().append("?");
+		for (Map.Entry<String, String[]> parameter : ((Map<String, String[]>) context.getRequest().getParameterMap())
+		        .entrySet()) {
+			String name = parameter.getKey();
+			if (RestConstants.REQUEST_PROPERTY_FOR_START_INDEX.equals(name)
+			        || RestConstants.REQUEST_PROPERTY_FOR_LAST_ID.equals(name)
+			        || RestConstants.REQUEST_PROPERTY_FOR_HIGH_WATER_MARK.equals(name)) {
+				continue;
+			}
+			for (String value : parameter.getValue()) {
+				uri.append(name).append("=").append(encode(value)).append("&");
+			}
+		}
+		uri.append(RestConstants.REQUEST_PROPERTY_FOR_HIGH_WATER_MARK).append("=").append(encode(highWaterMark));
+		uri.append("&").append(RestConstants.REQUEST_PROPERTY_FOR_LAST_ID).append("=").append(afterId);
+		return new Hyperlink("next", uri.toString());
+	}
+	
+	private boolean isVoidedOrRetired(T delegate) {
+		return (delegate instanceof Voidable && Boolean.TRUE.equals(((Voidable) delegate).getVoided()))
+		        || (delegate instanceof Retireable && Boolean.TRUE.equals(((Retireable) delegate).getRetired()));
+	}
+	
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
 	/**
 	 * Implementations should override this method to return a list of all instances represented by
 	 * the specified rest resource in the database. (If the resource supports subclasses, this
@@ -310,12 +450,6 @@ public abstract class DelegatingCrudResource<T> extends BaseDelegatingResource<T
 			shortClassName = shortClassName.substring(0, underscoreIndex);
 		}
 
-		String code = "ui.i18n." + shortClassName + ".name." + uuid;
-		String localization = Context.getMessageSourceService().getMessage(code);
-		if (localization == null || localization.equals(code)) {
-			return null;
-		} else {
-			return localization;
-		}
+		return LocalizationCache.getMessage("ui.i18n." + shortClassName + ".name." + uuid);
 	}
 }
@@ -9,6 +9,8 @@
  */
 package org.openmrs.module.webservices.rest.web.v1_0.controller;
 
+import java.io.IOException;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -22,6 +24,7 @@ import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.RestUtil;
 import org.openmrs.module.webservices.validation.ValidationException;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -29,6 +32,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.openmrs.module.webservices.rest.web.response.ConversionException;
+import org.openmrs.module.webservices.rest.web.response.RequestTimeoutException;
 
 /**
  * Resource controllers should extend this base class to have standard exception handling done
@@ -88,7 +92,10 @@ public class BaseRestController {
 	@ExceptionHandler(ConversionException.class)
 	@ResponseBody
 	public SimpleObject conversionExceptionHandler(ConversionException conversionException, HttpServletRequest request,
-	        HttpServletResponse response) {
+	        HttpServletResponse response) throws Exception {
+		if (isTimeout(conversionException)) {
+			return handleException(conversionException, request, response);
+		}
 		response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
 		return RestUtil.wrapErrorResponse(conversionException, "");
 	}
@@ -107,6 +114,17 @@ public class BaseRestController {
 	        throws Exception {
 		int errorCode = DEFAULT_ERROR_CODE;
 		String errorDetail = DEFAULT_ERROR_DETAIL;
+		if (ex instanceof HttpMessageNotWritableException && RestUtil.hasCause(ex, IOException.class)) {
+			// the client has most likely disconnected, so there is no one to send an error to
+			log.debug("Failed to write the response: " + ex.getMessage());
+			return null;
+		}
+		if (isTimeout(ex)) {
+			log.warn("Request to " + request.getRequestURI() + " timed out: " + ex.getMessage());
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return RestUtil.wrapErrorResponse(ex, "The request has not completed within its timeout");
+		}
+		
 		ResponseStatus ann = ex.getClass().getAnnotation(ResponseStatus.class);
 		if (ann != null) {
 			errorCode = ann.value().value();
@@ -130,6 +148,16 @@ public class BaseRestController {
 		return RestUtil.wrapErrorResponse(ex, errorDetail);
 	}
 	
+	/**
+	 * @return true if the request has been aborted by its {@link org.openmrs.module.webservices.rest.web.RequestDeadline}
+	 *         or one of its queries has timed out
+	 */
+	private boolean isTimeout(Exception ex) {
+		return RestUtil.hasCause(ex, RequestTimeoutException.class)
+		        || RestUtil.hasCause(ex, org.hibernate.QueryTimeoutException.class)
+		        || RestUtil.hasCause(ex, javax.persistence.QueryTimeoutException.class);
+	}
+	
 	private boolean shouldAddWWWAuthHeader(HttpServletRequest request) {
 		return request.getHeader(DISABLE_WWW_AUTH_HEADER_NAME) == null
 		        || !request.getHeader(DISABLE_WWW_AUTH_HEADER_NAME).equals("true");
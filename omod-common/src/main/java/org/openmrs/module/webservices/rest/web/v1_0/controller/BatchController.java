@@ -0,0 +1,605 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.SerializationException;
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.User;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.AdmissionControl;
+import org.openmrs.module.webservices.rest.web.RequestTimings;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.RestUtil;
+import org.openmrs.module.webservices.rest.web.SlowRequestLog;
+import org.openmrs.module.webservices.rest.web.response.ConversionException;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.openmrs.module.webservices.validation.ValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes many sub-requests in a single round trip, e.g.
+ *
+ * <pre>
+ * {"requests": [{"method": "GET", "path": "patient/{uuid}", "params": {"v": "full"}},
+ *               {"method": "GET", "path": "visit", "params": {"patient": "{uuid}"}}],
+ *  "parallel": true}
+ * </pre>
+ *
+ * The sub-requests are dispatched in order through the {@link MainResourceController} and the
+ * {@link MainSubResourceController} by the user of the batch request and answered by their status
+ * and body in the same order. A failed sub-request does not stop the following ones and is not
+ * rolled back along with the others, since each of them runs in its own transactions. The session
+ * is cleared after each sub-request, so that neither read-only entities nor the changes of a failed
+ * sub-request are carried over to the following ones. If parallel execution is requested and all
+ * sub-requests are GETs, they are executed concurrently, each in its own session and with a copy of
+ * the user context shared by the sub-requests of the batch. Like regular requests, each of them
+ * counts towards the {@link RestConstants#MAX_CONCURRENT_REQUESTS_PER_USER_GLOBAL_PROPERTY_NAME} and
+ * is logged by the {@link SlowRequestLog}. Sub-requests which cannot be queued since too many are
+ * waiting to be executed are executed one after the other by the batch request instead.
+ *
+ * @see RestConstants#MAX_BATCH_SIZE_GLOBAL_PROPERTY_NAME
+ */
+@Controller
+@RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/batch")
+public class BatchController extends BaseRestController {
+	
+	private static final Log log = LogFactory.getLog(BatchController.class);
+	
+	/**
+	 * The maximum number of sub-requests executed concurrently across all batch requests
+	 */
+	private static final int MAX_PARALLEL_REQUESTS = 4;
+	
+	/**
+	 * The maximum number of sub-requests waiting to be executed concurrently across all batch requests
+	 */
+	private static final int MAX_QUEUED_REQUESTS = 32;
+	
+	/**
+	 * The status of a sub-request rejected since the user is making too many requests at the same time
+	 */
+	private static final int SC_TOO_MANY_REQUESTS = 429;
+	
+	/**
+	 * The executor shared by all parallel batch requests, its idle threads time out so that none are
+	 * left behind when the module is stopped
+	 */
+	private static final ExecutorService executor = createExecutor();
+	
+	@Autowired
+	MainResourceController mainResourceController;
+	
+	@Autowired
+	MainSubResourceController mainSubResourceController;
+	
+	@RequestMapping(method = RequestMethod.POST)
+	@ResponseBody
+	public SimpleObject execute(@RequestBody SimpleObject post, HttpServletRequest request, HttpServletResponse response)
+	        throws Exception {
+		Object requests = post.get("requests");
+		if (!(requests instanceof List)) {
+			throw new IllegalRequestException("The requests must be a list of objects with a method and a path");
+		}
+		
+		List<BatchRequest> batchRequests = new ArrayList<BatchRequest>();
+		for (Object subRequest : (List<?>) requests) {
+			if (!(subRequest instanceof Map)) {
+				throw new IllegalRequestException("The requests must be a list of objects with a method and a path");
+			}
+			batchRequests.add(new BatchRequest(request, (Map<?, ?>) subRequest));
+		}
+		int maxBatchSize = RestUtil.getMaxBatchSize();
+		if (batchRequests.size() > maxBatchSize) {
+			throw new IllegalRequestException("A batch request must not contain more than " + maxBatchSize
+			        + " requests");
+		}
+		
+		List<SimpleObject> responses;
+		if (Boolean.parseBoolean(String.valueOf(post.get("parallel"))) && batchRequests.size() > 1
+		        && areAllGets(batchRequests)) {
+			responses = executeInParallel(batchRequests, response);
+		} else {
+			responses = new ArrayList<SimpleObject>();
+			for (BatchRequest batchRequest : batchRequests) {
+				responses.add(executeRequest(batchRequest, response));
+			}
+		}
+		
+		return new SimpleObject().add("responses", responses);
+	}
+	
+	private boolean areAllGets(List<BatchRequest> batchRequests) {
+		for (BatchRequest batchRequest : batchRequests) {
+			if (!"GET".equals(batchRequest.getMethod())) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static ExecutorService createExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PARALLEL_REQUESTS, MAX_PARALLEL_REQUESTS, 60L,
+		        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(MAX_QUEUED_REQUESTS), new ThreadFactory() {
+			        
+			        private final AtomicInteger count = new AtomicInteger();
+			        
+			        @Override
+			        public Thread newThread(Runnable runnable) {
+				        Thread thread = new Thread(runnable, "RestBatchRequest-" + count.incrementAndGet());
+				        thread.setDaemon(true);
+				        return thread;
+			        }
+		        });
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	private List<SimpleObject> executeInParallel(List<BatchRequest> batchRequests, final HttpServletResponse response)
+	        throws InterruptedException, ExecutionException {
+		// the user context holds mutable state like the proxy privileges, so the workers get their own copy
+		final UserContext userContext;
+		try {
+			userContext = (UserContext) SerializationUtils.clone(Context.getUserContext());
+		}
+		catch (SerializationException e) {
+			log.warn("Unable to copy the user context, executing the batch request sequentially", e);
+			List<SimpleObject> responses = new ArrayList<SimpleObject>();
+			for (BatchRequest batchRequest : batchRequests) {
+				responses.add(executeRequest(batchRequest, response));
+			}
+			return responses;
+		}
+		User user = Context.getAuthenticatedUser();
+		final Integer userId = user != null ? user.getUserId() : null;
+		
+		List<Future<SimpleObject>> futures = new ArrayList<Future<SimpleObject>>();
+		try {
+			for (final BatchRequest batchRequest : batchRequests) {
+				try {
+					futures.add(executor.submit(new Callable<SimpleObject>() {
+						
+						@Override
+						public SimpleObject call() {
+							Context.openSession();
+							try {
+								Context.setUserContext(userContext);
+								return executeAdmittedRequest(batchRequest, response, userId);
+							}
+							finally {
+								Context.clearUserContext();
+								Context.closeSession();
+							}
+						}
+					}));
+				}
+				catch (RejectedExecutionException e) {
+					// executed by the batch request once the queued sub-requests have been submitted
+					futures.add(null);
+				}
+			}
+			
+			List<SimpleObject> responses = new ArrayList<SimpleObject>();
+			for (int i = 0; i < futures.size(); i++) {
+				Future<SimpleObject> future = futures.get(i);
+				responses.add(future != null ? future.get() : executeRequest(batchRequests.get(i), response));
+			}
+			return responses;
+		}
+		finally {
+			for (Future<SimpleObject> future : futures) {
+				if (future != null) {
+					future.cancel(true);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Executes the given sub-request on a worker thread unless the user is already making too many
+	 * requests, and logs it if slow, as the filters do for regular requests.
+	 */
+	private SimpleObject executeAdmittedRequest(BatchRequest request, HttpServletResponse parentResponse,
+	        Integer userId) {
+		AdmissionControl admissionControl = AdmissionControl.getInstance();
+		if (!admissionControl.tryAcquireUserRequest(userId)) {
+			SimpleObject result = new SimpleObject();
+			result.add("status", SC_TOO_MANY_REQUESTS);
+			result.add("body", RestUtil.wrapErrorResponse(new IllegalRequestException(
+			        "Too many concurrent requests, try again once the previous requests completed"), ""));
+			return result;
+		}
+		
+		SlowRequestLog slowRequestLog = SlowRequestLog.getInstance();
+		RequestTimings timings = slowRequestLog.isEnabled() ? RequestTimings.begin() : null;
+		SimpleObject result = null;
+		try {
+			result = executeRequest(request, parentResponse);
+			return result;
+		}
+		finally {
+			admissionControl.releaseUserRequest(userId);
+			if (timings != null) {
+				RequestTimings.end();
+				if (result != null) {
+					slowRequestLog.log(request, (Integer) result.get("status"), timings);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Executes the given sub-request and turns any failure into an error response the same way the
+	 * exception handlers do for a regular request. The session is flushed after a successful
+	 * sub-request and cleared after any sub-request.
+	 */
+	private SimpleObject executeRequest(BatchRequest request, HttpServletResponse parentResponse) {
+		BatchResponse response = new BatchResponse(parentResponse);
+		Object body;
+		try {
+			body = dispatch(request, response);
+			Context.flushSession();
+		}
+		catch (ValidationException e) {
+			body = validationExceptionHandler(e, request, response);
+		}
+		catch (Exception e) {
+			try {
+				if (e instanceof ConversionException) {
+					body = conversionExceptionHandler((ConversionException) e, request, response);
+				} else {
+					body = handleException(e, request, response);
+				}
+			}
+			catch (Exception handlerException) {
+				response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+				body = RestUtil.wrapErrorResponse(handlerException, "");
+			}
+		}
+		finally {
+			Context.clearSession();
+		}
+		
+		SimpleObject result = new SimpleObject();
+		result.add("status", response.getStatus());
+		result.add("body", body);
+		return result;
+	}
+	
+	private Object dispatch(BatchRequest request, BatchResponse response) throws Exception {
+		String[] segments = request.getSegments();
+		String method = request.getMethod();
+		if (segments.length == 1) {
+			if ("GET".equals(method)) {
+				return mainResourceController.get(segments[0], request, response);
+			} else if ("POST".equals(method)) {
+				return mainResourceController.create(segments[0], request.getBody(), request, response);
+			}
+		} else if (segments.length == 2) {
+			if ("GET".equals(method)) {
+				return mainResourceController.retrieve(segments[0], segments[1], request, response);
+			} else if ("POST".equals(method)) {
+				return mainResourceController.update(segments[0], segments[1], request.getBody(), request, response);
+			} else if ("DELETE".equals(method)) {
+				if ("true".equals(request.getParameter("purge"))) {
+					return mainResourceController.purge(segments[0], segments[1], request, response);
+				}
+				return mainResourceController.delete(segments[0], segments[1], request.getReason(), request, response);
+			}
+		} else if (segments.length == 3) {
+			if ("GET".equals(method)) {
+				return mainSubResourceController.get(segments[0], segments[1], segments[2], request, response);
+			} else if ("POST".equals(method)) {
+				return mainSubResourceController.create(segments[0], segments[1], segments[2], request.getBody(),
+				    request, response);
+			} else if ("PUT".equals(method)) {
+				return mainSubResourceController.put(segments[0], segments[1], segments[2], request.getBody(), request,
+				    response);
+			} else if ("DELETE".equals(method)) {
+				if (request.getParameter("purge") != null) {
+					return mainSubResourceController.purge(segments[0], segments[1], segments[2], request, response);
+				}
+				return mainSubResourceController.delete(segments[0], segments[1], segments[2], request.getReason(),
+				    request, response);
+			}
+		} else if (segments.length == 4) {
+			if ("GET".equals(method)) {
+				return mainSubResourceController.retrieve(segments[0], segments[1], segments[2], segments[3], request,
+				    response);
+			} else if ("POST".equals(method)) {
+				return mainSubResourceController.update(segments[0], segments[1], segments[2], segments[3],
+				    request.getBody(), request, response);
+			} else if ("DELETE".equals(method)) {
+				if (request.getParameter("purge") != null) {
+					return mainSubResourceController.purge(segments[0], segments[1], segments[2], segments[3], request,
+					    response);
+				}
+				return mainSubResourceController.delete(segments[0], segments[1], segments[2], segments[3],
+				    request.getReason(), request, response);
+			}
+		} else {
+			throw new IllegalRequestException("Unsupported path: " + request.getPath());
+		}
+		throw new HttpRequestMethodNotSupportedException(method);
+	}
+	
+	/**
+	 * A sub-request of a batch request, which has the headers of the batch request, but its own
+	 * method, path, parameters and body. The headers and the URL are copied from the batch request
+	 * up front, since the sub-requests may be executed concurrently while the request objects of the
+	 * container are not thread-safe.
+	 */
+	private static class BatchRequest extends HttpServletRequestWrapper {
+		
+		private final Map<String, List<String>> headers = new TreeMap<String, List<String>>(
+		        String.CASE_INSENSITIVE_ORDER);
+		
+		private final String requestUri;
+		
+		private final String requestUrl;
+		
+		private final String method;
+		
+		private final String path;
+		
+		private final String query;
+		
+		private final Map<String, String[]> parameters;
+		
+		private final SimpleObject body;
+		
+		public BatchRequest(HttpServletRequest request, Map<?, ?> subRequest) {
+			super(request);
+			method = StringUtils.upperCase(StringUtils.defaultIfBlank(ObjectUtils.toString(subRequest.get("method")),
+			    "GET"));
+			
+			String uri = ObjectUtils.toString(subRequest.get("path"));
+			if (StringUtils.isBlank(uri)) {
+				throw new IllegalRequestException("Each request must have a path");
+			}
+			uri = StringUtils.removeStart(uri.trim(), "/");
+			uri = StringUtils.removeStart(uri, "ws/rest/");
+			uri = StringUtils.removeStart(uri, RestConstants.VERSION_1 + "/");
+			path = StringUtils.substringBefore(uri, "?");
+			query = StringUtils.substringAfter(uri, "?");
+			
+			parameters = RestUtil.parseQueryString(query);
+			if (subRequest.get("params") instanceof Map) {
+				for (Map.Entry<?, ?> param : ((Map<?, ?>) subRequest.get("params")).entrySet()) {
+					parameters.put(String.valueOf(param.getKey()), toValues(param.getValue()));
+				}
+			}
+			
+			body = new SimpleObject();
+			if (subRequest.get("body") instanceof Map) {
+				for (Map.Entry<?, ?> property : ((Map<?, ?>) subRequest.get("body")).entrySet()) {
+					body.put(String.valueOf(property.getKey()), property.getValue());
+				}
+			}
+			
+			Enumeration<String> headerNames = request.getHeaderNames();
+			while (headerNames != null && headerNames.hasMoreElements()) {
+				String name = headerNames.nextElement();
+				headers.put(name, Collections.list(request.getHeaders(name)));
+			}
+			requestUri = StringUtils.substringBeforeLast(request.getRequestURI(), "/batch") + "/" + path;
+			requestUrl = StringUtils.substringBeforeLast(request.getRequestURL().toString(), "/batch") + "/" + path;
+		}
+		
+		private static String[] toValues(Object value) {
+			if (value instanceof Collection) {
+				List<String> values = new ArrayList<String>();
+				for (Object element : (Collection<?>) value) {
+					values.add(String.valueOf(element));
+				}
+				return values.toArray(new String[0]);
+			}
+			return new String[] { String.valueOf(value) };
+		}
+		
+		public String getPath() {
+			return path;
+		}
+		
+		public String[] getSegments() {
+			return StringUtils.split(path, '/');
+		}
+		
+		public SimpleObject getBody() {
+			return body;
+		}
+		
+		public String getReason() {
+			return StringUtils.defaultIfBlank(getParameter("reason"), "web service call");
+		}
+		
+		@Override
+		public String getMethod() {
+			return method;
+		}
+		
+		@Override
+		public String getRequestURI() {
+			return requestUri;
+		}
+		
+		@Override
+		public StringBuffer getRequestURL() {
+			return new StringBuffer(requestUrl);
+		}
+		
+		@Override
+		public String getHeader(String name) {
+			List<String> values = headers.get(name);
+			return values != null && !values.isEmpty() ? values.get(0) : null;
+		}
+		
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			List<String> values = headers.get(name);
+			return Collections.enumeration(values != null ? values : Collections.<String> emptyList());
+		}
+		
+		@Override
+		public Enumeration<String> getHeaderNames() {
+			return Collections.enumeration(headers.keySet());
+		}
+		
+		@Override
+		public int getIntHeader(String name) {
+			String value = getHeader(name);
+			return value != null ? Integer.parseInt(value) : -1;
+		}
+		
+		@Override
+		public String getQueryString() {
+			return StringUtils.isNotEmpty(query) ? query : null;
+		}
+		
+		@Override
+		public String getParameter(String name) {
+			String[] values = parameters.get(name);
+			return values != null && values.length > 0 ? values[0] : null;
+		}
+		
+		@Override
+		public String[] getParameterValues(String name) {
+			return parameters.get(name);
+		}
+		
+		@Override
+		public Map<String, String[]> getParameterMap() {
+			return Collections.unmodifiableMap(new LinkedHashMap<String, String[]>(parameters));
+		}
+		
+		@Override
+		public Enumeration<String> getParameterNames() {
+			return Collections.enumeration(parameters.keySet());
+		}
+	}
+	
+	/**
+	 * The response of a sub-request, which only keeps the status since the body is returned by the
+	 * controllers and the headers of the batch response are shared by all sub-requests.
+	 */
+	private static class BatchResponse extends HttpServletResponseWrapper {
+		
+		private int status = HttpServletResponse.SC_OK;
+		
+		public BatchResponse(HttpServletResponse response) {
+			super(response);
+		}
+		
+		@Override
+		public void setStatus(int status) {
+			this.status = status;
+		}
+		
+		@Override
+		@SuppressWarnings("deprecation")
+		public void setStatus(int status, String message) {
+			this.status = status;
+		}
+		
+		@Override
+		public void sendError(int status) {
+			this.status = status;
+		}
+		
+		@Override
+		public void sendError(int status, String message) {
+			this.status = status;
+		}
+		
+		@Override
+		public int getStatus() {
+			return status;
+		}
+		
+		@Override
+		public void setHeader(String name, String value) {
+		}
+		
+		@Override
+		public void addHeader(String name, String value) {
+		}
+		
+		@Override
+		public void setDateHeader(String name, long date) {
+		}
+		
+		@Override
+		public void addDateHeader(String name, long date) {
+		}
+		
+		@Override
+		public void setIntHeader(String name, int value) {
+		}
+		
+		@Override
+		public void addIntHeader(String name, int value) {
+		}
+		
+		@Override
+		public boolean isCommitted() {
+			return false;
+		}
+		
+		@Override
+		public void flushBuffer() {
+		}
+		
+		@Override
+		public ServletOutputStream getOutputStream() {
+			throw new IllegalStateException("The body of a batch sub-request cannot be streamed");
+		}
+		
+		@Override
+		public PrintWriter getWriter() {
+			throw new IllegalStateException("The body of a batch sub-request cannot be streamed");
+		}
+	}
+}
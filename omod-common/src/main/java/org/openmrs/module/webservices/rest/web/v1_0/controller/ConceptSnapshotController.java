@@ -0,0 +1,132 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.ConceptSnapshot;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.response.IllegalRequestException;
+import org.openmrs.util.PrivilegeConstants;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Serves the gzip compressed {@link ConceptSnapshot} of the current version of the concept
+ * dictionary or, given the <code>since</code> parameter, the delta snapshot from an earlier version.
+ * <p>
+ * A snapshot which has not been built yet is built in the background and answered with the status
+ * 202 (Accepted) meanwhile. A full snapshot of an older version is served instead if there is one,
+ * since clients can catch up with a delta snapshot from its version later on. Delta snapshots are
+ * only served from the versions of the full snapshots which are kept, a client with any other
+ * version gets the full snapshot. The file name of the snapshot, which holds its versions, is used
+ * as its entity tag.
+ * </p>
+ */
+@Controller
+@RequestMapping(value = "/rest/" + RestConstants.VERSION_1 + "/conceptsnapshot")
+public class ConceptSnapshotController extends BaseRestController {
+	
+	/**
+	 * The number of seconds clients are asked to wait for a snapshot to be built
+	 */
+	private static final String RETRY_AFTER = "30";
+	
+	@RequestMapping(method = RequestMethod.GET)
+	@ResponseBody
+	public SimpleObject getSnapshot(@RequestParam(value = "since", required = false) String since,
+	        HttpServletRequest request, HttpServletResponse response) throws IOException {
+		Context.requirePrivilege(PrivilegeConstants.GET_CONCEPTS);
+		
+		Long sinceVersion = null;
+		if (StringUtils.isNotBlank(since)) {
+			try {
+				sinceVersion = Long.valueOf(since.trim());
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalRequestException("The since parameter must be the version of a snapshot");
+			}
+		}
+		
+		long version = ConceptSnapshot.getCurrentVersion();
+		if (sinceVersion != null && sinceVersion > version) {
+			throw new IllegalRequestException("The version " + since + " is newer than the current version " + version);
+		}
+		if (sinceVersion != null && sinceVersion == version) {
+			// the concept dictionary has not been changed since
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return null;
+		}
+		if (sinceVersion != null && !ConceptSnapshot.hasFullSnapshot(sinceVersion)) {
+			// only the versions of full snapshots are known, any other version would start a build of its own
+			sinceVersion = null;
+		}
+		
+		File snapshot = ConceptSnapshot.getFile(sinceVersion, version);
+		if (!snapshot.isFile()) {
+			ConceptSnapshot.buildInBackground(sinceVersion, version);
+			if (!snapshot.isFile() && sinceVersion == null) {
+				snapshot = ConceptSnapshot.getLatestFullSnapshot();
+			}
+			if (snapshot == null || !snapshot.isFile()) {
+				response.setStatus(HttpServletResponse.SC_ACCEPTED);
+				response.setHeader("Retry-After", RETRY_AFTER);
+				return new SimpleObject().add("status", "BUILDING").add("version", version);
+			}
+		}
+		
+		String etag = "\"" + snapshot.getName() + "\"";
+		response.setHeader("ETag", etag);
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return null;
+		}
+		
+		// the snapshot is streamed, so it must not be buffered to compute another entity tag
+		ShallowEtagHeaderFilter.disableContentCaching(request);
+		response.setContentType("application/gzip");
+		response.setHeader("Content-Disposition", "attachment; filename=" + snapshot.getName());
+		response.setHeader("Content-Length", String.valueOf(snapshot.length()));
+		Files.copy(snapshot.toPath(), response.getOutputStream());
+		response.flushBuffer();
+		return null;
+	}
+	
+	/**
+	 * @param ifNoneMatch the value of the If-None-Match header, i.e. <code>*</code> or a comma
+	 *            separated list of entity tags
+	 * @param etag the entity tag of the snapshot
+	 * @return true if the header matches the entity tag, weak entity tags matching as well
+	 */
+	private static boolean matches(String ifNoneMatch, String etag) {
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if ("*".equals(tag) || etag.equals(tag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -10,7 +10,9 @@
 package org.openmrs.module.webservices.rest.web.v1_0.controller;
 
 import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.RequestCoalescer;
 import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.RequestTimings;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.RestUtil;
 import org.openmrs.module.webservices.rest.web.api.RestService;
@@ -58,6 +60,12 @@ public class MainResourceController extends BaseRestController {
 	@Autowired
 	BaseUriSetup baseUriSetup;
 	
+	@Autowired
+	RequestTimingSetup requestTimingSetup;
+	
+	@Autowired
+	ResourceGetSetup resourceGetSetup;
+	
 	/**
 	 * @param uuid
 	 * @param request
@@ -66,12 +74,28 @@ public class MainResourceController extends BaseRestController {
 	 */
 	@RequestMapping(value = "/{resource}/{uuid}", method = RequestMethod.GET)
 	@ResponseBody
-	public Object retrieve(@PathVariable("resource") String resource, @PathVariable("uuid") String uuid,
+	public Object retrieve(@PathVariable("resource") String resource, @PathVariable("uuid") final String uuid,
 	        HttpServletRequest request, HttpServletResponse response) throws ResponseException {
 		baseUriSetup.setup(request);
-		RequestContext context = RestUtil.getRequestContext(request, response);
-		Retrievable res = (Retrievable) restService.getResourceByName(buildResourceName(resource));
-		return res.retrieve(uuid, context);
+		final RequestContext context = RestUtil.getRequestContext(request, response);
+		requestTimingSetup.setup();
+		long lookupStart = RequestTimings.startTimer(RequestTimings.LOOKUP);
+		final Retrievable res = (Retrievable) restService.getResourceByName(buildResourceName(resource));
+		RequestTimings.stopTimer(RequestTimings.LOOKUP, lookupStart);
+		RequestTimings.describe(resource, "retrieve", context, null);
+		ResourceGetSetup.State state = resourceGetSetup.setup(resource, context, request, true);
+		try {
+			return RequestCoalescer.getInstance().execute(request, response, new RequestCoalescer.Execution() {
+				
+				@Override
+				public Object execute() throws ResponseException {
+					return res.retrieve(uuid, context);
+				}
+			});
+		}
+		finally {
+			resourceGetSetup.restore(state);
+		}
 	}
 	
 	/**
@@ -176,19 +200,42 @@ public class MainResourceController extends BaseRestController {
 	 * @return
 	 * @throws ResponseException
 	 */
-	@SuppressWarnings("rawtypes")
 	@RequestMapping(value = "/{resource}", method = RequestMethod.GET)
 	@ResponseBody
-	public SimpleObject get(@PathVariable("resource") String resource, HttpServletRequest request,
+	public SimpleObject get(@PathVariable("resource") String resource, final HttpServletRequest request,
 	        HttpServletResponse response) throws ResponseException {
 		baseUriSetup.setup(request);
-		Object res = restService.getResourceByName(buildResourceName(resource));
-		Converter conv = res instanceof Converter ? (Converter) res : null;
+		requestTimingSetup.setup();
+		long lookupStart = RequestTimings.startTimer(RequestTimings.LOOKUP);
+		final Object res = restService.getResourceByName(buildResourceName(resource));
 		
-		RequestContext context = RestUtil.getRequestContext(request, response, Representation.REF);
+		final RequestContext context = RestUtil.getRequestContext(request, response, Representation.REF);
 		
 		@SuppressWarnings("unchecked")
-		SearchHandler searchHandler = restService.getSearchHandler(buildResourceName(resource), request.getParameterMap());
+		final SearchHandler searchHandler = restService.getSearchHandler(buildResourceName(resource),
+		    request.getParameterMap());
+		RequestTimings.stopTimer(RequestTimings.LOOKUP, lookupStart);
+		RequestTimings.describe(resource, "list", context, searchHandler);
+		ResourceGetSetup.State state = resourceGetSetup.setup(resource, context, request, false);
+		try {
+			return (SimpleObject) RequestCoalescer.getInstance().execute(request, response,
+			    new RequestCoalescer.Execution() {
+				    
+				    @Override
+				    public Object execute() throws ResponseException {
+					    return doGet(res, searchHandler, request, context);
+				    }
+			    });
+		}
+		finally {
+			resourceGetSetup.restore(state);
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private SimpleObject doGet(Object res, SearchHandler searchHandler, HttpServletRequest request,
+	        RequestContext context) throws ResponseException {
+		Converter conv = res instanceof Converter ? (Converter) res : null;
 		if (searchHandler != null) {
 			return searchHandler.search(context).toSimpleObject(conv);
 		}
@@ -199,7 +246,8 @@ public class MainResourceController extends BaseRestController {
 				if (res instanceof Searchable) {
 					return ((Searchable) res).search(context);
 				} else {
-					throw new ResourceDoesNotSupportOperationException(res.getClass().getSimpleName() + " is not searchable");
+					throw new ResourceDoesNotSupportOperationException(res.getClass().getSimpleName()
+					        + " is not searchable");
 				}
 			}
 		}
@@ -14,6 +14,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.openmrs.module.webservices.rest.SimpleObject;
 import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.RequestTimings;
 import org.openmrs.module.webservices.rest.web.RestConstants;
 import org.openmrs.module.webservices.rest.web.RestUtil;
 import org.openmrs.module.webservices.rest.web.api.RestService;
@@ -50,6 +51,12 @@ public class MainSubResourceController extends BaseRestController {
 	@Autowired
 	BaseUriSetup baseUriSetup;
 	
+	@Autowired
+	RequestTimingSetup requestTimingSetup;
+	
+	@Autowired
+	ResourceGetSetup resourceGetSetup;
+	
 	/**
 	 * @param parentUuid
 	 * @param uuid
@@ -64,8 +71,18 @@ public class MainSubResourceController extends BaseRestController {
 	        HttpServletResponse response) throws ResponseException {
 		baseUriSetup.setup(request);
 		RequestContext context = RestUtil.getRequestContext(request, response);
+		requestTimingSetup.setup();
+		long lookupStart = RequestTimings.startTimer(RequestTimings.LOOKUP);
 		SubResource res = (SubResource) restService.getResourceByName(buildResourceName(resource) + "/" + subResource);
-		return res.retrieve(parentUuid, uuid, context);
+		RequestTimings.stopTimer(RequestTimings.LOOKUP, lookupStart);
+		RequestTimings.describe(resource + "/" + subResource, "retrieve", context, null);
+		ResourceGetSetup.State state = resourceGetSetup.setup(resource + "/" + subResource, context, request, true);
+		try {
+			return res.retrieve(parentUuid, uuid, context);
+		}
+		finally {
+			resourceGetSetup.restore(state);
+		}
 	}
 	
 	/**
@@ -81,6 +98,8 @@ public class MainSubResourceController extends BaseRestController {
 	        @PathVariable("subResource") String subResource, HttpServletRequest request, HttpServletResponse response)
 	        throws ResponseException {
 		baseUriSetup.setup(request);
+		requestTimingSetup.setup();
+		long lookupStart = RequestTimings.startTimer(RequestTimings.LOOKUP);
 		SubResource res = (SubResource) restService.getResourceByName(buildResourceName(resource) + "/" + subResource);
 		RequestContext context = RestUtil.getRequestContext(request, response);
 		Converter conv = res instanceof Converter ? (Converter) res : null;
@@ -88,22 +107,31 @@ public class MainSubResourceController extends BaseRestController {
 		@SuppressWarnings("unchecked")
 		SubResourceSearchHandler searchHandler = (SubResourceSearchHandler) restService.getSearchHandler(
 		    buildResourceName(resource) + "/" + subResource, request.getParameterMap());
-		if (searchHandler != null) {
-			return searchHandler.search(parentUuid, context).toSimpleObject(conv);
-		}
-		
-		Enumeration parameters = request.getParameterNames();
-		while (parameters.hasMoreElements()) {
-			if (!RestConstants.SPECIAL_REQUEST_PARAMETERS.contains(parameters.nextElement())) {
-				if (res instanceof Searchable) {
-					return ((Searchable) res).search(context);
-				} else {
-					throw new ResourceDoesNotSupportOperationException(res.getClass().getSimpleName() + " is not searchable");
+		RequestTimings.stopTimer(RequestTimings.LOOKUP, lookupStart);
+		RequestTimings.describe(resource + "/" + subResource, "list", context, searchHandler);
+		ResourceGetSetup.State state = resourceGetSetup.setup(resource + "/" + subResource, context, request, false);
+		try {
+			if (searchHandler != null) {
+				return searchHandler.search(parentUuid, context).toSimpleObject(conv);
+			}
+			
+			Enumeration parameters = request.getParameterNames();
+			while (parameters.hasMoreElements()) {
+				if (!RestConstants.SPECIAL_REQUEST_PARAMETERS.contains(parameters.nextElement())) {
+					if (res instanceof Searchable) {
+						return ((Searchable) res).search(context);
+					} else {
+						throw new ResourceDoesNotSupportOperationException(res.getClass().getSimpleName()
+						        + " is not searchable");
+					}
 				}
 			}
+			
+			return res.getAll(parentUuid, context);
+		}
+		finally {
+			resourceGetSetup.restore(state);
 		}
-		
-		return res.getAll(parentUuid, context);
 	}
 	
 	/**
@@ -0,0 +1,74 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Switches the current session to {@link FlushMode#MANUAL} while a GET request is handled, so that
+ * Hibernate does not dirty check and flush the loaded entities before each query.
+ * <p>
+ * The loaded entities are not made read-only, since they stay in the session after the request is
+ * handled and changes made to them later on, e.g. by the next sub-request of a batch, must still be
+ * saved. Changes saved through a service while the request is handled are flushed as usual, since
+ * read-write transactions switch the session to automatic flushing.
+ * </p>
+ */
+@Component
+public class ReadOnlySessionSetup {
+	
+	@Autowired
+	SessionFactory sessionFactory;
+	
+	/**
+	 * Switches the current session to manual flushing. Pending changes are flushed first so that the
+	 * queries of the request still see them.
+	 *
+	 * @return the previous state of the session to {@link #restore(State)}
+	 */
+	public State setup() {
+		Session session = sessionFactory.getCurrentSession();
+		State state = new State(session.getHibernateFlushMode());
+		if (state.flushMode != FlushMode.MANUAL) {
+			session.flush();
+		}
+		session.setHibernateFlushMode(FlushMode.MANUAL);
+		return state;
+	}
+	
+	/**
+	 * Restores the state of the current session changed by {@link #setup()}.
+	 *
+	 * @param state the previous state of the session, does nothing if null
+	 */
+	public void restore(State state) {
+		if (state == null) {
+			return;
+		}
+		
+		sessionFactory.getCurrentSession().setHibernateFlushMode(state.flushMode);
+	}
+	
+	/**
+	 * The state of a session before it has been switched to manual flushing.
+	 */
+	public static class State {
+		
+		private final FlushMode flushMode;
+		
+		private State(FlushMode flushMode) {
+			this.flushMode = flushMode;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.webservices.rest.web.RequestDeadline;
+import org.openmrs.module.webservices.rest.web.RestConstants;
+import org.openmrs.module.webservices.rest.web.RestUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+
+/**
+ * Applies the timeout of a request as the {@link RequestDeadline} and as the timeout of the queries
+ * created in the current session while the request is handled.
+ * <p>
+ * The timeout in seconds is configured in the
+ * {@link RestConstants#RESOURCE_REQUEST_TIMEOUTS_GLOBAL_PROPERTY_NAME} global property for the
+ * requested resource or else in the {@link RestConstants#REQUEST_TIMEOUT_GLOBAL_PROPERTY_NAME}
+ * global property. Clients can request a shorter timeout with the
+ * {@link RestConstants#REQUEST_TIMEOUT_HEADER} header. Timeouts which are not positive are ignored,
+ * i.e. a timeout of 0 configured for a resource means that its requests have no timeout.
+ * </p>
+ * <p>
+ * The query timeout of the session only applies to HQL and SQL queries, criteria queries have to
+ * set the remaining time of the {@link RequestDeadline} as their timeout themselves.
+ * </p>
+ */
+@Component
+public class RequestTimeoutSetup implements GlobalPropertyListener {
+	
+	private static final String QUERY_TIMEOUT_PROPERTY = "javax.persistence.query.timeout";
+	
+	private static volatile Long defaultTimeout;
+	
+	private static volatile Map<String, Long> resourceTimeouts;
+	
+	@Autowired
+	SessionFactory sessionFactory;
+	
+	/**
+	 * Applies the timeout of the given request, if any.
+	 *
+	 * @param resourceName the name of the requested resource, e.g. "obs" or "patient/identifier"
+	 * @param request the request
+	 * @return the previous state to {@link #restore(State)} or null if the request has no timeout
+	 */
+	public State setup(String resourceName, HttpServletRequest request) {
+		long timeoutMillis = getTimeoutMillis(resourceName, request.getHeader(RestConstants.REQUEST_TIMEOUT_HEADER));
+		if (timeoutMillis < 0) {
+			return null;
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		State state = new State(session.getProperties().get(QUERY_TIMEOUT_PROPERTY));
+		// the hint is rounded to seconds and 0 means no timeout
+		session.setProperty(QUERY_TIMEOUT_PROPERTY, (int) Math.max(1000, Math.min(timeoutMillis, Integer.MAX_VALUE)));
+		// started last so that it is not left behind on the thread if the session cannot be set up
+		RequestDeadline.start(timeoutMillis);
+		return state;
+	}
+	
+	/**
+	 * Removes the timeout applied by {@link #setup(String, HttpServletRequest)}.
+	 *
+	 * @param state the previous state, does nothing if null
+	 */
+	public void restore(State state) {
+		if (state == null) {
+			return;
+		}
+		
+		RequestDeadline.clear();
+		sessionFactory.getCurrentSession().setProperty(QUERY_TIMEOUT_PROPERTY,
+		    state.queryTimeout != null ? state.queryTimeout : 0);
+	}
+	
+	/**
+	 * @return the timeout in milliseconds or a negative value if there is none
+	 */
+	long getTimeoutMillis(String resourceName, String requestedTimeout) {
+		Map<String, Long> timeouts = resourceTimeouts;
+		Long timeout = defaultTimeout;
+		if (timeouts == null || timeout == null) {
+			timeouts = RestUtil.parseValuesByResourceName(Context.getAdministrationService().getGlobalProperty(
+			    RestConstants.RESOURCE_REQUEST_TIMEOUTS_GLOBAL_PROPERTY_NAME));
+			timeout = parseSeconds(Context.getAdministrationService().getGlobalProperty(
+			    RestConstants.REQUEST_TIMEOUT_GLOBAL_PROPERTY_NAME));
+			resourceTimeouts = timeouts;
+			defaultTimeout = timeout;
+		}
+		
+		long timeoutSeconds = timeouts.containsKey(resourceName) ? timeouts.get(resourceName) : timeout;
+		long requestedSeconds = parseSeconds(requestedTimeout);
+		if (requestedSeconds > 0 && (timeoutSeconds <= 0 || requestedSeconds < timeoutSeconds)) {
+			timeoutSeconds = requestedSeconds;
+		}
+		return timeoutSeconds <= 0 ? -1 : timeoutSeconds * 1000;
+	}
+	
+	private static long parseSeconds(String value) {
+		if (StringUtils.isBlank(value)) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return RestConstants.REQUEST_TIMEOUT_GLOBAL_PROPERTY_NAME.equals(propertyName)
+		        || RestConstants.RESOURCE_REQUEST_TIMEOUTS_GLOBAL_PROPERTY_NAME.equals(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		defaultTimeout = null;
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		defaultTimeout = null;
+	}
+	
+	/**
+	 * The query timeout of the session before the timeout of a request has been applied.
+	 */
+	public static class State {
+		
+		private final Object queryTimeout;
+		
+		private State(Object queryTimeout) {
+			this.queryTimeout = queryTimeout;
+		}
+	}
+}
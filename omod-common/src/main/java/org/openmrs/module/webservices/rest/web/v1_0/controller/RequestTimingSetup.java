@@ -0,0 +1,75 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.BaseSessionEventListener;
+import org.openmrs.module.webservices.rest.web.RequestTimings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times the database statements executed in the current session as the {@link RequestTimings#DB}
+ * phase of the request while its {@link RequestTimings} are recorded.
+ */
+@Component
+public class RequestTimingSetup {
+	
+	private static final String LISTENER_PROPERTY = "webservices.rest.statementTimingListener";
+	
+	@Autowired
+	SessionFactory sessionFactory;
+	
+	/**
+	 * Adds a listener timing the database statements to the current session, unless the timings of
+	 * the current request are not recorded or it has been added before.
+	 */
+	public void setup() {
+		if (!RequestTimings.isRecording()) {
+			return;
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		if (session.getProperties().get(LISTENER_PROPERTY) == null) {
+			// a listener cannot be removed again, so it must not be added to the same session twice
+			session.addEventListeners(new StatementTimingListener());
+			session.setProperty(LISTENER_PROPERTY, Boolean.TRUE);
+		}
+	}
+	
+	private static class StatementTimingListener extends BaseSessionEventListener {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private long start = -1;
+		
+		@Override
+		public void jdbcExecuteStatementStart() {
+			start = RequestTimings.startTimer(RequestTimings.DB);
+		}
+		
+		@Override
+		public void jdbcExecuteStatementEnd() {
+			RequestTimings.stopTimer(RequestTimings.DB, start);
+			start = -1;
+		}
+		
+		@Override
+		public void jdbcExecuteBatchStart() {
+			jdbcExecuteStatementStart();
+		}
+		
+		@Override
+		public void jdbcExecuteBatchEnd() {
+			jdbcExecuteStatementEnd();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import org.openmrs.module.webservices.rest.web.AdmissionControl;
+import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.RequestTimings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Sets up the handling of a GET request of a resource once the resource has been looked up: admits
+ * the request by the {@link AdmissionControl}, applies its timeout by the
+ * {@link RequestTimeoutSetup}, switches the session to manual flushing by the
+ * {@link ReadOnlySessionSetup} and starts timing the {@link RequestTimings#HANDLER} phase.
+ */
+@Component
+public class ResourceGetSetup {
+	
+	@Autowired
+	ReadOnlySessionSetup readOnlySessionSetup;
+	
+	@Autowired
+	RequestTimeoutSetup requestTimeoutSetup;
+	
+	/**
+	 * Sets up the handling of the given request, which must be {@link #restore(State) restored} once
+	 * handled. Anything set up is restored again if the request is not admitted.
+	 *
+	 * @param resourceName the name of the requested resource, e.g. "obs" or "patient/identifier"
+	 * @param context the request context
+	 * @param request the request
+	 * @param single true if a single object is requested, false if a list of objects is requested
+	 * @return the state to {@link #restore(State)}
+	 */
+	public State setup(String resourceName, RequestContext context, HttpServletRequest request, boolean single) {
+		State state = new State();
+		try {
+			state.cost = AdmissionControl.getInstance().admit(resourceName, context, single);
+			state.timeoutState = requestTimeoutSetup.setup(resourceName, request);
+			state.sessionState = readOnlySessionSetup.setup();
+		}
+		catch (RuntimeException e) {
+			restore(state);
+			throw e;
+		}
+		state.handlerStart = RequestTimings.startTimer(RequestTimings.HANDLER);
+		return state;
+	}
+	
+	/**
+	 * Restores what has been set up by {@link #setup(String, RequestContext, HttpServletRequest, boolean)}.
+	 *
+	 * @param state the state returned by the setup
+	 */
+	public void restore(State state) {
+		RequestTimings.stopTimer(RequestTimings.HANDLER, state.handlerStart);
+		try {
+			readOnlySessionSetup.restore(state.sessionState);
+			requestTimeoutSetup.restore(state.timeoutState);
+		}
+		finally {
+			AdmissionControl.getInstance().release(state.cost);
+		}
+	}
+	
+	/**
+	 * What has been set up for a request.
+	 */
+	public static class State {
+		
+		private long cost;
+		
+		private RequestTimeoutSetup.State timeoutState;
+		
+		private ReadOnlySessionSetup.State sessionState;
+		
+		private long handlerStart = -1;
+		
+		private State() {
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openmrs.module.webservices.rest.web.representation.CustomRepresentation;
+import org.openmrs.module.webservices.rest.web.representation.NamedRepresentation;
+import org.openmrs.module.webservices.rest.web.representation.Representation;
+
+public class AdmissionControlTest {
+	
+	@Test
+	public void getDepth_shouldGetTheDepthOfNamedRepresentations() {
+		assertEquals(1, AdmissionControl.getDepth(Representation.REF));
+		assertEquals(2, AdmissionControl.getDepth(Representation.DEFAULT));
+		assertEquals(3, AdmissionControl.getDepth(Representation.FULL));
+		assertEquals(2, AdmissionControl.getDepth(new NamedRepresentation("other")));
+	}
+	
+	@Test
+	public void getDepth_shouldGetTheDepthOfTheMostNestedPropertyOfCustomRepresentations() {
+		assertEquals(1, AdmissionControl.getDepth(new CustomRepresentation("(uuid,display)")));
+		assertEquals(2, AdmissionControl.getDepth(new CustomRepresentation("(uuid,location:ref)")));
+		assertEquals(3, AdmissionControl.getDepth(new CustomRepresentation("(uuid,obs:(uuid,concept:(uuid)))")));
+		assertEquals(4, AdmissionControl.getDepth(new CustomRepresentation("(uuid,obs:full,location:ref)")));
+		assertEquals(5, AdmissionControl.getDepth(new CustomRepresentation("(uuid,obs:(uuid,concept:full))")));
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.ServiceContext;
+import org.openmrs.messagesource.MessageSourceService;
+import org.openmrs.messagesource.PresentationMessage;
+import org.openmrs.module.webservices.rest.web.api.impl.LocalizationCacheAdvice;
+
+public class LocalizationCacheTest {
+	
+	private static final String CODE = "ui.i18n.Location.name.0cbe2ed3-cd5f-4f46-9459-26127c9265ab";
+	
+	private MessageSourceService messageSourceService;
+	
+	private MessageSourceService originalMessageSourceService;
+	
+	@Before
+	public void before() {
+		LocalizationCache.clearCache();
+		originalMessageSourceService = ServiceContext.getInstance().getMessageSourceService();
+		messageSourceService = mock(MessageSourceService.class);
+		ServiceContext.getInstance().setMessageSourceService(messageSourceService);
+	}
+	
+	@After
+	public void after() {
+		ServiceContext.getInstance().setMessageSourceService(originalMessageSourceService);
+		LocalizationCache.clearCache();
+	}
+	
+	@Test
+	public void getMessage_shouldCacheMessages() {
+		when(messageSourceService.getMessage(CODE)).thenReturn("Localized");
+		
+		assertEquals("Localized", LocalizationCache.getMessage(CODE));
+		assertEquals("Localized", LocalizationCache.getMessage(CODE));
+		verify(messageSourceService, times(1)).getMessage(CODE);
+	}
+	
+	@Test
+	public void getMessage_shouldCacheMissingMessages() {
+		when(messageSourceService.getMessage(CODE)).thenReturn(CODE);
+		
+		assertNull(LocalizationCache.getMessage(CODE));
+		assertNull(LocalizationCache.getMessage(CODE));
+		verify(messageSourceService, times(1)).getMessage(CODE);
+	}
+	
+	@Test
+	public void getMessage_shouldNotUseMessagesCachedForAnotherMessageSourceService() {
+		when(messageSourceService.getMessage(CODE)).thenReturn(CODE);
+		assertNull(LocalizationCache.getMessage(CODE));
+		
+		MessageSourceService otherMessageSourceService = mock(MessageSourceService.class);
+		when(otherMessageSourceService.getMessage(CODE)).thenReturn("Localized");
+		ServiceContext.getInstance().setMessageSourceService(otherMessageSourceService);
+		
+		assertEquals("Localized", LocalizationCache.getMessage(CODE));
+	}
+	
+	@Test
+	public void clearCache_shouldClearTheCachedMessages() {
+		when(messageSourceService.getMessage(CODE)).thenReturn(CODE);
+		assertNull(LocalizationCache.getMessage(CODE));
+		
+		when(messageSourceService.getMessage(CODE)).thenReturn("Localized");
+		LocalizationCache.clearCache();
+		
+		assertEquals("Localized", LocalizationCache.getMessage(CODE));
+	}
+	
+	@Test
+	public void getMessage_shouldNotUseMessagesCachedBeforeAPresentationWasAdded() throws Throwable {
+		when(messageSourceService.getMessage(CODE)).thenReturn(CODE);
+		assertNull(LocalizationCache.getMessage(CODE));
+		
+		when(messageSourceService.getMessage(CODE)).thenReturn("Localized");
+		new LocalizationCacheAdvice().afterReturning(null,
+		    MessageSourceService.class.getMethod("addPresentation", PresentationMessage.class), null, messageSourceService);
+		
+		assertEquals("Localized", LocalizationCache.getMessage(CODE));
+	}
+}
@@ -0,0 +1,220 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.openmrs.module.webservices.rest.web.response.ObjectNotFoundException;
+import org.openmrs.module.webservices.rest.web.response.ResponseException;
+
+public class RequestCoalescerTest {
+	
+	private RequestCoalescer coalescer = RequestCoalescer.getInstance();
+	
+	@Test
+	public void execute_shouldReturnTheResultOfTheIdenticalRequestInFlight() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger executions = new AtomicInteger();
+		final Object result = new Object();
+		final AtomicReference<Object> leaderResult = new AtomicReference<Object>();
+		final AtomicReference<Object> followerResult = new AtomicReference<Object>();
+		
+		Thread leader = new Thread() {
+			
+			@Override
+			public void run() {
+				leaderResult.set(coalescer.execute("key", null, new RequestCoalescer.Execution() {
+					
+					@Override
+					public Object execute() throws ResponseException {
+						executions.incrementAndGet();
+						started.countDown();
+						try {
+							release.await();
+						}
+						catch (InterruptedException e) {
+							throw new IllegalStateException(e);
+						}
+						return result;
+					}
+				}, RequestCoalescer.MAX_WAIT_MILLIS));
+			}
+		};
+		Thread follower = new Thread() {
+			
+			@Override
+			public void run() {
+				followerResult.set(coalescer.execute("key", null, new RequestCoalescer.Execution() {
+					
+					@Override
+					public Object execute() throws ResponseException {
+						executions.incrementAndGet();
+						return new Object();
+					}
+				}, RequestCoalescer.MAX_WAIT_MILLIS));
+			}
+		};
+		
+		leader.start();
+		started.await();
+		follower.start();
+		while (follower.getState() != Thread.State.TIMED_WAITING && follower.isAlive()) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		leader.join();
+		follower.join();
+		
+		assertEquals(1, executions.get());
+		assertSame(result, leaderResult.get());
+		assertSame(result, followerResult.get());
+	}
+	
+	@Test
+	public void execute_shouldExecuteTheRequestAgainOnceTheIdenticalRequestHasCompleted() throws Exception {
+		final AtomicInteger executions = new AtomicInteger();
+		RequestCoalescer.Execution execution = new RequestCoalescer.Execution() {
+			
+			@Override
+			public Object execute() throws ResponseException {
+				return executions.incrementAndGet();
+			}
+		};
+		
+		assertEquals(1, coalescer.execute("key", null, execution, RequestCoalescer.MAX_WAIT_MILLIS));
+		assertEquals(2, coalescer.execute("key", null, execution, RequestCoalescer.MAX_WAIT_MILLIS));
+	}
+	
+	@Test(expected = ObjectNotFoundException.class)
+	public void execute_shouldRethrowTheExceptionOfTheRequest() throws Exception {
+		coalescer.execute("key", null, new RequestCoalescer.Execution() {
+			
+			@Override
+			public Object execute() throws ResponseException {
+				throw new ObjectNotFoundException();
+			}
+		}, RequestCoalescer.MAX_WAIT_MILLIS);
+	}
+	
+	@Test
+	public void execute_shouldExecuteTheRequestItselfIfTheIdenticalRequestTakesTooLong() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Object followerResult = new Object();
+		
+		Thread leader = new Thread() {
+			
+			@Override
+			public void run() {
+				coalescer.execute("key", null, new RequestCoalescer.Execution() {
+					
+					@Override
+					public Object execute() throws ResponseException {
+						started.countDown();
+						try {
+							release.await();
+						}
+						catch (InterruptedException e) {
+							throw new IllegalStateException(e);
+						}
+						return new Object();
+					}
+				}, RequestCoalescer.MAX_WAIT_MILLIS);
+			}
+		};
+		
+		leader.start();
+		started.await();
+		try {
+			assertSame(followerResult, coalescer.execute("key", null, new RequestCoalescer.Execution() {
+				
+				@Override
+				public Object execute() throws ResponseException {
+					return followerResult;
+				}
+			}, 10));
+		}
+		finally {
+			release.countDown();
+			leader.join();
+		}
+	}
+	
+	@Test
+	public void execute_shouldSetTheResponseHeadersOfTheIdenticalRequest() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final MockHttpServletResponse leaderResponse = new MockHttpServletResponse();
+		leaderResponse.setHeader("Cache-Control", "no-cache");
+		final MockHttpServletResponse followerResponse = new MockHttpServletResponse();
+		followerResponse.setHeader("Cache-Control", "no-store");
+		
+		Thread leader = new Thread() {
+			
+			@Override
+			public void run() {
+				coalescer.execute("key", leaderResponse, new RequestCoalescer.Execution() {
+					
+					@Override
+					public Object execute() throws ResponseException {
+						started.countDown();
+						try {
+							release.await();
+						}
+						catch (InterruptedException e) {
+							throw new IllegalStateException(e);
+						}
+						leaderResponse.setHeader("ETag", "\"1\"");
+						leaderResponse.addHeader("Set-Cookie", "JSESSIONID=leader");
+						leaderResponse.setStatus(MockHttpServletResponse.SC_PARTIAL_CONTENT);
+						return new Object();
+					}
+				}, RequestCoalescer.MAX_WAIT_MILLIS);
+			}
+		};
+		Thread follower = new Thread() {
+			
+			@Override
+			public void run() {
+				coalescer.execute("key", followerResponse, new RequestCoalescer.Execution() {
+					
+					@Override
+					public Object execute() throws ResponseException {
+						return new Object();
+					}
+				}, RequestCoalescer.MAX_WAIT_MILLIS);
+			}
+		};
+		
+		leader.start();
+		started.await();
+		follower.start();
+		while (follower.getState() != Thread.State.TIMED_WAITING && follower.isAlive()) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		leader.join();
+		follower.join();
+		
+		assertEquals("\"1\"", followerResponse.getHeader("ETag"));
+		assertEquals("no-store", followerResponse.getHeader("Cache-Control"));
+		assertNull(followerResponse.getHeader("Set-Cookie"));
+		assertEquals(MockHttpServletResponse.SC_PARTIAL_CONTENT, followerResponse.getStatus());
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmrs.module.webservices.rest.web.response.RequestTimeoutException;
+
+public class RequestDeadlineTest {
+	
+	@After
+	public void clearDeadline() {
+		RequestDeadline.clear();
+	}
+	
+	@Test
+	public void check_shouldPassIfThereIsNoDeadline() {
+		RequestDeadline.check();
+		assertNull(RequestDeadline.getRemainingMillis());
+	}
+	
+	@Test
+	public void check_shouldPassBeforeTheDeadline() {
+		RequestDeadline.start(60000);
+		RequestDeadline.check();
+		assertTrue(RequestDeadline.getRemainingMillis() > 0);
+	}
+	
+	@Test(expected = RequestTimeoutException.class)
+	public void check_shouldFailOnceTheDeadlineHasPassed() {
+		RequestDeadline.start(0);
+		RequestDeadline.check();
+	}
+	
+	@Test
+	public void clear_shouldRemoveTheDeadline() {
+		RequestDeadline.start(0);
+		RequestDeadline.clear();
+		RequestDeadline.check();
+		assertNull(RequestDeadline.getRemainingMillis());
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestTimingsTest {
+	
+	@After
+	public void endTimings() {
+		RequestTimings.end();
+	}
+	
+	@Test
+	public void startTimer_shouldNotTimeAnythingIfTheTimingsAreNotRecorded() {
+		assertFalse(RequestTimings.isRecording());
+		assertEquals(-1, RequestTimings.startTimer(RequestTimings.CONVERSION));
+	}
+	
+	@Test
+	public void startTimer_shouldIgnoreNestedTimersOfTheSamePhase() {
+		RequestTimings timings = RequestTimings.begin();
+		
+		long outer = RequestTimings.startTimer(RequestTimings.CONVERSION);
+		long inner = RequestTimings.startTimer(RequestTimings.CONVERSION);
+		RequestTimings.stopTimer(RequestTimings.CONVERSION, inner);
+		RequestTimings.stopTimer(RequestTimings.CONVERSION, outer);
+		
+		assertEquals(-1, inner);
+		assertEquals(1, timings.getCount(RequestTimings.CONVERSION));
+	}
+	
+	@Test
+	public void stopTimer_shouldCountEachTimedPhase() {
+		RequestTimings timings = RequestTimings.begin();
+		
+		for (int i = 0; i < 3; i++) {
+			RequestTimings.stopTimer(RequestTimings.DB, RequestTimings.startTimer(RequestTimings.DB));
+		}
+		
+		assertEquals(3, timings.getCount(RequestTimings.DB));
+		assertEquals(0, timings.getCount(RequestTimings.LOOKUP));
+	}
+	
+	@Test
+	public void toServerTiming_shouldFormatThePhasesInTheOrderTheyWereRecorded() {
+		RequestTimings timings = RequestTimings.begin();
+		timings.add(RequestTimings.LOOKUP, 200000);
+		timings.add(RequestTimings.DB, 1500000);
+		timings.add(RequestTimings.DB, 1000000);
+		
+		String serverTiming = timings.toServerTiming();
+		
+		assertTrue(serverTiming,
+		    serverTiming.startsWith("lookup;dur=0.2, db;dur=2.5;desc=\"2 statements\", total;dur="));
+	}
+}
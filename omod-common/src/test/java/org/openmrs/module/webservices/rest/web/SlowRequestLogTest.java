@@ -0,0 +1,60 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class SlowRequestLogTest {
+	
+	@After
+	public void endTimings() {
+		RequestTimings.end();
+	}
+	
+	@Test
+	public void describe_shouldDescribeTheRequestWithItsDetailsAndTimings() {
+		RequestTimings timings = RequestTimings.begin();
+		RequestTimings.putDetail("resource", "obs");
+		RequestTimings.putDetail("resultCount", 2);
+		timings.add(RequestTimings.DB, 1500000);
+		timings.add(RequestTimings.DB, 1000000);
+		
+		Map<String, Object> line = SlowRequestLog.describe(new MockHttpServletRequest("GET", "/ws/rest/v1/obs"), 200,
+		    timings, 3);
+		
+		assertEquals(Arrays.asList("method", "uri", "status", "durationMs", "resource", "resultCount", "sqlCount",
+		    "phasesMs", "skippedSlowRequests"), new ArrayList<String>(line.keySet()));
+		assertEquals("/ws/rest/v1/obs", line.get("uri"));
+		assertEquals("obs", line.get("resource"));
+		assertEquals(2L, line.get("sqlCount"));
+		assertEquals(2.5, ((Map<?, ?>) line.get("phasesMs")).get(RequestTimings.DB));
+	}
+	
+	@Test
+	public void tryAcquire_shouldLimitTheLinesLoggedPerMinute() {
+		SlowRequestLog slowRequestLog = SlowRequestLog.getInstance();
+		long now = System.currentTimeMillis() + 120000;
+		
+		assertTrue(slowRequestLog.tryAcquire(now, 2));
+		assertTrue(slowRequestLog.tryAcquire(now + 1000, 2));
+		assertFalse(slowRequestLog.tryAcquire(now + 2000, 2));
+		assertTrue(slowRequestLog.tryAcquire(now + 60000, 2));
+	}
+}
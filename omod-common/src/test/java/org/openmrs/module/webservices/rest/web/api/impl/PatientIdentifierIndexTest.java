@@ -0,0 +1,119 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.api.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PatientIdentifierIndexTest {
+	
+	private PatientIdentifierIndex index = PatientIdentifierIndex.getInstance();
+	
+	@Before
+	public void before() {
+		index.invalidate();
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { "101-1", 1 });
+		rows.add(new Object[] { "101-2", 2 });
+		rows.add(new Object[] { "102-1", 3 });
+		rows.add(new Object[] { "A101", 4 });
+		rows.add(new Object[] { "101-3", 1 });
+		rows.add(new Object[] { "100-1", 5 });
+		assertTrue(index.build(rows, index.getVersion()));
+	}
+	
+	@Test
+	public void findPatientIds_shouldFindDistinctPatientsByIdentifierPrefixOrderedByPatientId() {
+		assertEquals(Arrays.asList(1, 2), index.findPatientIds("101", null, null));
+		assertEquals(Arrays.asList(1, 2, 3, 5), index.findPatientIds("10", null, null));
+		assertEquals(Arrays.asList(4), index.findPatientIds("A", null, null));
+		assertTrue(index.findPatientIds("9", null, null).isEmpty());
+	}
+	
+	@Test
+	public void findPatientIds_shouldIgnoreCase() {
+		assertEquals(Arrays.asList(4), index.findPatientIds("a1", null, null));
+		
+		Patient patient = new Patient(6);
+		patient.addIdentifier(new PatientIdentifier("b200", null, null));
+		index.update(patient);
+		
+		assertEquals(Arrays.asList(6), index.findPatientIds("B2", null, null));
+	}
+	
+	@Test
+	public void findPatientIds_shouldReturnTheRequestedPage() {
+		assertEquals(Arrays.asList(1, 2), index.findPatientIds("10", 0, 2));
+		assertEquals(Arrays.asList(3, 5), index.findPatientIds("10", 2, 2));
+		assertTrue(index.findPatientIds("10", 4, 2).isEmpty());
+	}
+	
+	@Test
+	public void update_shouldReplaceTheIdentifiersOfThePatient() {
+		Patient patient = new Patient(2);
+		patient.addIdentifier(new PatientIdentifier("999", null, null));
+		
+		index.update(patient);
+		
+		assertEquals(Arrays.asList(1), index.findPatientIds("101", null, null));
+		assertEquals(Arrays.asList(2), index.findPatientIds("99", null, null));
+	}
+	
+	@Test
+	public void update_shouldKeepVoidedIdentifiersOfThePatient() {
+		Patient patient = new Patient(2);
+		PatientIdentifier voided = new PatientIdentifier("555-9", null, null);
+		voided.setVoided(true);
+		patient.addIdentifier(voided);
+		
+		index.update(patient);
+		
+		assertEquals(Arrays.asList(2), index.findPatientIds("555", null, null));
+		assertEquals(Arrays.asList(1), index.findPatientIds("101", null, null));
+	}
+	
+	@Test
+	public void update_shouldRemoveVoidedPatients() {
+		Patient patient = new Patient(3);
+		patient.addIdentifier(new PatientIdentifier("102-1", null, null));
+		patient.setVoided(true);
+		
+		index.update(patient);
+		
+		assertTrue(index.findPatientIds("102", null, null).isEmpty());
+	}
+	
+	@Test
+	public void remove_shouldRemoveTheIdentifiersOfThePatient() {
+		index.remove(1);
+		
+		assertEquals(Arrays.asList(2), index.findPatientIds("101", null, null));
+	}
+	
+	@Test
+	public void build_shouldNotBuildTheIndexIfItHasBeenChangedWhileLoading() {
+		index.invalidate();
+		long version = index.getVersion();
+		index.update(new Patient(5));
+		
+		assertFalse(index.build(new ArrayList<Object[]>(), version));
+		assertFalse(index.isBuilt());
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.webservices.rest.web.v1_0.controller;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReadOnlySessionSetupTest {
+	
+	private ReadOnlySessionSetup readOnlySessionSetup;
+	
+	private Session session;
+	
+	@Before
+	public void before() {
+		session = mock(Session.class);
+		SessionFactory sessionFactory = mock(SessionFactory.class);
+		when(sessionFactory.getCurrentSession()).thenReturn(session);
+		
+		readOnlySessionSetup = new ReadOnlySessionSetup();
+		readOnlySessionSetup.sessionFactory = sessionFactory;
+	}
+	
+	@Test
+	public void setup_shouldFlushAndSwitchTheSessionToManualFlushing() {
+		when(session.getHibernateFlushMode()).thenReturn(FlushMode.AUTO);
+		
+		readOnlySessionSetup.setup();
+		
+		verify(session).flush();
+		verify(session).setHibernateFlushMode(FlushMode.MANUAL);
+		verify(session, never()).setDefaultReadOnly(true);
+	}
+	
+	@Test
+	public void restore_shouldRestoreThePreviousStateOfTheSession() {
+		when(session.getHibernateFlushMode()).thenReturn(FlushMode.COMMIT);
+		ReadOnlySessionSetup.State state = readOnlySessionSetup.setup();
+		
+		readOnlySessionSetup.restore(state);
+		
+		verify(session).setHibernateFlushMode(FlushMode.COMMIT);
+	}
+}
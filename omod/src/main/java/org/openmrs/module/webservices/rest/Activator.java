@@ -12,20 +12,35 @@ package org.openmrs.module.webservices.rest;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
 import org.openmrs.module.BaseModuleActivator;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.DaemonTokenAware;
 import org.openmrs.module.ModuleActivator;
+import org.openmrs.module.webservices.docs.swagger.SwaggerSpecificationCache;
 import org.openmrs.module.webservices.docs.swagger.SwaggerSpecificationCreator;
 import org.openmrs.module.webservices.rest.util.ReflectionUtil;
+import org.openmrs.module.webservices.rest.web.ConceptSnapshot;
 import org.openmrs.module.webservices.rest.web.ConversionUtil;
+import org.openmrs.module.webservices.rest.web.LocalizationCache;
+import org.openmrs.module.webservices.rest.web.WarmUp;
 import org.openmrs.module.webservices.rest.web.api.RestService;
 
 /**
  * {@link ModuleActivator} for the webservices.rest module
  */
-public class Activator extends BaseModuleActivator {
+public class Activator extends BaseModuleActivator implements DaemonTokenAware {
 	
 	private Log log = LogFactory.getLog(this.getClass());
 	
+	private static DaemonToken daemonToken;
+	
+	@Override
+	public void setDaemonToken(DaemonToken token) {
+		daemonToken = token;
+		ConceptSnapshot.setDaemonToken(token);
+	}
+	
 	@Override
 	public void started() {
 		log.info("Started the REST Web Service module");
@@ -38,14 +53,32 @@ public class Activator extends BaseModuleActivator {
 	
 	@Override
 	public void contextRefreshed() {
+		WarmUp.reset();
+		
 		// initialize all resources and search handlers
 		Context.getService(RestService.class).initialize();
 		
 		log.info("Clearing caches...");
 		
 		ConversionUtil.clearCache();
+		LocalizationCache.clearCache();
 		ReflectionUtil.clearCaches();
 		SwaggerSpecificationCreator.clearCache();
+		
+		// warm up the resources and build the Swagger specification before they are requested
+		Daemon.runInDaemonThread(new Runnable() {
+			
+			@Override
+			public void run() {
+				WarmUp.run();
+				try {
+					SwaggerSpecificationCache.rebuild();
+				}
+				catch (Exception e) {
+					log.error("Failed to build the Swagger specification", e);
+				}
+			}
+		}, daemonToken);
 	}
 	
 }
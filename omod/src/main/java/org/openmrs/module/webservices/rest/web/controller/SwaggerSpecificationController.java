@@ -10,36 +10,77 @@
 package org.openmrs.module.webservices.rest.web.controller;
 
 import com.google.common.net.HttpHeaders;
-import io.swagger.models.Scheme;
-import org.openmrs.module.webservices.docs.swagger.SwaggerSpecificationCreator;
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.module.webservices.docs.swagger.SwaggerSpecificationCache;
+import org.openmrs.module.webservices.docs.swagger.SwaggerSpecificationCache.Document;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
+/**
+ * Serves the pre-built Swagger specification from the {@link SwaggerSpecificationCache}, with the
+ * base path under the context path of the request.
+ * <ul>
+ * <li>{@code swagger.json} returns the complete specification</li>
+ * <li>{@code swagger.json?resources} returns the names of all documented resources</li>
+ * <li>{@code swagger.json?resource=<name>} returns the specification of a single resource</li>
+ * </ul>
+ */
 @Controller("SwaggerSpecificationController")
 @RequestMapping("/module/webservices/rest/swagger.json")
 public class SwaggerSpecificationController {
-	
+
 	@RequestMapping(method = RequestMethod.GET)
-	public @ResponseBody
-	String getSwaggerSpecification(HttpServletRequest request) throws Exception {
-		
-		String host = request.getHeader(HttpHeaders.HOST);
-		
-		String scheme = request.getHeader(HttpHeaders.X_FORWARDED_PROTO);
-		if (scheme == null) {
-			scheme = request.getScheme();
+	public void getSwaggerSpecification(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		writeDocument(SwaggerSpecificationCache.getSpecification(request.getContextPath()).getDocument(), request,
+		    response);
+	}
+
+	@RequestMapping(method = RequestMethod.GET, params = "resources")
+	public void getSwaggerSpecificationResources(HttpServletRequest request, HttpServletResponse response)
+	        throws IOException {
+		writeDocument(SwaggerSpecificationCache.getSpecification().getResourceIndex(), request, response);
+	}
+
+	@RequestMapping(method = RequestMethod.GET, params = "resource")
+	public void getSwaggerSpecificationOfResource(@RequestParam("resource") String resource, HttpServletRequest request,
+	        HttpServletResponse response) throws IOException {
+		Document document = SwaggerSpecificationCache.getSpecification(request.getContextPath()).getResourceDocument(
+		    resource);
+		if (document == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown resource: " + resource);
+			return;
+		}
+		writeDocument(document, request, response);
+	}
+
+	private void writeDocument(Document document, HttpServletRequest request, HttpServletResponse response)
+	        throws IOException {
+		response.setHeader(HttpHeaders.ETAG, document.getEtag());
+		response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+		response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+		if (document.getEtag().equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		response.setContentType("application/json;charset=UTF-8");
+
+		byte[] content = document.getContent();
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		if (StringUtils.contains(acceptEncoding, "gzip")) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+			content = document.getGzippedContent();
 		}
-		
-		return new SwaggerSpecificationCreator()
-		        .host(host)
-		        .basePath(request.getContextPath() + "/ws/rest/v1")
-		        .scheme(Scheme.forValue(scheme))
-		        
-		        .getJSON();
+
+		response.setContentLength(content.length);
+		response.getOutputStream().write(content);
 	}
-	
+
 }